@@ -0,0 +1,108 @@
+package eu.deltasource.internship.hotel.benchmark;
+
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.GuestRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+import eu.deltasource.internship.hotel.service.BookingService;
+import eu.deltasource.internship.hotel.service.GuestService;
+import eu.deltasource.internship.hotel.service.RoomService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Availability checks through the {@link BookingService}.
+ * <p>
+ * Dates within the next two years are answered by the
+ * occupancy calendars, dates after them by the booked intervals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AvailabilityBenchmark {
+
+    private static final int STAY = 3;
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    /**
+     * Number of popular ranges searched again and again
+     */
+    private static final int POPULAR_RANGES = 16;
+
+    private BookingService bookingService;
+
+    private BookingService cachedBookingService;
+
+    private int rooms;
+
+    private LocalDate today;
+
+    @Setup
+    public void setUp() {
+        rooms = HotelFixture.roomCount(size);
+        BookingRepository bookingRepository = new BookingRepository();
+        GuestRepository guestRepository = new GuestRepository();
+        RoomRepository roomRepository = new RoomRepository();
+        HotelFixture.fillRooms(roomRepository, rooms);
+        HotelFixture.fillGuests(guestRepository, size);
+        HotelFixture.fillBookings(bookingRepository, size, rooms, size);
+
+        RoomService roomService = new RoomService(roomRepository);
+        GuestService guestService = new GuestService(guestRepository);
+        bookingService = new BookingService(bookingRepository, roomService, guestService, 0);
+        cachedBookingService = new BookingService(bookingRepository, roomService, guestService);
+        today = LocalDate.now();
+    }
+
+    @Benchmark
+    public boolean isRoomAvailable() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate from = today.plusDays(1 + random.nextInt(700));
+        return bookingService.isRoomAvailable(1 + random.nextInt(rooms), from, from.plusDays(STAY));
+    }
+
+    @Benchmark
+    public boolean isRoomAvailableAfterCalendar() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate from = today.plusDays(800 + random.nextInt(100));
+        return bookingService.isRoomAvailable(1 + random.nextInt(rooms), from, from.plusDays(STAY));
+    }
+
+    /**
+     * Searches all rooms for two people without the cache,
+     * so the cost grows with the hotel
+     */
+    @Benchmark
+    public int[] findAvailableRoomIds() {
+        LocalDate from = today.plusDays(1 + ThreadLocalRandom.current().nextInt(700));
+        return bookingService.findAvailableRoomIds(from, from.plusDays(STAY), 2);
+    }
+
+    /**
+     * Searches the same few weekends again and again, which are answered
+     * by the cache after the first search. Only the copy of the result
+     * grows with the hotel.
+     */
+    @Benchmark
+    public int[] findAvailableRoomIdsCached() {
+        LocalDate from = today.plusDays(7 * (1 + ThreadLocalRandom.current().nextInt(POPULAR_RANGES)));
+        return cachedBookingService.findAvailableRoomIds(from, from.plusDays(2), 2);
+    }
+}
@@ -0,0 +1,67 @@
+package eu.deltasource.internship.hotel.benchmark;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.ColumnarBookingStorage;
+import eu.deltasource.internship.hotel.repository.MapBookingStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads of the bookings kept as objects in a map and in columns
+ * of primitives, which create the bookings on every read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BookingStorageBenchmark {
+
+    @Param({"MAP", "COLUMNAR"})
+    private String storage;
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private BookingRepository bookingRepository;
+
+    @Setup
+    public void setUp() {
+        int rooms = HotelFixture.roomCount(size);
+        bookingRepository = new BookingRepository(null,
+                "MAP".equals(storage) ? new MapBookingStorage() : new ColumnarBookingStorage());
+        HotelFixture.fillBookings(bookingRepository, size, rooms, size);
+    }
+
+    @Benchmark
+    public Booking findBookingById() {
+        return bookingRepository.findById(1 + ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public List<Booking> findAllBookings() {
+        return bookingRepository.findAll();
+    }
+
+    @Benchmark
+    public long countGuestNights() {
+        return bookingRepository.stream()
+                .mapToLong(booking -> booking.getTo().toEpochDay() - booking.getFrom().toEpochDay())
+                .sum();
+    }
+}
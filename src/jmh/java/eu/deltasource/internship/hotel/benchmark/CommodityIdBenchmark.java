@@ -0,0 +1,60 @@
+package eu.deltasource.internship.hotel.benchmark;
+
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.domain.commodity.AbstractCommodity;
+import eu.deltasource.internship.hotel.domain.commodity.BlockCommodityIdAllocator;
+import eu.deltasource.internship.hotel.domain.commodity.CommodityIdAllocator;
+import eu.deltasource.internship.hotel.domain.commodity.SequentialCommodityIdAllocator;
+import eu.deltasource.internship.hotel.service.TestConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rooms built by many threads at once, every room takes the
+ * inventory ids of its commodities from the allocator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(8)
+public class CommodityIdBenchmark {
+
+    @Param({"SEQUENTIAL", "BLOCK"})
+    private String allocator;
+
+    private CommodityIdAllocator ids;
+
+    @Setup
+    public void setUp() {
+        ids = "BLOCK".equals(allocator) ? new BlockCommodityIdAllocator() : new SequentialCommodityIdAllocator();
+        AbstractCommodity.setIdAllocator(ids);
+    }
+
+    @Benchmark
+    public int nextId() {
+        return ids.nextId();
+    }
+
+    /**
+     * Builds a room with three beds, two toilets and a shower
+     */
+    @Benchmark
+    public Room buildRoom() {
+        return new Room(0, TestConfiguration.fivePersonSet());
+    }
+}
@@ -0,0 +1,148 @@
+package eu.deltasource.internship.hotel.benchmark;
+
+import eu.deltasource.internship.hotel.api.ExecutionMode;
+import eu.deltasource.internship.hotel.exception.BookingOverlapException;
+import eu.deltasource.internship.hotel.persistence.Durability;
+import eu.deltasource.internship.hotel.persistence.HotelStorage;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.GuestRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+import eu.deltasource.internship.hotel.service.BookingService;
+import eu.deltasource.internship.hotel.service.GuestService;
+import eu.deltasource.internship.hotel.service.RoomService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the execution modes with many clients at once. Every client
+ * checks a room, books it and cancels the booking again, waiting each
+ * time until the change is forced to the write-ahead log, like requests
+ * to the HTTP API. Cancelling keeps the hotel from filling up over the run.
+ * <p>
+ * One operation is the time until all clients are answered.
+ * The VIRTUAL mode fails in its setup on Java older than 21.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExecutionModeBenchmark {
+
+    private static final int ROOMS = 1000;
+
+    private static final int GUESTS = 10000;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private ExecutionMode mode;
+
+    @Param({"10000"})
+    private int clients;
+
+    /**
+     * Size of the pool of the PLATFORM mode
+     */
+    @Param({"200"})
+    private int platformThreads;
+
+    private ExecutorService executor;
+
+    private HotelStorage storage;
+
+    private Path directory;
+
+    private BookingService bookingService;
+
+    private LocalDate today;
+
+    @Setup
+    public void setUp() throws IOException {
+        executor = mode.newExecutor(platformThreads);
+        directory = Files.createTempDirectory("hotel-benchmark");
+        storage = new HotelStorage(directory, Durability.BATCH, 0);
+        BookingRepository bookingRepository = new BookingRepository(storage.getLog());
+        GuestRepository guestRepository = new GuestRepository(storage.getLog());
+        RoomRepository roomRepository = new RoomRepository(storage.getLog());
+        storage.recover(bookingRepository, guestRepository, roomRepository);
+        HotelFixture.fillRooms(roomRepository, ROOMS);
+        HotelFixture.fillGuests(guestRepository, GUESTS);
+
+        RoomService roomService = new RoomService(roomRepository);
+        GuestService guestService = new GuestService(guestRepository);
+        bookingService = new BookingService(bookingRepository, roomService, guestService);
+        today = LocalDate.now();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.shutdown();
+        storage.close();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public long serveClients() throws InterruptedException {
+        CountDownLatch answered = new CountDownLatch(clients);
+        AtomicLong booked = new AtomicLong();
+        for (int i = 0; i < clients; i++) {
+            executor.execute(() -> {
+                try {
+                    if (request()) {
+                        booked.incrementAndGet();
+                    }
+                } finally {
+                    answered.countDown();
+                }
+            });
+        }
+        answered.await();
+        return booked.get();
+    }
+
+    /**
+     * Returns true if the client booked the room before cancelling
+     */
+    private boolean request() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roomId = 1 + random.nextInt(ROOMS);
+        LocalDate from = today.plusDays(1 + random.nextInt(700));
+        LocalDate to = from.plusDays(1 + random.nextInt(3));
+        if (!bookingService.isRoomAvailable(roomId, from, to)) {
+            return false;
+        }
+        try {
+            int bookingId = bookingService.book(1 + random.nextInt(GUESTS), roomId, 1, from, to).getBookingId();
+            bookingService.cancelBooking(bookingId);
+            return true;
+        } catch (BookingOverlapException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package eu.deltasource.internship.hotel.benchmark;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Gender;
+import eu.deltasource.internship.hotel.domain.Guest;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.GuestRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+import eu.deltasource.internship.hotel.service.TestConfiguration;
+
+import java.time.LocalDate;
+
+/**
+ * Fills the repositories for the benchmarks.
+ * <p>
+ * A hotel with the given size has that many guests and bookings
+ * and one room for every ten bookings, built from the room sets
+ * of {@link TestConfiguration}. Every room gets ten bookings of
+ * two nights, spread over the next two years without overlapping.
+ */
+final class HotelFixture {
+
+    static final int BOOKINGS_PER_ROOM = 10;
+
+    static final int NIGHTS = 2;
+
+    /**
+     * Days between the arrivals of two bookings of the same room
+     */
+    static final int BOOKING_SPACING = 61;
+
+    private HotelFixture() {
+    }
+
+    static int roomCount(int size) {
+        return Math.max(1, size / BOOKINGS_PER_ROOM);
+    }
+
+    static void fillRooms(RoomRepository roomRepository, int count) {
+        Room[] rooms = TestConfiguration.createRooms();
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && i % rooms.length == 0) {
+                rooms = TestConfiguration.createRooms();
+            }
+            roomRepository.save(rooms[i % rooms.length]);
+        }
+    }
+
+    static void fillGuests(GuestRepository guestRepository, int count) {
+        for (int i = 0; i < count; i++) {
+            guestRepository.save(guest(i));
+        }
+    }
+
+    static void fillBookings(BookingRepository bookingRepository, int count, int rooms, int guests) {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < count; i++) {
+            int roomId = 1 + i % rooms;
+            int slot = i / rooms % BOOKINGS_PER_ROOM;
+            LocalDate from = today.plusDays(1 + slot * BOOKING_SPACING + roomId % BOOKING_SPACING);
+            bookingRepository.save(new Booking(1, 1 + i % guests, roomId, 1, from, from.plusDays(NIGHTS)));
+        }
+    }
+
+    static Guest guest(int i) {
+        return new Guest(1, "First" + i, "Last" + i, i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+    }
+}
@@ -0,0 +1,87 @@
+package eu.deltasource.internship.hotel.benchmark;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.GuestRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+import eu.deltasource.internship.hotel.service.BookingService;
+import eu.deltasource.internship.hotel.service.GuestService;
+import eu.deltasource.internship.hotel.service.RoomService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the metrics on the hot paths. The same calls are run with
+ * metrics enabled and, in a separate fork, disabled by hotel.metrics=false.
+ * The difference is the overhead of the timed entry points, which should
+ * stay below 100 ns per call, like the availability check of the service.
+ * <p>
+ * Lookups by id take only tens of nanoseconds, reading the clock would
+ * cost more than the lookup, so they are not timed and should show no
+ * difference at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public abstract class MetricsOverheadBenchmark {
+
+    private static final int SIZE = 100000;
+
+    private static final int STAY = 3;
+
+    private BookingService bookingService;
+
+    private int rooms;
+
+    private LocalDate today;
+
+    @Setup
+    public void setUp() {
+        rooms = HotelFixture.roomCount(SIZE);
+        BookingRepository bookingRepository = new BookingRepository();
+        GuestRepository guestRepository = new GuestRepository();
+        RoomRepository roomRepository = new RoomRepository();
+        HotelFixture.fillRooms(roomRepository, rooms);
+        HotelFixture.fillGuests(guestRepository, SIZE);
+        HotelFixture.fillBookings(bookingRepository, SIZE, rooms, SIZE);
+
+        RoomService roomService = new RoomService(roomRepository);
+        GuestService guestService = new GuestService(guestRepository);
+        bookingService = new BookingService(bookingRepository, roomService, guestService);
+        today = LocalDate.now();
+    }
+
+    @Benchmark
+    public Booking findBookingById() {
+        return bookingService.getBookingById(1 + ThreadLocalRandom.current().nextInt(SIZE));
+    }
+
+    @Benchmark
+    public boolean isRoomAvailable() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate from = today.plusDays(1 + random.nextInt(700));
+        return bookingService.isRoomAvailable(1 + random.nextInt(rooms), from, from.plusDays(STAY));
+    }
+
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dhotel.metrics=true"})
+    public static class Enabled extends MetricsOverheadBenchmark {
+    }
+
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dhotel.metrics=false"})
+    public static class Disabled extends MetricsOverheadBenchmark {
+    }
+}
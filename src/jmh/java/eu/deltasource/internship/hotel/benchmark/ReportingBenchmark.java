@@ -0,0 +1,63 @@
+package eu.deltasource.internship.hotel.benchmark;
+
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+import eu.deltasource.internship.hotel.service.OccupancyReport;
+import eu.deltasource.internship.hotel.service.ReportingService;
+import eu.deltasource.internship.hotel.service.RoomService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Occupancy reports over the two years the bookings of the fixture
+ * are spread over. ReportingServiceTest checks them against a report
+ * counted night by night.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReportingBenchmark {
+
+    private static final int DAYS = 730;
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private ReportingService reportingService;
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    @Setup
+    public void setUp() {
+        int rooms = HotelFixture.roomCount(size);
+        BookingRepository bookingRepository = new BookingRepository();
+        RoomRepository roomRepository = new RoomRepository();
+        HotelFixture.fillRooms(roomRepository, rooms);
+        HotelFixture.fillBookings(bookingRepository, size, rooms, size);
+        reportingService = new ReportingService(bookingRepository, new RoomService(roomRepository));
+        from = LocalDate.now();
+        to = from.plusDays(DAYS);
+    }
+
+    @Benchmark
+    public OccupancyReport createOccupancyReport() {
+        return reportingService.createOccupancyReport(from, to);
+    }
+}
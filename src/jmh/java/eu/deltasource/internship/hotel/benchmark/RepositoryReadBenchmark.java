@@ -0,0 +1,98 @@
+package eu.deltasource.internship.hotel.benchmark;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Guest;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.GuestRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups by id and full listings of the repositories.
+ * Ids are picked at random, so the map is not read from
+ * a single cache line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RepositoryReadBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private BookingRepository bookingRepository;
+
+    private GuestRepository guestRepository;
+
+    private RoomRepository roomRepository;
+
+    private int rooms;
+
+    @Setup
+    public void setUp() {
+        rooms = HotelFixture.roomCount(size);
+        bookingRepository = new BookingRepository();
+        guestRepository = new GuestRepository();
+        roomRepository = new RoomRepository();
+        HotelFixture.fillRooms(roomRepository, rooms);
+        HotelFixture.fillGuests(guestRepository, size);
+        HotelFixture.fillBookings(bookingRepository, size, rooms, size);
+    }
+
+    @Benchmark
+    public Booking findBookingById() {
+        return bookingRepository.findById(randomId(size));
+    }
+
+    @Benchmark
+    public boolean existsBookingById() {
+        return bookingRepository.existsById(randomId(size));
+    }
+
+    @Benchmark
+    public Guest findGuestById() {
+        return guestRepository.findById(randomId(size));
+    }
+
+    @Benchmark
+    public boolean existsGuestById() {
+        return guestRepository.existsById(randomId(size));
+    }
+
+    @Benchmark
+    public Room findRoomById() {
+        return roomRepository.findById(randomId(rooms));
+    }
+
+    @Benchmark
+    public List<Booking> findAllBookings() {
+        return bookingRepository.findAll();
+    }
+
+    @Benchmark
+    public List<Guest> findAllGuests() {
+        return guestRepository.findAll();
+    }
+
+    private static int randomId(int count) {
+        return 1 + ThreadLocalRandom.current().nextInt(count);
+    }
+}
@@ -0,0 +1,100 @@
+package eu.deltasource.internship.hotel.benchmark;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Guest;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.GuestRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves and deletes on the in-memory repositories.
+ * <p>
+ * The repositories are filled again before every iteration,
+ * so growing them during an iteration does not carry over.
+ * Deleting is measured together with the save of the deleted
+ * item, which keeps the size of the repository the same.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RepositoryWriteBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private BookingRepository bookingRepository;
+
+    private GuestRepository guestRepository;
+
+    private Booking booking;
+
+    private Guest guest;
+
+    private List<Guest> guests;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        int rooms = HotelFixture.roomCount(size);
+        bookingRepository = new BookingRepository();
+        guestRepository = new GuestRepository();
+        HotelFixture.fillGuests(guestRepository, size);
+        HotelFixture.fillBookings(bookingRepository, size, rooms, size);
+
+        LocalDate from = LocalDate.now().plusDays(1);
+        booking = new Booking(1, 1, 1, 1, from, from.plusDays(HotelFixture.NIGHTS));
+        guest = HotelFixture.guest(size);
+        guests = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            guests.add(HotelFixture.guest(i));
+        }
+    }
+
+    @Benchmark
+    public Booking saveBooking() {
+        return bookingRepository.save(booking);
+    }
+
+    @Benchmark
+    public Guest saveGuest() {
+        return guestRepository.save(guest);
+    }
+
+    /**
+     * Saves a batch of {@value #BATCH_SIZE} guests
+     */
+    @Benchmark
+    public void saveAllGuests() {
+        guestRepository.saveAll(guests);
+    }
+
+    @Benchmark
+    public boolean saveAndDeleteBookingById() {
+        return bookingRepository.deleteById(bookingRepository.save(booking).getBookingId());
+    }
+
+    @Benchmark
+    public boolean saveAndDeleteGuestById() {
+        return guestRepository.deleteById(guestRepository.save(guest).getGuestId());
+    }
+}
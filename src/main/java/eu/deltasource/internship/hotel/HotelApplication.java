@@ -1,5 +1,32 @@
 package eu.deltasource.internship.hotel;
 
+import eu.deltasource.internship.hotel.api.ExecutionMode;
+import eu.deltasource.internship.hotel.api.HotelHttpServer;
+import eu.deltasource.internship.hotel.domain.Hotel;
+import eu.deltasource.internship.hotel.domain.commodity.AbstractCommodity;
+import eu.deltasource.internship.hotel.domain.commodity.CommodityEventSink;
+import eu.deltasource.internship.hotel.metrics.Metrics;
+import eu.deltasource.internship.hotel.persistence.Durability;
+import eu.deltasource.internship.hotel.persistence.HotelStorage;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.BookingStorage;
+import eu.deltasource.internship.hotel.repository.ColumnarBookingStorage;
+import eu.deltasource.internship.hotel.repository.GuestRepository;
+import eu.deltasource.internship.hotel.repository.MapBookingStorage;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+import eu.deltasource.internship.hotel.service.BookingService;
+import eu.deltasource.internship.hotel.service.GuestService;
+import eu.deltasource.internship.hotel.service.HousekeepingService;
+import eu.deltasource.internship.hotel.service.OccupancyService;
+import eu.deltasource.internship.hotel.service.RoomService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.util.concurrent.ExecutorService;
+
 /**
  * Created by Taner Ilyazov - Delta Source Bulgaria on 2019-07-28.
  */
@@ -7,8 +34,113 @@ public class HotelApplication {
 
     /**
      * #thisisamain
+     * <p>
+     * Set the system property hotel.data.dir to keep the hotel in
+     * snapshots and a write-ahead log in that directory, which are loaded
+     * on start. hotel.wal.durability (BATCH or INTERVAL) and
+     * hotel.wal.interval.ms choose when the log is forced to the disk,
+     * hotel.snapshot.minutes how often a snapshot is taken.
+     * hotel.booking.storage=COLUMNAR keeps the bookings in columns
+     * of primitives, which take much less memory than objects.
+     * <p>
+     * Set hotel.http.port to serve the hotel over HTTP on that port.
+     * hotel.execution.mode chooses how requests are run, on a pool of
+     * hotel.http.threads threads (PLATFORM) or each on its own virtual
+     * thread (VIRTUAL, needs Java 21).
+     * <p>
+     * hotel.availability.cache.size sets how many availability
+     * searches are cached, 0 turns the cache off.
+     * <p>
+     * Set hotel.housekeeping.time, like 11:00, to prepare the rooms of
+     * the guests checking out every day at that time, on a pool of
+     * hotel.housekeeping.threads threads.
+     * <p>
+     * Metrics are served at /metrics and over JMX, unless
+     * hotel.metrics is false.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        String dataDirectory = System.getProperty("hotel.data.dir");
+        HotelStorage storage = null;
+
+        BookingRepository bookingRepository;
+        GuestRepository guestRepository;
+        RoomRepository roomRepository;
+        BookingStorage bookingStorage = "COLUMNAR".equals(System.getProperty("hotel.booking.storage"))
+                ? new ColumnarBookingStorage() : new MapBookingStorage();
+        if (dataDirectory == null) {
+            bookingRepository = new BookingRepository(null, bookingStorage);
+            guestRepository = new GuestRepository();
+            roomRepository = new RoomRepository();
+        } else {
+            Durability durability = Durability.valueOf(System.getProperty("hotel.wal.durability", "BATCH"));
+            long intervalMillis = Long.getLong("hotel.wal.interval.ms", 10);
+
+            storage = new HotelStorage(Paths.get(dataDirectory), durability, intervalMillis);
+            bookingRepository = new BookingRepository(storage.getLog(), bookingStorage);
+            guestRepository = new GuestRepository(storage.getLog());
+            roomRepository = new RoomRepository(storage.getLog());
+            storage.recover(bookingRepository, guestRepository, roomRepository);
+            storage.scheduleSnapshots(Long.getLong("hotel.snapshot.minutes", 15));
+        }
+
+        RoomService roomService = new RoomService(roomRepository);
+        GuestService guestService = new GuestService(guestRepository);
+        BookingService bookingService = new BookingService(bookingRepository, roomService, guestService,
+                Integer.getInteger("hotel.availability.cache.size", BookingService.DEFAULT_CACHE_CAPACITY));
+        // counts the stored bookings, so it is created before any request changes them
+        OccupancyService occupancyService = new OccupancyService(bookingRepository, roomService);
+        Hotel hotel = new Hotel(bookingService, guestService, roomService, occupancyService);
+        if (Metrics.ENABLED) {
+            Metrics.registerMBean();
+        }
+
+        HousekeepingService housekeeping = null;
+        String housekeepingTime = System.getProperty("hotel.housekeeping.time");
+        if (housekeepingTime != null) {
+            housekeeping = new HousekeepingService(bookingRepository, roomService,
+                    Integer.getInteger("hotel.housekeeping.threads", Runtime.getRuntime().availableProcessors()));
+            housekeeping.scheduleDaily(LocalTime.parse(housekeepingTime));
+        }
+
+        HotelHttpServer server = null;
+        ExecutorService executor = null;
+        Integer port = Integer.getInteger("hotel.http.port");
+        if (port != null) {
+            ExecutionMode mode = ExecutionMode.valueOf(System.getProperty("hotel.execution.mode", "PLATFORM"));
+            int threads = Integer.getInteger("hotel.http.threads", 2 * Runtime.getRuntime().availableProcessors());
+            executor = mode.newExecutor(threads);
+            server = new HotelHttpServer(hotel, new InetSocketAddress(port), executor);
+            server.start();
+        }
 
+        // the server is stopped first, so no request changes the hotel after the log is closed
+        HotelHttpServer openServer = server;
+        ExecutorService openExecutor = executor;
+        HousekeepingService openHousekeeping = housekeeping;
+        HotelStorage openStorage = storage;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (openServer != null) {
+                openServer.stop(1);
+                openExecutor.shutdown();
+            }
+            if (openHousekeeping != null) {
+                openHousekeeping.close();
+            }
+            CommodityEventSink events = AbstractCommodity.getEventSink();
+            if (events instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) events).close();
+                } catch (Exception e) {
+                    System.err.println("Failed to close the commodity events: " + e);
+                }
+            }
+            if (openStorage != null) {
+                try {
+                    openStorage.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }));
     }
 }
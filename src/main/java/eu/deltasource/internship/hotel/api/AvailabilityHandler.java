@@ -0,0 +1,48 @@
+package eu.deltasource.internship.hotel.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import eu.deltasource.internship.hotel.domain.Hotel;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * GET /availability?from=2019-08-01&amp;to=2019-08-03&amp;numberOfPeople=2
+ * returns the ids of the free rooms, which fit the people, as {"roomIds": [...]}.
+ * <p>
+ * GET /availability?roomId=1&amp;from=2019-08-01&amp;to=2019-08-03
+ * returns {"roomId": 1, "available": true} for a single room.
+ */
+class AvailabilityHandler extends JsonHandler {
+
+    AvailabilityHandler(Hotel hotel) {
+        super(hotel, "/availability");
+    }
+
+    @Override
+    JsonWriter handle(HttpExchange exchange, String method, Integer id) throws IOException {
+        if (id != null || !"GET".equals(method)) {
+            return methodNotAllowed(exchange);
+        }
+        Map<String, String> query = readQuery(exchange);
+        LocalDate from = requireDate(query, "from");
+        LocalDate to = requireDate(query, "to");
+        JsonWriter writer;
+        if (query.containsKey("roomId")) {
+            int roomId = requireInt(query, "roomId");
+            boolean available = hotel.isRoomAvailable(roomId, from, to);
+            writer = json(exchange, OK);
+            writer.beginObject().name("roomId").value(roomId).name("available").value(available).endObject();
+        } else {
+            int[] roomIds = hotel.findAvailableRoomIds(from, to, requireInt(query, "numberOfPeople"));
+            writer = json(exchange, OK);
+            writer.beginObject().name("roomIds").beginArray();
+            for (int roomId : roomIds) {
+                writer.value(roomId);
+            }
+            writer.endArray().endObject();
+        }
+        return writer;
+    }
+}
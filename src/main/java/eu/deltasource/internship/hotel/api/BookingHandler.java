@@ -0,0 +1,64 @@
+package eu.deltasource.internship.hotel.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Hotel;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * GET, POST /bookings and GET, PUT, DELETE /bookings/{id}
+ * <p>
+ * A booking is made with {"guestId": 1, "roomId": 2, "numberOfPeople": 2,
+ * "from": "2019-08-01", "to": "2019-08-03"}, only its dates can be changed
+ * with PUT and DELETE cancels it.
+ * <p>
+ * GET /bookings?guestId=1 returns the bookings of the guest ordered by arrival date.
+ */
+class BookingHandler extends JsonHandler {
+
+    BookingHandler(Hotel hotel) {
+        super(hotel, "/bookings");
+    }
+
+    @Override
+    JsonWriter handle(HttpExchange exchange, String method, Integer id) throws IOException {
+        JsonWriter writer;
+        if (id == null && "GET".equals(method)) {
+            Map<String, String> query = readQuery(exchange);
+            Iterator<Booking> bookings;
+            if (query.containsKey("guestId")) {
+                bookings = hotel.findBookingsByGuestId(requireInt(query, "guestId")).iterator();
+            } else if (query.containsKey("limit")) {
+                bookings = hotel.findBookings(optionalInt(query, "afterId", 0), requireInt(query, "limit")).iterator();
+            } else {
+                bookings = hotel.streamBookings().iterator();
+            }
+            writer = json(exchange, OK);
+            HotelJson.writeBookings(writer, bookings);
+        } else if (id == null && "POST".equals(method)) {
+            Map<String, String> body = readBody(exchange);
+            Booking booking = hotel.book(requireInt(body, "guestId"), requireInt(body, "roomId"),
+                    requireInt(body, "numberOfPeople"), requireDate(body, "from"), requireDate(body, "to"));
+            writer = json(exchange, CREATED);
+            HotelJson.writeBooking(writer, booking);
+        } else if (id != null && "GET".equals(method)) {
+            Booking booking = hotel.getBookingById(id);
+            writer = json(exchange, OK);
+            HotelJson.writeBooking(writer, booking);
+        } else if (id != null && "PUT".equals(method)) {
+            Map<String, String> body = readBody(exchange);
+            Booking booking = hotel.updateBookingDates(id, requireDate(body, "from"), requireDate(body, "to"));
+            writer = json(exchange, OK);
+            HotelJson.writeBooking(writer, booking);
+        } else if (id != null && "DELETE".equals(method)) {
+            hotel.cancelBooking(id);
+            writer = empty(exchange);
+        } else {
+            writer = methodNotAllowed(exchange);
+        }
+        return writer;
+    }
+}
@@ -0,0 +1,72 @@
+package eu.deltasource.internship.hotel.api;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How the requests to the services are run.
+ * <p>
+ * A request only waits on {@link java.util.concurrent.locks.Lock}s and
+ * their conditions: the id locks of the repositories and the write-ahead
+ * log, while it is forced. The monitors left on the request path guard
+ * short work in memory, like the dates of a room in the booking index,
+ * so a virtual thread waiting for the disk gives its carrier thread back
+ * to the other requests. Snapshots are written inside the monitor of
+ * the storage, but on its own scheduler thread, never by a request.
+ */
+public enum ExecutionMode {
+
+    /**
+     * A bounded pool of platform threads. Requests wait
+     * in the queue of the pool while all threads are busy.
+     */
+    PLATFORM,
+
+    /**
+     * A new virtual thread for every request. Needs Java 21 or later
+     * at runtime, it is looked up by reflection, as the project
+     * is still compiled for Java 1.8.
+     */
+    VIRTUAL;
+
+    /**
+     * Creates the executor of the mode
+     *
+     * @param platformThreads the size of the pool of {@link #PLATFORM}
+     * @throws IllegalStateException if virtual threads are not supported by the running Java
+     */
+    public ExecutorService newExecutor(int platformThreads) {
+        if (this == PLATFORM) {
+            return Executors.newFixedThreadPool(platformThreads, new NamedThreadFactory("hotel-request-"));
+        }
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, running on "
+                    + System.getProperty("java.version"), e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Virtual threads are not available", e.getCause());
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable task) {
+            return new Thread(task, prefix + count.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package eu.deltasource.internship.hotel.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import eu.deltasource.internship.hotel.domain.Gender;
+import eu.deltasource.internship.hotel.domain.Guest;
+import eu.deltasource.internship.hotel.domain.Hotel;
+import eu.deltasource.internship.hotel.exception.BadRequestException;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * GET, POST /guests and GET, PUT, DELETE /guests/{id}
+ * <p>
+ * A guest is sent as {"firstName": "...", "lastName": "...", "gender": "FEMALE"}
+ * <p>
+ * GET /guests?lastName=ily finds the guests by the start of their last name,
+ * with &amp;firstName=ta by their last name and the start of their first name.
+ */
+class GuestHandler extends JsonHandler {
+
+    /**
+     * Number of guests found by a search without a limit
+     */
+    private static final int SEARCH_LIMIT = 100;
+
+    GuestHandler(Hotel hotel) {
+        super(hotel, "/guests");
+    }
+
+    @Override
+    JsonWriter handle(HttpExchange exchange, String method, Integer id) throws IOException {
+        JsonWriter writer;
+        if (id == null && "GET".equals(method)) {
+            Iterator<Guest> guests = findGuests(readQuery(exchange));
+            writer = json(exchange, OK);
+            HotelJson.writeGuests(writer, guests);
+        } else if (id == null && "POST".equals(method)) {
+            Guest guest = hotel.saveGuest(readGuest(0, readBody(exchange)));
+            writer = json(exchange, CREATED);
+            HotelJson.writeGuest(writer, guest);
+        } else if (id != null && "GET".equals(method)) {
+            Guest guest = hotel.getGuestById(id);
+            writer = json(exchange, OK);
+            HotelJson.writeGuest(writer, guest);
+        } else if (id != null && "PUT".equals(method)) {
+            Guest guest = hotel.updateGuest(readGuest(id, readBody(exchange)));
+            writer = json(exchange, OK);
+            HotelJson.writeGuest(writer, guest);
+        } else if (id != null && "DELETE".equals(method)) {
+            hotel.deleteGuestById(id);
+            writer = empty(exchange);
+        } else {
+            writer = methodNotAllowed(exchange);
+        }
+        return writer;
+    }
+
+    /**
+     * Searches the guests by ?lastName=prefix or ?lastName=name&amp;firstName=prefix,
+     * otherwise returns a page or all guests
+     */
+    private Iterator<Guest> findGuests(Map<String, String> query) {
+        if (query.containsKey("lastName")) {
+            int limit = optionalInt(query, "limit", SEARCH_LIMIT);
+            return query.containsKey("firstName")
+                    ? hotel.findGuestsByName(query.get("lastName"), query.get("firstName"), limit).iterator()
+                    : hotel.findGuestsByLastName(query.get("lastName"), limit).iterator();
+        } else if (query.containsKey("limit")) {
+            return hotel.findGuests(optionalInt(query, "afterId", 0), requireInt(query, "limit")).iterator();
+        }
+        return hotel.streamGuests().iterator();
+    }
+
+    private static Guest readGuest(int id, Map<String, String> body) {
+        Gender gender;
+        try {
+            gender = Gender.valueOf(requireString(body, "gender"));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unknown gender " + body.get("gender") + "!");
+        }
+        return new Guest(id, body.get("firstName"), body.get("lastName"), gender);
+    }
+}
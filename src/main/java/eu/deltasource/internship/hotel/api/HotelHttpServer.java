@@ -0,0 +1,70 @@
+package eu.deltasource.internship.hotel.api;
+
+import com.sun.net.httpserver.HttpServer;
+import eu.deltasource.internship.hotel.domain.Hotel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * Embedded HTTP server, which maps JSON requests to the {@link Hotel}:
+ * <ul>
+ * <li>/rooms and /rooms/{id}</li>
+ * <li>/guests and /guests/{id}</li>
+ * <li>/bookings and /bookings/{id}</li>
+ * <li>/availability</li>
+ * <li>/occupancy</li>
+ * <li>/metrics, as plain text</li>
+ * </ul>
+ * The JDK server keeps connections alive and reads pipelined requests
+ * of a connection one after the other. Requests are handled on the
+ * given executor, responses are streamed without building them in memory.
+ */
+public class HotelHttpServer {
+
+    private static final int BACKLOG = 1024;
+
+    /**
+     * The JDK server sends the headers and the body of a response in separate
+     * packets. With Nagle's algorithm the body then waits for the delayed
+     * acknowledgement of the headers, about 40 ms on every keep-alive request.
+     */
+    private static final String NO_DELAY = "sun.net.httpserver.nodelay";
+
+    private final HttpServer server;
+
+    public HotelHttpServer(Hotel hotel, InetSocketAddress address, Executor executor) throws IOException {
+        if (System.getProperty(NO_DELAY) == null) {
+            System.setProperty(NO_DELAY, "true");
+        }
+        server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/rooms", new RoomHandler(hotel));
+        server.createContext("/guests", new GuestHandler(hotel));
+        server.createContext("/bookings", new BookingHandler(hotel));
+        server.createContext("/availability", new AvailabilityHandler(hotel));
+        server.createContext("/occupancy", new OccupancyHandler(hotel));
+        server.createContext("/metrics", new MetricsHandler());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the address the server listens on,
+     * with the chosen port if it was started on port 0.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests and waits at most
+     * the given number of seconds for running ones.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+    }
+}
@@ -0,0 +1,82 @@
+package eu.deltasource.internship.hotel.api;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Guest;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.domain.commodity.AbstractCommodity;
+import eu.deltasource.internship.hotel.domain.commodity.Bed;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Writes the domain objects as JSON, straight from their getters.
+ * Collections are written from iterators, so a lazy stream
+ * of a repository is sent without collecting it first.
+ */
+final class HotelJson {
+
+    private HotelJson() {
+    }
+
+    static void writeRoom(JsonWriter writer, Room room) throws IOException {
+        writer.beginObject()
+                .name("roomId").value(room.getRoomId())
+                .name("capacity").value(room.getRoomCapacity())
+                .name("commodities").beginArray();
+        for (AbstractCommodity commodity : room.getCommodities()) {
+            writer.beginObject()
+                    .name("inventoryId").value(commodity.getInventoryId())
+                    .name("type").value(commodity.getClass().getSimpleName().toUpperCase());
+            if (commodity instanceof Bed) {
+                writer.name("bedType").value(((Bed) commodity).getBedType().name());
+            }
+            writer.endObject();
+        }
+        writer.endArray().endObject();
+    }
+
+    static void writeGuest(JsonWriter writer, Guest guest) throws IOException {
+        writer.beginObject()
+                .name("guestId").value(guest.getGuestId())
+                .name("firstName").value(guest.getFirstName())
+                .name("lastName").value(guest.getLastName())
+                .name("gender").value(guest.getGender().name())
+                .endObject();
+    }
+
+    static void writeBooking(JsonWriter writer, Booking booking) throws IOException {
+        writer.beginObject()
+                .name("bookingId").value(booking.getBookingId())
+                .name("guestId").value(booking.getGuestId())
+                .name("roomId").value(booking.getRoomId())
+                .name("numberOfPeople").value(booking.getNumberOfPeople())
+                .name("from").value(booking.getFrom().toString())
+                .name("to").value(booking.getTo().toString())
+                .endObject();
+    }
+
+    static void writeRooms(JsonWriter writer, Iterator<Room> rooms) throws IOException {
+        writer.beginArray();
+        while (rooms.hasNext()) {
+            writeRoom(writer, rooms.next());
+        }
+        writer.endArray();
+    }
+
+    static void writeGuests(JsonWriter writer, Iterator<Guest> guests) throws IOException {
+        writer.beginArray();
+        while (guests.hasNext()) {
+            writeGuest(writer, guests.next());
+        }
+        writer.endArray();
+    }
+
+    static void writeBookings(JsonWriter writer, Iterator<Booking> bookings) throws IOException {
+        writer.beginArray();
+        while (bookings.hasNext()) {
+            writeBooking(writer, bookings.next());
+        }
+        writer.endArray();
+    }
+}
@@ -0,0 +1,224 @@
+package eu.deltasource.internship.hotel.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import eu.deltasource.internship.hotel.domain.Hotel;
+import eu.deltasource.internship.hotel.exception.BadRequestException;
+import eu.deltasource.internship.hotel.exception.BookingOverlapException;
+import eu.deltasource.internship.hotel.exception.FailedInitializationException;
+import eu.deltasource.internship.hotel.exception.ItemNotFoundException;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base of the handlers of one resource, mapped to
+ * /resource for the whole collection and /resource/{id}
+ * for a single item.
+ * <p>
+ * GET of a collection streams all its items ordered by id. With
+ * ?limit=n&amp;afterId=id it returns only the next page of at most n items
+ * with greater ids, the id of the last item is the afterId of the next page.
+ * <p>
+ * Exceptions of the services are turned into error responses:
+ * <ul>
+ * <li>{@link ItemNotFoundException} - 404 Not Found</li>
+ * <li>{@link BookingOverlapException} - 409 Conflict</li>
+ * <li>{@link FailedInitializationException} and {@link BadRequestException} - 400 Bad Request</li>
+ * <li>any other exception - 500 Internal Server Error, with a generic message, the exception is logged</li>
+ * </ul>
+ * A response, whose headers were sent already, cannot be replaced by an error,
+ * a failure while streaming it drops the connection instead.
+ */
+abstract class JsonHandler implements HttpHandler {
+
+    static final int OK = 200;
+    static final int CREATED = 201;
+    static final int NO_CONTENT = 204;
+    static final int BAD_REQUEST = 400;
+    static final int NOT_FOUND = 404;
+    static final int METHOD_NOT_ALLOWED = 405;
+    static final int CONFLICT = 409;
+    static final int INTERNAL_ERROR = 500;
+
+    /**
+     * The writer of the response the current thread is answering,
+     * so a failure after its headers were sent is not answered again
+     */
+    private static final ThreadLocal<JsonWriter> RESPONSE = new ThreadLocal<>();
+
+    protected final Hotel hotel;
+
+    private final String path;
+
+    /**
+     * @param path the path of the collection, for example /rooms
+     */
+    JsonHandler(Hotel hotel, String path) {
+        this.hotel = hotel;
+        this.path = path;
+    }
+
+    @Override
+    public final void handle(HttpExchange exchange) throws IOException {
+        JsonWriter writer;
+        try {
+            String requestPath = exchange.getRequestURI().getRawPath();
+            Integer id = null;
+            if (!requestPath.equals(path) && !requestPath.equals(path + "/")) {
+                id = readId(requestPath);
+            }
+            if (id != null && id <= 0) {
+                writer = error(exchange, NOT_FOUND, "No such resource!");
+            } else {
+                writer = handle(exchange, exchange.getRequestMethod(), id);
+            }
+        } catch (RuntimeException e) {
+            writer = error(exchange, e);
+        } finally {
+            RESPONSE.remove();
+        }
+        try {
+            writer.close();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers the request and returns the writer of the response,
+     * which is closed by the caller. An exception is answered with an
+     * error only until the first part of the response was sent.
+     *
+     * @param id the id in the path, or null for the whole collection
+     */
+    abstract JsonWriter handle(HttpExchange exchange, String method, Integer id) throws IOException;
+
+    /**
+     * Returns the id of the item in the path, or 0 if the path is not
+     * an item. The server only passes paths starting with the collection.
+     */
+    private int readId(String requestPath) {
+        String rest = requestPath.substring(path.length());
+        if (!rest.startsWith("/")) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(rest.substring(1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static JsonWriter json(HttpExchange exchange, int status) {
+        JsonWriter writer = new JsonWriter(exchange, status);
+        RESPONSE.set(writer);
+        return writer;
+    }
+
+    static JsonWriter empty(HttpExchange exchange) {
+        return json(exchange, NO_CONTENT);
+    }
+
+    static JsonWriter methodNotAllowed(HttpExchange exchange) throws IOException {
+        return error(exchange, METHOD_NOT_ALLOWED, "Method " + exchange.getRequestMethod() + " is not allowed!");
+    }
+
+    /**
+     * Returns a writer with the error response for the exception.
+     * If the headers of the response were sent already, the exchange
+     * is failed instead, so the server drops the connection and the
+     * client sees the response cut off. Closing it would end a chunked
+     * body, as if the response were complete.
+     */
+    private static JsonWriter error(HttpExchange exchange, RuntimeException e) throws IOException {
+        JsonWriter started = RESPONSE.get();
+        if (started != null && started.isCommitted()) {
+            log("Sending the response to", exchange, e);
+            throw new IOException("The response was cut off", e);
+        } else if (e instanceof ItemNotFoundException) {
+            return error(exchange, NOT_FOUND, e.getMessage());
+        } else if (e instanceof BookingOverlapException) {
+            return error(exchange, CONFLICT, e.getMessage());
+        } else if (e instanceof FailedInitializationException || e instanceof BadRequestException) {
+            return error(exchange, BAD_REQUEST, e.getMessage());
+        }
+        // the message of an unexpected exception may show internals, so it is only logged
+        log("Answering", exchange, e);
+        return error(exchange, INTERNAL_ERROR, "Internal server error!");
+    }
+
+    private static void log(String action, HttpExchange exchange, RuntimeException e) {
+        System.err.println(action + " " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + " failed:");
+        e.printStackTrace();
+    }
+
+    /**
+     * Returns a writer with the error
+     */
+    private static JsonWriter error(HttpExchange exchange, int status, String message) throws IOException {
+        JsonWriter writer = new JsonWriter(exchange, status);
+        writer.beginObject().name("error").value(message).endObject();
+        return writer;
+    }
+
+    static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        return JsonObjectReader.read(exchange.getRequestBody());
+    }
+
+    static Map<String, String> readQuery(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        try {
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                            URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            throw new BadRequestException("Invalid query " + query);
+        }
+        return parameters;
+    }
+
+    static String requireString(Map<String, String> values, String name) {
+        String value = values.get(name);
+        if (value == null) {
+            throw new BadRequestException("Missing " + name + "!");
+        }
+        return value;
+    }
+
+    static int requireInt(Map<String, String> values, String name) {
+        try {
+            return Integer.parseInt(requireString(values, name));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(name + " is not a number!");
+        }
+    }
+
+    /**
+     * Returns the number with the given name, or the default value if it is missing
+     */
+    static int optionalInt(Map<String, String> values, String name, int defaultValue) {
+        return values.containsKey(name) ? requireInt(values, name) : defaultValue;
+    }
+
+    static LocalDate requireDate(Map<String, String> values, String name) {
+        try {
+            return LocalDate.parse(requireString(values, name));
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(name + " is not a date like 2019-07-28!");
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package eu.deltasource.internship.hotel.api;
+
+import eu.deltasource.internship.hotel.exception.BadRequestException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a request body holding a single flat JSON object, whose members
+ * are strings, numbers, booleans or null, into a map of their texts.
+ * Nested objects and arrays are not needed by the API and are rejected.
+ */
+final class JsonObjectReader {
+
+    /**
+     * Larger bodies are rejected, as no request of the API needs them
+     */
+    private static final int MAX_BODY_SIZE = 64 * 1024;
+
+    private final String text;
+
+    private int position;
+
+    private JsonObjectReader(String text) {
+        this.text = text;
+    }
+
+    static Map<String, String> read(InputStream body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        byte[] chunk = new byte[1024];
+        int read;
+        while ((read = body.read(chunk)) != -1) {
+            bytes.write(chunk, 0, read);
+            if (bytes.size() > MAX_BODY_SIZE) {
+                throw new BadRequestException("The request body is too large!");
+            }
+        }
+        return new JsonObjectReader(new String(bytes.toByteArray(), StandardCharsets.UTF_8)).readObject();
+    }
+
+    private Map<String, String> readObject() {
+        Map<String, String> members = new HashMap<>();
+        expect('{');
+        if (peek() == '}') {
+            position++;
+        } else {
+            do {
+                String name = readString();
+                expect(':');
+                members.put(name, readValue());
+            } while (next() == ',');
+            position--;
+            expect('}');
+        }
+        if (peek() != 0) {
+            throw new BadRequestException("Unexpected content after the JSON object!");
+        }
+        return members;
+    }
+
+    private String readValue() {
+        char c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        int start = position;
+        while (position < text.length() && "-+.0123456789eEtruefalsn".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        String value = text.substring(start, position);
+        if (value.isEmpty()) {
+            throw new BadRequestException("Expected a string, number, boolean or null at " + start + "!");
+        }
+        return "null".equals(value) ? null : value;
+    }
+
+    private String readString() {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            if (position >= text.length()) {
+                throw new BadRequestException("Unterminated string!");
+            }
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            } else if (c != '\\') {
+                value.append(c);
+            } else if (position >= text.length()) {
+                throw new BadRequestException("Unterminated string!");
+            } else {
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw new BadRequestException("Invalid unicode escape!");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new BadRequestException("Invalid unicode escape!");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+        }
+    }
+
+    private void expect(char expected) {
+        if (next() != expected) {
+            throw new BadRequestException("Expected '" + expected + "' at " + (position - 1) + "!");
+        }
+    }
+
+    /**
+     * Returns the next character, which is not white space, and moves past it
+     */
+    private char next() {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    /**
+     * Returns the next character, which is not white space,
+     * or 0 at the end of the text.
+     */
+    private char peek() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+}
@@ -0,0 +1,201 @@
+package eu.deltasource.internship.hotel.api;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a JSON response straight into the body of an exchange,
+ * without building the document in memory first.
+ * <p>
+ * The response is collected in a fixed buffer. If it fits, it is
+ * sent with its length when the writer is closed, otherwise the
+ * headers are sent when the buffer first fills up and the rest is
+ * streamed with chunked encoding.
+ * <p>
+ * Commas between values are added by the writer,
+ * the caller only opens and closes objects and arrays.
+ */
+class JsonWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final HttpExchange exchange;
+
+    private final int status;
+
+    private final byte[] buffer;
+
+    private int count;
+
+    private OutputStream body;
+
+    /**
+     * True if the next value in the current object or array needs a comma before it
+     */
+    private boolean separate;
+
+    JsonWriter(HttpExchange exchange, int status) {
+        this.exchange = exchange;
+        this.status = status;
+        buffer = new byte[BUFFER_SIZE];
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    }
+
+    /**
+     * Returns true if the headers were already sent,
+     * after which no other response can be sent.
+     */
+    boolean isCommitted() {
+        return body != null;
+    }
+
+    JsonWriter beginObject() throws IOException {
+        beforeValue();
+        write('{');
+        separate = false;
+        return this;
+    }
+
+    JsonWriter endObject() throws IOException {
+        write('}');
+        separate = true;
+        return this;
+    }
+
+    JsonWriter beginArray() throws IOException {
+        beforeValue();
+        write('[');
+        separate = false;
+        return this;
+    }
+
+    JsonWriter endArray() throws IOException {
+        write(']');
+        separate = true;
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of the current object
+     */
+    JsonWriter name(String name) throws IOException {
+        beforeValue();
+        writeString(name);
+        write(':');
+        separate = false;
+        return this;
+    }
+
+    JsonWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            writeAscii("null");
+        } else {
+            writeString(value);
+        }
+        separate = true;
+        return this;
+    }
+
+    JsonWriter value(long value) throws IOException {
+        beforeValue();
+        writeAscii(Long.toString(value));
+        separate = true;
+        return this;
+    }
+
+    JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        separate = true;
+        return this;
+    }
+
+    /**
+     * Sends what is left of the response and ends the exchange
+     */
+    @Override
+    public void close() throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, count == 0 ? -1 : count);
+            body = exchange.getResponseBody();
+        }
+        body.write(buffer, 0, count);
+        count = 0;
+        body.close();
+    }
+
+    private void beforeValue() throws IOException {
+        if (separate) {
+            write(',');
+            separate = false;
+        }
+    }
+
+    private void writeAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            write(text.charAt(i));
+        }
+    }
+
+    /**
+     * Writes the string in quotes, escaping it and encoding it as UTF-8
+     */
+    private void writeString(String text) throws IOException {
+        write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                write('\\');
+                write(c);
+            } else if (c < 0x20) {
+                write('\\');
+                write('u');
+                write('0');
+                write('0');
+                write(HEX[c >> 4]);
+                write(HEX[c & 0xF]);
+            } else if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                write(0xC0 | c >> 6);
+                write(0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                write(0xF0 | codePoint >> 18);
+                write(0x80 | codePoint >> 12 & 0x3F);
+                write(0x80 | codePoint >> 6 & 0x3F);
+                write(0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                write('?');
+            } else {
+                write(0xE0 | c >> 12);
+                write(0x80 | c >> 6 & 0x3F);
+                write(0x80 | c & 0x3F);
+            }
+        }
+        write('"');
+    }
+
+    private void write(int b) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, 0);
+            body = exchange.getResponseBody();
+        }
+        body.write(buffer, 0, count);
+        count = 0;
+    }
+}
@@ -0,0 +1,39 @@
+package eu.deltasource.internship.hotel.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import eu.deltasource.internship.hotel.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GET /metrics returns all {@link Metrics} in the text format of Prometheus,
+ * so they can be scraped without JMX. The body is streamed in chunks.
+ */
+class MetricsHandler implements HttpHandler {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                exchange.sendResponseHeaders(JsonHandler.METHOD_NOT_ALLOWED, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(JsonHandler.OK, 0);
+            OutputStream body = exchange.getResponseBody();
+            try (Writer writer = new OutputStreamWriter(body, StandardCharsets.UTF_8)) {
+                Metrics.writeText(writer);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
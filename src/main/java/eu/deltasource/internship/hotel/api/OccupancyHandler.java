@@ -0,0 +1,61 @@
+package eu.deltasource.internship.hotel.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import eu.deltasource.internship.hotel.domain.Hotel;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * GET /occupancy?night=2019-08-01 returns the occupied rooms and beds
+ * and the people staying in that night, as {"night": "2019-08-01",
+ * "rooms": 12, "beds": 20, "people": 18}.
+ * <p>
+ * GET /occupancy?from=2019-08-01&amp;to=2019-09-01 returns the sums over
+ * the nights from (inclusive) to (exclusive) as {"from": ..., "to": ...,
+ * "roomNights": 300, "bedNights": 512, "peopleNights": 470}.
+ */
+class OccupancyHandler extends JsonHandler {
+
+    OccupancyHandler(Hotel hotel) {
+        super(hotel, "/occupancy");
+    }
+
+    @Override
+    JsonWriter handle(HttpExchange exchange, String method, Integer id) throws IOException {
+        if (id != null || !"GET".equals(method)) {
+            return methodNotAllowed(exchange);
+        }
+        Map<String, String> query = readQuery(exchange);
+        JsonWriter writer;
+        if (query.containsKey("night")) {
+            LocalDate night = requireDate(query, "night");
+            long rooms = hotel.getOccupiedRooms(night);
+            long beds = hotel.getOccupiedBeds(night);
+            long people = hotel.getPeople(night);
+            writer = json(exchange, OK);
+            writer.beginObject()
+                    .name("night").value(night.toString())
+                    .name("rooms").value(rooms)
+                    .name("beds").value(beds)
+                    .name("people").value(people)
+                    .endObject();
+        } else {
+            LocalDate from = requireDate(query, "from");
+            LocalDate to = requireDate(query, "to");
+            long roomNights = hotel.getRoomNights(from, to);
+            long bedNights = hotel.getBedNights(from, to);
+            long peopleNights = hotel.getPeopleNights(from, to);
+            writer = json(exchange, OK);
+            writer.beginObject()
+                    .name("from").value(from.toString())
+                    .name("to").value(to.toString())
+                    .name("roomNights").value(roomNights)
+                    .name("bedNights").value(bedNights)
+                    .name("peopleNights").value(peopleNights)
+                    .endObject();
+        }
+        return writer;
+    }
+}
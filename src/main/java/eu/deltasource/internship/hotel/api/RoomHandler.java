@@ -0,0 +1,77 @@
+package eu.deltasource.internship.hotel.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import eu.deltasource.internship.hotel.domain.Hotel;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.domain.commodity.AbstractCommodity;
+import eu.deltasource.internship.hotel.domain.commodity.Bed;
+import eu.deltasource.internship.hotel.domain.commodity.BedType;
+import eu.deltasource.internship.hotel.domain.commodity.Shower;
+import eu.deltasource.internship.hotel.domain.commodity.Toilet;
+import eu.deltasource.internship.hotel.exception.BadRequestException;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GET, POST /rooms and GET, DELETE /rooms/{id}
+ * <p>
+ * A new room is described by its beds, showers and toilets:
+ * {"beds": "DOUBLE,SINGLE", "showers": 1, "toilets": 1}
+ */
+class RoomHandler extends JsonHandler {
+
+    RoomHandler(Hotel hotel) {
+        super(hotel, "/rooms");
+    }
+
+    @Override
+    JsonWriter handle(HttpExchange exchange, String method, Integer id) throws IOException {
+        JsonWriter writer;
+        if (id == null && "GET".equals(method)) {
+            Map<String, String> query = readQuery(exchange);
+            Iterator<Room> rooms = query.containsKey("limit")
+                    ? hotel.findRooms(optionalInt(query, "afterId", 0), requireInt(query, "limit")).iterator()
+                    : hotel.streamRooms().iterator();
+            writer = json(exchange, OK);
+            HotelJson.writeRooms(writer, rooms);
+        } else if (id == null && "POST".equals(method)) {
+            Room room = hotel.saveRoom(new Room(0, readCommodities(readBody(exchange))));
+            writer = json(exchange, CREATED);
+            HotelJson.writeRoom(writer, room);
+        } else if (id != null && "GET".equals(method)) {
+            Room room = hotel.getRoomById(id);
+            writer = json(exchange, OK);
+            HotelJson.writeRoom(writer, room);
+        } else if (id != null && "DELETE".equals(method)) {
+            hotel.deleteRoomById(id);
+            writer = empty(exchange);
+        } else {
+            writer = methodNotAllowed(exchange);
+        }
+        return writer;
+    }
+
+    private static Set<AbstractCommodity> readCommodities(Map<String, String> body) {
+        Set<AbstractCommodity> commodities = new HashSet<>();
+        for (String bedType : requireString(body, "beds").split(",")) {
+            try {
+                commodities.add(new Bed(BedType.valueOf(bedType.trim())));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Unknown bed type " + bedType + "!");
+            }
+        }
+        int showers = body.containsKey("showers") ? requireInt(body, "showers") : 0;
+        for (int i = 0; i < showers; i++) {
+            commodities.add(new Shower());
+        }
+        int toilets = body.containsKey("toilets") ? requireInt(body, "toilets") : 0;
+        for (int i = 0; i < toilets; i++) {
+            commodities.add(new Toilet());
+        }
+        return commodities;
+    }
+}
@@ -18,27 +18,69 @@ public class Booking {
     private LocalDate from;
     private LocalDate to;
 
+    /**
+     * Set for the bookings stored in a repository, which are never changed
+     */
+    private boolean readOnly;
+
     public Booking(int bookingId, int guestId, int roomId, int numberOfPeople, LocalDate from, LocalDate to) {
+        this(bookingId, guestId, roomId, numberOfPeople);
+        setBookingDates(from, to);
+    }
+
+    /**
+     * Creates a booking, which can be changed,
+     * with the values of the given one.
+     * <p>
+     * The dates are copied as they are, because they were
+     * checked when the given booking was created.
+     */
+    public Booking(Booking booking) {
+        this(booking.bookingId, booking.guestId, booking.roomId, booking.numberOfPeople);
+        this.from = booking.from;
+        this.to = booking.to;
+    }
+
+    private Booking(int bookingId, int guestId, int roomId, int numberOfPeople) {
         this.bookingId = bookingId;
         this.guestId = guestId;
         this.roomId = roomId;
         this.numberOfPeople = numberOfPeople;
-        setBookingDates(from, to);
     }
 
     /**
-     * This constructor should be used
-     * only by the repository.
+     * Recreates a booking, which was already stored once
+     * or whose dates were already checked, without
+     * checking its dates against today.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk or importing checked records.
      */
-    public Booking(Booking booking) {
-        this.bookingId = booking.bookingId;
-        this.guestId = booking.guestId;
-        this.roomId = booking.roomId;
-        this.numberOfPeople = booking.numberOfPeople;
-        setBookingDates(booking.from, booking.to);
+    public static Booking restore(int bookingId, int guestId, int roomId, int numberOfPeople,
+                                  LocalDate from, LocalDate to) {
+        Booking booking = new Booking(bookingId, guestId, roomId, numberOfPeople);
+        booking.from = from;
+        booking.to = to;
+        return booking;
+    }
+
+    /**
+     * Makes the booking read-only and returns it.
+     * <p>
+     * This method should be used only by the repository,
+     * which hands out its stored bookings without copying them.
+     */
+    public Booking makeReadOnly() {
+        readOnly = true;
+        return this;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
     }
 
     public void setBookingDates(LocalDate from, LocalDate to) {
+        checkNotReadOnly();
         try {
             if (from.isAfter(to) || to.equals(from) || from.isBefore(LocalDate.now())) {
                 throw new FailedInitializationException("Invalid dates given!");
@@ -88,4 +130,10 @@ public class Booking {
     public int hashCode() {
         return bookingId;
     }
+
+    private void checkNotReadOnly() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Booking " + bookingId + " is read-only, copy it to change it!");
+        }
+    }
 }
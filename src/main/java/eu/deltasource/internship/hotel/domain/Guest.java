@@ -12,6 +12,11 @@ public class Guest {
     private String firstName;
     private String lastName;
 
+    /**
+     * Set for the guests stored in a repository, which are never changed
+     */
+    private boolean readOnly;
+
     public Guest(int guestId, String firstName, String lastName, Gender gender) {
         this.guestId = guestId;
         this.gender = gender;
@@ -19,13 +24,32 @@ public class Guest {
     }
 
     /**
-     * This constructor should be used
-     * only by the repository.
+     * Creates a guest, which can be changed,
+     * with the values of the given one.
+     * <p>
+     * The names are copied as they are, because they were
+     * checked when the given guest was created.
      */
     public Guest(Guest guest) {
         guestId = guest.guestId;
         gender = guest.gender;
-        initializeNamesAndNullChecks(guest.firstName, guest.lastName);
+        firstName = guest.firstName;
+        lastName = guest.lastName;
+    }
+
+    /**
+     * Makes the guest read-only and returns it.
+     * <p>
+     * This method should be used only by the repository,
+     * which hands out its stored guests without copying them.
+     */
+    public Guest makeReadOnly() {
+        readOnly = true;
+        return this;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
     }
 
     private void initializeNamesAndNullChecks(String firstName, String lastName) {
@@ -71,10 +95,18 @@ public class Guest {
     }
 
     public void changeFirstAndLastNames(String firstName, String lastName) {
+        checkNotReadOnly();
         initializeNamesAndNullChecks(firstName, lastName);
     }
 
     public void changeGender(Gender gender) {
+        checkNotReadOnly();
         this.gender = gender;
     }
+
+    private void checkNotReadOnly() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Guest " + guestId + " is read-only, copy it to change it!");
+        }
+    }
 }
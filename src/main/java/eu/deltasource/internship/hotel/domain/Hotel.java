@@ -1,16 +1,25 @@
 package eu.deltasource.internship.hotel.domain;
 
+import eu.deltasource.internship.hotel.imports.BookingRecord;
+import eu.deltasource.internship.hotel.imports.GuestRecord;
+import eu.deltasource.internship.hotel.imports.ImportResult;
 import eu.deltasource.internship.hotel.service.BookingService;
 import eu.deltasource.internship.hotel.service.GuestService;
+import eu.deltasource.internship.hotel.service.OccupancyService;
 import eu.deltasource.internship.hotel.service.RoomService;
 
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
 /**
  * Right now you can imagine the Hotel as an API Layer,
  * where you can get REST requests and map them to the
  * corresponding services.
  *
- * P.S. Don't mind this layer for now, it serves only as an example.
- * REST Controllers should always be separated.
+ * The REST controllers are kept separate in the api package
+ * and only call the methods of the Hotel.
  *
  * Created by Taner Ilyazov - Delta Source Bulgaria on 2019-07-28.
  */
@@ -22,12 +31,148 @@ public class Hotel {
 
     private final RoomService roomService;
 
+    private final OccupancyService occupancyService;
+
     /**
      * #thisIsAConstructor
      */
-    public Hotel(BookingService bookingService, GuestService guestService, RoomService roomService) {
+    public Hotel(BookingService bookingService, GuestService guestService, RoomService roomService,
+                 OccupancyService occupancyService) {
         this.bookingService = bookingService;
         this.guestService = guestService;
         this.roomService = roomService;
+        this.occupancyService = occupancyService;
+    }
+
+    public List<Room> findRooms() {
+        return roomService.findRooms();
+    }
+
+    public List<Room> findRooms(int afterId, int limit) {
+        return roomService.findRooms(afterId, limit);
+    }
+
+    public Stream<Room> streamRooms() {
+        return roomService.streamRooms();
+    }
+
+    public Room getRoomById(int id) {
+        return roomService.getRoomById(id);
+    }
+
+    public Room saveRoom(Room room) {
+        return roomService.saveRoom(room);
+    }
+
+    public boolean deleteRoomById(int id) {
+        return roomService.deleteRoomById(id);
+    }
+
+    public List<Guest> findGuests() {
+        return guestService.findGuests();
+    }
+
+    public List<Guest> findGuests(int afterId, int limit) {
+        return guestService.findGuests(afterId, limit);
+    }
+
+    public Stream<Guest> streamGuests() {
+        return guestService.streamGuests();
+    }
+
+    public List<Guest> findGuestsByLastName(String prefix, int limit) {
+        return guestService.findGuestsByLastName(prefix, limit);
+    }
+
+    public List<Guest> findGuestsByName(String lastName, String firstNamePrefix, int limit) {
+        return guestService.findGuestsByName(lastName, firstNamePrefix, limit);
+    }
+
+    public Guest getGuestById(int id) {
+        return guestService.getGuestById(id);
+    }
+
+    public Guest saveGuest(Guest guest) {
+        return guestService.saveGuest(guest);
+    }
+
+    public Guest updateGuest(Guest guest) {
+        return guestService.updateGuest(guest);
+    }
+
+    public boolean deleteGuestById(int id) {
+        return guestService.deleteGuestById(id);
+    }
+
+    public List<Booking> findBookings() {
+        return bookingService.findBookings();
+    }
+
+    public List<Booking> findBookings(int afterId, int limit) {
+        return bookingService.findBookings(afterId, limit);
+    }
+
+    public Stream<Booking> streamBookings() {
+        return bookingService.streamBookings();
+    }
+
+    public List<Booking> findBookingsByGuestId(int guestId) {
+        return bookingService.findBookingsByGuestId(guestId);
+    }
+
+    public Booking getBookingById(int id) {
+        return bookingService.getBookingById(id);
+    }
+
+    public Booking book(int guestId, int roomId, int numberOfPeople, LocalDate from, LocalDate to) {
+        return bookingService.book(guestId, roomId, numberOfPeople, from, to);
+    }
+
+    public Booking updateBookingDates(int bookingId, LocalDate from, LocalDate to) {
+        return bookingService.updateBookingDates(bookingId, from, to);
+    }
+
+    public boolean cancelBooking(int id) {
+        return bookingService.cancelBooking(id);
+    }
+
+    public boolean isRoomAvailable(int roomId, LocalDate from, LocalDate to) {
+        return bookingService.isRoomAvailable(roomId, from, to);
+    }
+
+    public int[] findAvailableRoomIds(LocalDate from, LocalDate to, int numberOfPeople) {
+        return bookingService.findAvailableRoomIds(from, to, numberOfPeople);
+    }
+
+    public long getOccupiedRooms(LocalDate night) {
+        return occupancyService.getOccupiedRooms(night);
+    }
+
+    public long getOccupiedBeds(LocalDate night) {
+        return occupancyService.getOccupiedBeds(night);
+    }
+
+    public long getPeople(LocalDate night) {
+        return occupancyService.getPeople(night);
+    }
+
+    public long getRoomNights(LocalDate from, LocalDate to) {
+        return occupancyService.getRoomNights(from, to);
+    }
+
+    public long getBedNights(LocalDate from, LocalDate to) {
+        return occupancyService.getBedNights(from, to);
+    }
+
+    public long getPeopleNights(LocalDate from, LocalDate to) {
+        return occupancyService.getPeopleNights(from, to);
+    }
+
+    public ImportResult importGuests(Iterator<GuestRecord> records) {
+        return guestService.importGuests(records);
+    }
+
+    public ImportResult importBookings(Iterator<BookingRecord> records) {
+        return bookingService.importBookings(records);
     }
 }
@@ -1,11 +1,10 @@
 package eu.deltasource.internship.hotel.domain;
 
 import eu.deltasource.internship.hotel.domain.commodity.AbstractCommodity;
-import eu.deltasource.internship.hotel.domain.commodity.Bed;
+import eu.deltasource.internship.hotel.domain.commodity.CommodityLayout;
+import eu.deltasource.internship.hotel.domain.commodity.CommoditySet;
 import eu.deltasource.internship.hotel.exception.FailedInitializationException;
 
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -16,17 +15,51 @@ public class Room {
     private static final int EMPTY_ROOM = 0;
 
     private int roomId;
-    private int roomCapacity;
-    private final Set<AbstractCommodity> commodities;
+
+    /**
+     * Interned, shared by all rooms with the same kinds of commodities
+     */
+    private CommodityLayout layout;
+
+    /**
+     * Never changed, updates replace the whole set,
+     * so copies of the room can share it.
+     */
+    private CommoditySet commodities;
+
+    /**
+     * Set for the rooms stored in a repository, which are never changed
+     */
+    private boolean readOnly;
 
     public Room(int roomId, Set<AbstractCommodity> commodities) {
         this.roomId = roomId;
-        this.commodities = new HashSet<>();
         updateCommodities(commodities);
     }
 
+    /**
+     * Creates a room, which can be changed, with the values of the
+     * given one. The commodities are shared, as they are never changed.
+     */
     public Room(Room room) {
-        this(room.roomId, room.getCommodities());
+        roomId = room.roomId;
+        layout = room.layout;
+        commodities = room.commodities;
+    }
+
+    /**
+     * Makes the room read-only and returns it.
+     * <p>
+     * This method should be used only by the repository,
+     * which hands out its stored rooms without copying them.
+     */
+    public Room makeReadOnly() {
+        readOnly = true;
+        return this;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
     }
 
     public int getRoomId() {
@@ -34,32 +67,35 @@ public class Room {
     }
 
     public int getRoomCapacity() {
-        return roomCapacity;
+        return layout.getCapacity();
     }
 
-    public Set<AbstractCommodity> getCommodities() {
-        return Collections.unmodifiableSet(commodities);
+    /**
+     * Returns the layout of the commodities, rooms with the
+     * same kinds of commodities have the same instance.
+     */
+    public CommodityLayout getLayout() {
+        return layout;
     }
 
-    private void roomCapacitySetter() {
-        roomCapacity = 0;
-        for (AbstractCommodity commodity : commodities) {
-            if (commodity instanceof Bed) {
-                roomCapacity += ((Bed) commodity).getSize();
-            }
-        }
-        if (roomCapacity == EMPTY_ROOM) {
-            throw new FailedInitializationException("Room can not be empty");
-        }
+    public Set<AbstractCommodity> getCommodities() {
+        return commodities;
     }
 
     public void updateCommodities(Set<AbstractCommodity> commodities) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Room " + roomId + " is read-only, copy it to change it!");
+        }
         if (commodities == null || commodities.isEmpty()) {
             throw new FailedInitializationException("Room has no commodities!");
         }
-        this.commodities.clear();
-        this.commodities.addAll(commodities);
-        roomCapacitySetter();
+        CommoditySet newCommodities = CommoditySet.copyOf(commodities);
+        CommodityLayout newLayout = CommodityLayout.of(newCommodities);
+        if (newLayout.getCapacity() == EMPTY_ROOM) {
+            throw new FailedInitializationException("Room can not be empty");
+        }
+        layout = newLayout;
+        this.commodities = newCommodities;
     }
 
     @Override
@@ -1,5 +1,8 @@
 package eu.deltasource.internship.hotel.domain.commodity;
 
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+
 /**
  * Created by Taner Ilyazov - Delta Source Bulgaria on 2019-07-28.
  */
@@ -7,18 +10,59 @@ public abstract class AbstractCommodity {
 
     protected final int inventoryId;
 
-    private static int INVENTORY_COUNT;
+    private static volatile CommodityIdAllocator idAllocator = new BlockCommodityIdAllocator();
+
+    private static volatile CommodityEventSink eventSink =
+            new AsyncCommodityEventSink(new OutputStreamWriter(System.out, Charset.defaultCharset()));
 
     public AbstractCommodity() {
-        this.inventoryId = ++INVENTORY_COUNT;
+        this.inventoryId = idAllocator.nextId();
+    }
+
+    /**
+     * Recreates a commodity with the id, which it was given
+     * before a restart. The id is never given out again.
+     */
+    protected AbstractCommodity(int inventoryId) {
+        this.inventoryId = inventoryId;
+        idAllocator.reserveUpTo(inventoryId);
+    }
+
+    /**
+     * Replaces the allocator of the inventory ids, which is a
+     * {@link BlockCommodityIdAllocator} by default. Should be
+     * called before any commodity is created or restored.
+     */
+    public static void setIdAllocator(CommodityIdAllocator allocator) {
+        idAllocator = allocator;
+    }
+
+    /**
+     * Replaces the sink of the events of all commodities, which is an
+     * {@link AsyncCommodityEventSink} writing to System.out by default
+     */
+    public static void setEventSink(CommodityEventSink sink) {
+        eventSink = sink;
+    }
+
+    public static CommodityEventSink getEventSink() {
+        return eventSink;
     }
 
     public int getInventoryId() {
         return inventoryId;
     }
 
+    /**
+     * Prepares the commodity for the next guests,
+     * which is told to the event sink
+     */
     public abstract void prepare();
 
+    protected void publish(String event) {
+        eventSink.publish(this, event);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
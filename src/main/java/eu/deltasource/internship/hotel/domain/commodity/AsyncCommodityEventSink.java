@@ -0,0 +1,136 @@
+package eu.deltasource.internship.hotel.domain.commodity;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes the events as lines on a background thread, so publishing
+ * an event does not wait for the output. The writer takes all waiting
+ * events at once and flushes the output once per batch, not per line.
+ * <p>
+ * At most {@link #CAPACITY} events wait to be written, publishers
+ * are kept waiting while the queue is full, so no event is dropped.
+ * The thread is started with the first event. Events published
+ * while the sink is being closed may not be written.
+ */
+public class AsyncCommodityEventSink implements CommodityEventSink, AutoCloseable {
+
+    public static final int CAPACITY = 64 * 1024;
+
+    private static final int MAX_BATCH = 4096;
+
+    /**
+     * Queued by {@link #close()} after the last event
+     */
+    private static final String END = new String("end");
+
+    private final Writer out;
+
+    private final BlockingQueue<String> events;
+
+    private final AtomicBoolean started;
+
+    private final CountDownLatch finished;
+
+    private volatile boolean closed;
+
+    /**
+     * @param out written only by the background thread
+     */
+    public AsyncCommodityEventSink(Writer out) {
+        this.out = out;
+        events = new ArrayBlockingQueue<>(CAPACITY);
+        started = new AtomicBoolean();
+        finished = new CountDownLatch(1);
+    }
+
+    @Override
+    public void publish(AbstractCommodity commodity, String event) {
+        if (closed) {
+            throw new IllegalStateException("The event sink is closed!");
+        }
+        start();
+        String line = commodity.getClass().getSimpleName() + " " + commodity.getInventoryId() + ": " + event;
+        try {
+            events.put(line);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing " + line, e);
+        }
+    }
+
+    /**
+     * Writes the events published so far and stops the background thread.
+     * If the calling thread is interrupted while waiting, it returns at
+     * once with the interrupt flag set, the waiting events may then not
+     * be written.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (!started.get()) {
+            return;
+        }
+        try {
+            events.put(END);
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void start() {
+        if (!started.get() && started.compareAndSet(false, true)) {
+            Thread thread = new Thread(this::writeEvents, "hotel-events");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void writeEvents() {
+        List<String> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            boolean end = false;
+            while (!end) {
+                batch.add(events.take());
+                events.drainTo(batch, MAX_BATCH - 1);
+                end = write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Writes the lines and flushes them, returns true if the last one was reached
+     */
+    private boolean write(List<String> batch) {
+        try {
+            for (String line : batch) {
+                if (line == END) {
+                    out.flush();
+                    return true;
+                }
+                out.write(line);
+                out.write(System.lineSeparator());
+            }
+            out.flush();
+        } catch (IOException e) {
+            // the batch is lost, the next one tries again
+            System.err.println("Writing " + batch.size() + " events failed: " + e);
+        }
+        return false;
+    }
+}
@@ -13,6 +13,21 @@ public class Bed extends AbstractCommodity {
 
     }
 
+    private Bed(BedType bedType, int inventoryId) {
+        super(inventoryId);
+        this.bedType = bedType;
+    }
+
+    /**
+     * Recreates a bed with the inventory id it was given before.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public static Bed restore(BedType bedType, int inventoryId) {
+        return new Bed(bedType, inventoryId);
+    }
+
     public BedType getBedType() {
         return bedType;
     }
@@ -23,7 +38,7 @@ public class Bed extends AbstractCommodity {
 
     @Override
     public void prepare() {
-        System.out.println("The bed sheets are being replaced!");
+        publish("The bed sheets are being replaced!");
     }
 
 }
@@ -0,0 +1,94 @@
+package eu.deltasource.internship.hotel.domain.commodity;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives out the ids in blocks: every thread takes a block of consecutive
+ * ids from a shared atomic counter and hands them out without touching any
+ * shared state, until the block is used up. Threads creating commodities
+ * at once therefore do not contend, but the ids of different threads
+ * are not in the order the commodities were created.
+ * <p>
+ * Ids left in the blocks of threads, which end, are never given out. Blocks
+ * are kept small, so even a new virtual thread for every request, each using
+ * a single id of its block, does not use the ids up quickly.
+ * <p>
+ * Reserving ids drops the blocks of all threads, so restored ids
+ * below the counter are never given out from an older block.
+ * Commodities should be restored before new ones are created,
+ * ids given out before they were restored could still collide.
+ */
+public class BlockCommodityIdAllocator implements CommodityIdAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    private final int blockSize;
+
+    /**
+     * The last id of the last block given out
+     */
+    private final AtomicInteger lastId;
+
+    /**
+     * Changed by every reservation, blocks taken before are dropped
+     */
+    private final AtomicInteger generation;
+
+    private final ThreadLocal<Block> blocks;
+
+    public BlockCommodityIdAllocator() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockCommodityIdAllocator(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size " + blockSize);
+        }
+        this.blockSize = blockSize;
+        lastId = new AtomicInteger();
+        generation = new AtomicInteger();
+        blocks = ThreadLocal.withInitial(Block::new);
+    }
+
+    @Override
+    public int nextId() {
+        Block block = blocks.get();
+        int currentGeneration = generation.get();
+        if (block.next == block.end || block.generation != currentGeneration) {
+            int last = lastId.getAndAdd(blockSize);
+            if (last < 0 || last >= Integer.MAX_VALUE - blockSize) {
+                throw new IllegalStateException("The commodity ids are used up!");
+            }
+            block.next = last + 1;
+            block.end = last + 1 + blockSize;
+            block.generation = currentGeneration;
+        }
+        return block.next++;
+    }
+
+    @Override
+    public void reserveUpTo(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Returns the last id, which was given out or reserved. Ids of
+     * blocks, which are not used up yet, are counted as given out.
+     */
+    public int getLastId() {
+        return lastId.get();
+    }
+
+    /**
+     * The ids from next (inclusive) to end (exclusive) of a thread
+     */
+    private static final class Block {
+
+        private int next;
+
+        private int end;
+
+        private int generation = -1;
+    }
+}
@@ -0,0 +1,12 @@
+package eu.deltasource.internship.hotel.domain.commodity;
+
+/**
+ * Receives the events of the commodities, like a bed being prepared,
+ * from many threads at once.
+ *
+ * @see AbstractCommodity#setEventSink(CommodityEventSink)
+ */
+public interface CommodityEventSink {
+
+    void publish(AbstractCommodity commodity, String event);
+}
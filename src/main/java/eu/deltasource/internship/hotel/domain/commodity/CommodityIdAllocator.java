@@ -0,0 +1,23 @@
+package eu.deltasource.internship.hotel.domain.commodity;
+
+/**
+ * Gives out the inventory ids of the commodities, which are unique,
+ * positive and asked for from many threads at once.
+ *
+ * @see AbstractCommodity#setIdAllocator(CommodityIdAllocator)
+ */
+public interface CommodityIdAllocator {
+
+    /**
+     * Returns an id, which was never given out before
+     *
+     * @throws IllegalStateException if all ids are used up
+     */
+    int nextId();
+
+    /**
+     * Makes sure the given id, which was given out before a restart,
+     * is never given out again, nor any id below it.
+     */
+    void reserveUpTo(int id);
+}
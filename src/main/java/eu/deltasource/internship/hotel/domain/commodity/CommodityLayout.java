@@ -0,0 +1,196 @@
+package eu.deltasource.internship.hotel.domain.commodity;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The kinds of commodities of a room, counted without their inventory ids,
+ * for example two double beds, a shower and a toilet.
+ * <p>
+ * Layouts are interned: {@link #of(Collection)} returns the same instance
+ * for all sets with the same counts, so the few layouts of the hotel are
+ * shared by all its rooms and can be compared with ==. The capacity and
+ * the beds are counted once, when the layout is first seen.
+ */
+public final class CommodityLayout {
+
+    private static final BedType[] BED_TYPES = BedType.values();
+
+    private static final int SHOWERS = BED_TYPES.length;
+
+    private static final int TOILETS = SHOWERS + 1;
+
+    /**
+     * The layouts by their counts, so a lookup only builds the key
+     */
+    private static final ConcurrentMap<Counts, CommodityLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger LAST_ID = new AtomicInteger();
+
+    private final int id;
+
+    /**
+     * The number of beds of each type by ordinal, then of showers and toilets
+     */
+    private final int[] counts;
+
+    private final int capacity;
+
+    private final int beds;
+
+    private final Map<BedType, Integer> bedComposition;
+
+    private CommodityLayout(int id, int[] counts) {
+        this.id = id;
+        this.counts = counts;
+        int capacity = 0;
+        int beds = 0;
+        Map<BedType, Integer> bedComposition = new EnumMap<>(BedType.class);
+        for (BedType bedType : BED_TYPES) {
+            int count = counts[bedType.ordinal()];
+            if (count > 0) {
+                capacity += count * bedType.getSize();
+                beds += count;
+                bedComposition.put(bedType, count);
+            }
+        }
+        this.capacity = capacity;
+        this.beds = beds;
+        this.bedComposition = Collections.unmodifiableMap(bedComposition);
+    }
+
+    /**
+     * Returns the interned layout of the commodities
+     *
+     * @throws IllegalArgumentException if a commodity is not a bed, shower or toilet
+     */
+    public static CommodityLayout of(Collection<? extends AbstractCommodity> commodities) {
+        int[] counts = new int[TOILETS + 1];
+        for (AbstractCommodity commodity : commodities) {
+            if (commodity instanceof Bed) {
+                counts[((Bed) commodity).getBedType().ordinal()]++;
+            } else if (commodity instanceof Shower) {
+                counts[SHOWERS]++;
+            } else if (commodity instanceof Toilet) {
+                counts[TOILETS]++;
+            } else {
+                throw new IllegalArgumentException("Unknown commodity " + commodity.getClass().getName());
+            }
+        }
+        Counts key = new Counts(counts);
+        CommodityLayout layout = LAYOUTS.get(key);
+        if (layout != null) {
+            return layout;
+        }
+        return LAYOUTS.computeIfAbsent(key, newKey -> new CommodityLayout(LAST_ID.incrementAndGet(), newKey.counts));
+    }
+
+    /**
+     * Returns the number of different layouts seen so far
+     */
+    public static int count() {
+        return LAYOUTS.size();
+    }
+
+    /**
+     * Returns the id of the layout, given out in the order the layouts
+     * were first seen. Ids are not kept over a restart.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the number of people, who fit in the beds
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getBeds() {
+        return beds;
+    }
+
+    public int getBeds(BedType bedType) {
+        return counts[bedType.ordinal()];
+    }
+
+    /**
+     * Returns the number of beds of each type in the layout, without
+     * the types, which it has none of. The map is shared and read-only.
+     */
+    public Map<BedType, Integer> getBedComposition() {
+        return bedComposition;
+    }
+
+    public int getShowers() {
+        return counts[SHOWERS];
+    }
+
+    public int getToilets() {
+        return counts[TOILETS];
+    }
+
+    /**
+     * Returns the number of commodities
+     */
+    public int size() {
+        int size = 0;
+        for (int count : counts) {
+            size += count;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof CommodityLayout)) {
+            return false;
+        }
+        return Arrays.equals(counts, ((CommodityLayout) obj).counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        return "CommodityLayout " + id + " " + bedComposition
+                + " showers=" + getShowers() + " toilets=" + getToilets();
+    }
+
+    /**
+     * The key of a layout in the intern table, only the counts
+     */
+    private static final class Counts {
+
+        private final int[] counts;
+
+        private final int hash;
+
+        Counts(int[] counts) {
+            this.counts = counts;
+            hash = Arrays.hashCode(counts);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Counts && Arrays.equals(counts, ((Counts) obj).counts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package eu.deltasource.internship.hotel.domain.commodity;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of commodities kept in an array ordered by
+ * inventory id. A room has a handful of commodities, which take
+ * a fraction of the memory of a HashSet this way.
+ * Lookups are binary searches by inventory id.
+ */
+public final class CommoditySet extends AbstractSet<AbstractCommodity> {
+
+    private static final Comparator<AbstractCommodity> BY_ID =
+            Comparator.comparingInt(AbstractCommodity::getInventoryId);
+
+    private final AbstractCommodity[] commodities;
+
+    private CommoditySet(AbstractCommodity[] commodities) {
+        this.commodities = commodities;
+    }
+
+    /**
+     * Returns a set of the commodities, commodities
+     * with the same inventory id are kept once
+     */
+    public static CommoditySet copyOf(Collection<? extends AbstractCommodity> commodities) {
+        if (commodities instanceof CommoditySet) {
+            return (CommoditySet) commodities;
+        }
+        AbstractCommodity[] sorted = commodities.toArray(new AbstractCommodity[0]);
+        Arrays.sort(sorted, BY_ID);
+        int size = 0;
+        for (AbstractCommodity commodity : sorted) {
+            if (commodity == null) {
+                throw new NullPointerException("The commodities contain null!");
+            }
+            if (size == 0 || sorted[size - 1].getInventoryId() != commodity.getInventoryId()) {
+                sorted[size++] = commodity;
+            }
+        }
+        return new CommoditySet(size == sorted.length ? sorted : Arrays.copyOf(sorted, size));
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        if (!(obj instanceof AbstractCommodity)) {
+            return false;
+        }
+        int inventoryId = ((AbstractCommodity) obj).getInventoryId();
+        int low = 0;
+        int high = commodities.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = commodities[middle].getInventoryId();
+            if (middleId < inventoryId) {
+                low = middle + 1;
+            } else if (middleId > inventoryId) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<AbstractCommodity> iterator() {
+        return new Iterator<AbstractCommodity>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < commodities.length;
+            }
+
+            @Override
+            public AbstractCommodity next() {
+                if (next >= commodities.length) {
+                    throw new NoSuchElementException();
+                }
+                return commodities[next++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return commodities.length;
+    }
+}
@@ -0,0 +1,27 @@
+package eu.deltasource.internship.hotel.domain.commodity;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives out the ids one after the other from a single atomic counter,
+ * which all threads update, so it is slower under contention
+ * than the {@link BlockCommodityIdAllocator}.
+ */
+public class SequentialCommodityIdAllocator implements CommodityIdAllocator {
+
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    @Override
+    public int nextId() {
+        int id = lastId.incrementAndGet();
+        if (id <= 0) {
+            throw new IllegalStateException("The commodity ids are used up!");
+        }
+        return id;
+    }
+
+    @Override
+    public void reserveUpTo(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+}
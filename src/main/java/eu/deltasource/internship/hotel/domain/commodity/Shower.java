@@ -9,9 +9,23 @@ public class Shower extends AbstractCommodity {
         super();
     }
 
+    private Shower(int inventoryId) {
+        super(inventoryId);
+    }
+
+    /**
+     * Recreates a shower with the inventory id it was given before.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public static Shower restore(int inventoryId) {
+        return new Shower(inventoryId);
+    }
+
     @Override
     public void prepare() {
-        System.out.println("The shower is being cleaned!");
+        publish("The shower is being cleaned!");
     }
 
 }
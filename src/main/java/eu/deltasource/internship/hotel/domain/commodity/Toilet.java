@@ -9,9 +9,23 @@ public class Toilet extends AbstractCommodity {
         super();
     }
 
+    private Toilet(int inventoryId) {
+        super(inventoryId);
+    }
+
+    /**
+     * Recreates a toilet with the inventory id it was given before.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public static Toilet restore(int inventoryId) {
+        return new Toilet(inventoryId);
+    }
+
     @Override
     public void prepare() {
-        System.out.println("The toilet is being cleaned!");
+        publish("The toilet is being cleaned!");
     }
 
 }
@@ -0,0 +1,13 @@
+package eu.deltasource.internship.hotel.exception;
+
+/**
+ * Thrown when a request to the API can not be read
+ */
+public class BadRequestException extends RuntimeException {
+    public BadRequestException() {
+    }
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package eu.deltasource.internship.hotel.exception;
+
+/**
+ * Thrown when a booking would share a night
+ * with another booking of the same room.
+ */
+public class BookingOverlapException extends RuntimeException {
+
+    public BookingOverlapException() {
+    }
+
+    public BookingOverlapException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,75 @@
+package eu.deltasource.internship.hotel.imports;
+
+import java.time.LocalDate;
+
+/**
+ * A booking read from an import feed, before it is checked.
+ * A record, which could not be read, holds only its line
+ * and the reason, and is rejected by the import.
+ */
+public class BookingRecord {
+
+    private final int line;
+    private final int guestId;
+    private final int roomId;
+    private final int numberOfPeople;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final String error;
+
+    public BookingRecord(int line, int guestId, int roomId, int numberOfPeople, LocalDate from, LocalDate to) {
+        this(line, guestId, roomId, numberOfPeople, from, to, null);
+    }
+
+    private BookingRecord(int line, int guestId, int roomId, int numberOfPeople,
+                          LocalDate from, LocalDate to, String error) {
+        this.line = line;
+        this.guestId = guestId;
+        this.roomId = roomId;
+        this.numberOfPeople = numberOfPeople;
+        this.from = from;
+        this.to = to;
+        this.error = error;
+    }
+
+    /**
+     * Creates a record for a line of the feed, which could not be read
+     */
+    public static BookingRecord invalid(int line, String error) {
+        return new BookingRecord(line, 0, 0, 0, null, null, error);
+    }
+
+    /**
+     * Returns the number of the record in its feed, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public int getGuestId() {
+        return guestId;
+    }
+
+    public int getRoomId() {
+        return roomId;
+    }
+
+    public int getNumberOfPeople() {
+        return numberOfPeople;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    /**
+     * Returns why the record could not be read, or null if it was read
+     */
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,173 @@
+package eu.deltasource.internship.hotel.imports;
+
+import eu.deltasource.internship.hotel.domain.Gender;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the records of an import feed lazily from comma separated lines:
+ * <ul>
+ * <li>bookings - guestId,roomId,numberOfPeople,from,to with dates like 2019-07-28</li>
+ * <li>guests - firstName,lastName,gender with gender MALE or FEMALE</li>
+ * </ul>
+ * Fields may be quoted with double quotes, a quote inside them is written twice.
+ * A first line starting with the name of the first field is taken as header.
+ * Empty lines and lines starting with # are skipped, but counted, so the
+ * line of a record is the line of the file.
+ * <p>
+ * A line, which can not be read, becomes an invalid record, so the import
+ * reports it with the other rejected records. Errors of the reader are
+ * thrown as {@link UncheckedIOException}.
+ */
+public final class CsvRecordReader<T> implements Iterator<T> {
+
+    private static final int BOOKING_FIELDS = 5;
+
+    private static final int GUEST_FIELDS = 3;
+
+    private final BufferedReader reader;
+
+    private final String header;
+
+    private final LineParser<T> parser;
+
+    private int line;
+
+    private T next;
+
+    private CsvRecordReader(Reader reader, String header, LineParser<T> parser) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.header = header;
+        this.parser = parser;
+    }
+
+    /**
+     * Returns the booking records of the feed
+     */
+    public static Iterator<BookingRecord> bookings(Reader reader) {
+        return new CsvRecordReader<>(reader, "guestid", CsvRecordReader::parseBooking);
+    }
+
+    /**
+     * Returns the guest records of the feed
+     */
+    public static Iterator<GuestRecord> guests(Reader reader) {
+        return new CsvRecordReader<>(reader, "firstname", CsvRecordReader::parseGuest);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T record = next;
+        next = null;
+        return record;
+    }
+
+    private T readNext() {
+        try {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                String trimmed = text.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")
+                        || line == 1 && trimmed.toLowerCase(Locale.ROOT).startsWith(header)) {
+                    continue;
+                }
+                return parser.parse(line, split(text));
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BookingRecord parseBooking(int line, List<String> fields) {
+        if (fields == null) {
+            return BookingRecord.invalid(line, "Unterminated quote!");
+        } else if (fields.size() != BOOKING_FIELDS) {
+            return BookingRecord.invalid(line, "Expected " + BOOKING_FIELDS + " fields, found " + fields.size() + "!");
+        }
+        try {
+            return new BookingRecord(line, Integer.parseInt(fields.get(0)), Integer.parseInt(fields.get(1)),
+                    Integer.parseInt(fields.get(2)), LocalDate.parse(fields.get(3)), LocalDate.parse(fields.get(4)));
+        } catch (NumberFormatException e) {
+            return BookingRecord.invalid(line, "Ids and number of people have to be numbers!");
+        } catch (DateTimeParseException e) {
+            return BookingRecord.invalid(line, "Dates have to be like 2019-07-28!");
+        }
+    }
+
+    private static GuestRecord parseGuest(int line, List<String> fields) {
+        if (fields == null) {
+            return GuestRecord.invalid(line, "Unterminated quote!");
+        } else if (fields.size() != GUEST_FIELDS) {
+            return GuestRecord.invalid(line, "Expected " + GUEST_FIELDS + " fields, found " + fields.size() + "!");
+        }
+        try {
+            return new GuestRecord(line, fields.get(0), fields.get(1),
+                    Gender.valueOf(fields.get(2).toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return GuestRecord.invalid(line, "Gender has to be MALE or FEMALE!");
+        }
+    }
+
+    /**
+     * Splits the line into its trimmed fields,
+     * returns null if a quote is not closed.
+     */
+    private static List<String> split(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private interface LineParser<T> {
+
+        T parse(int line, List<String> fields);
+    }
+}
@@ -0,0 +1,62 @@
+package eu.deltasource.internship.hotel.imports;
+
+import eu.deltasource.internship.hotel.domain.Gender;
+
+/**
+ * A guest read from an import feed, before it is checked.
+ * A record, which could not be read, holds only its line
+ * and the reason, and is rejected by the import.
+ */
+public class GuestRecord {
+
+    private final int line;
+    private final String firstName;
+    private final String lastName;
+    private final Gender gender;
+    private final String error;
+
+    public GuestRecord(int line, String firstName, String lastName, Gender gender) {
+        this(line, firstName, lastName, gender, null);
+    }
+
+    private GuestRecord(int line, String firstName, String lastName, Gender gender, String error) {
+        this.line = line;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.gender = gender;
+        this.error = error;
+    }
+
+    /**
+     * Creates a record for a line of the feed, which could not be read
+     */
+    public static GuestRecord invalid(int line, String error) {
+        return new GuestRecord(line, null, null, null, error);
+    }
+
+    /**
+     * Returns the number of the record in its feed, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public Gender getGender() {
+        return gender;
+    }
+
+    /**
+     * Returns why the record could not be read, or null if it was read
+     */
+    public String getError() {
+        return error;
+    }
+}
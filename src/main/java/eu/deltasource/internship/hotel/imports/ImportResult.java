@@ -0,0 +1,49 @@
+package eu.deltasource.internship.hotel.imports;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk import. The imported items got
+ * the consecutive ids starting at {@link #getFirstId()},
+ * in the order of their records in the feed.
+ */
+public class ImportResult {
+
+    private final int imported;
+
+    private final int firstId;
+
+    private final List<RejectedRecord> rejected;
+
+    /**
+     * @param rejected the rejected records ordered by line
+     */
+    public ImportResult(int imported, int firstId, List<RejectedRecord> rejected) {
+        this.imported = imported;
+        this.firstId = firstId;
+        this.rejected = Collections.unmodifiableList(rejected);
+    }
+
+    /**
+     * Returns the number of imported items
+     */
+    public int getImported() {
+        return imported;
+    }
+
+    /**
+     * Returns the id of the first imported item,
+     * or 0 if nothing was imported.
+     */
+    public int getFirstId() {
+        return firstId;
+    }
+
+    /**
+     * Returns the rejected records ordered by line
+     */
+    public List<RejectedRecord> getRejected() {
+        return rejected;
+    }
+}
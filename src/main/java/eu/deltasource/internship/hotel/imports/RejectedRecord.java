@@ -0,0 +1,29 @@
+package eu.deltasource.internship.hotel.imports;
+
+/**
+ * A record of an import feed, which was not imported, and the reason
+ */
+public class RejectedRecord {
+
+    private final int line;
+
+    private final String reason;
+
+    public RejectedRecord(int line, String reason) {
+        this.line = line;
+        this.reason = reason;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "line " + line + ": " + reason;
+    }
+}
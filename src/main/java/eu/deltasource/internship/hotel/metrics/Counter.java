@@ -0,0 +1,24 @@
+package eu.deltasource.internship.hotel.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count, which many threads increase without contending
+ */
+public class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        if (Metrics.ENABLED) {
+            count.increment();
+        }
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,57 @@
+package eu.deltasource.internship.hotel.metrics;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A gauge, which sums its value over all instances it was added for,
+ * like every repository of the guests in the process. The instances are
+ * held weakly, so a gauge never keeps them from being collected, and
+ * collected ones are dropped.
+ */
+class InstanceGauge implements LongSupplier {
+
+    private final List<Instance<?>> instances = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param value reads the value of the owner, it must not hold the owner itself
+     */
+    <T> void add(T owner, ToLongFunction<? super T> value) {
+        instances.removeIf(Instance::isCollected);
+        instances.add(new Instance<>(owner, value));
+    }
+
+    @Override
+    public long getAsLong() {
+        long sum = 0;
+        for (Instance<?> instance : instances) {
+            sum += instance.getValue();
+        }
+        instances.removeIf(Instance::isCollected);
+        return sum;
+    }
+
+    private static final class Instance<T> {
+
+        private final WeakReference<T> owner;
+
+        private final ToLongFunction<? super T> value;
+
+        Instance(T owner, ToLongFunction<? super T> value) {
+            this.owner = new WeakReference<>(owner);
+            this.value = value;
+        }
+
+        long getValue() {
+            T current = owner.get();
+            return current == null ? 0 : value.applyAsLong(current);
+        }
+
+        boolean isCollected() {
+            return owner.get() == null;
+        }
+    }
+}
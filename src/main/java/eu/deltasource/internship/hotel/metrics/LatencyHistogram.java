@@ -0,0 +1,119 @@
+package eu.deltasource.internship.hotel.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds with buckets, which grow with
+ * the values like the ones of an HDR histogram: values below 16 have
+ * a bucket each, every larger power of two is split in 16 buckets.
+ * Every value is counted with an error of at most 1/16, from
+ * nanoseconds to hours, in a fixed array of 960 counts.
+ * <p>
+ * Values are recorded from many threads without locking. Every bucket
+ * is a {@link LongAdder}, created when its first value is recorded, so
+ * threads recording the same latency do not contend for one count.
+ * Percentiles read while values are recorded are approximate.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicReferenceArray<LongAdder> counts = new AtomicReferenceArray<>(BUCKETS);
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a latency, negative ones are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        count(bucket(value)).increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Returns the number of values, summed from the buckets
+     * to keep one update less on every record
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += countOf(i);
+        }
+        return total;
+    }
+
+    public long getSumNanos() {
+        return sum.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Returns the latency, which the given share of the values
+     * does not exceed, or 0 if nothing was recorded
+     *
+     * @param quantile between 0 and 1, for example 0.99
+     */
+    public long getQuantileNanos(double quantile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += countOf(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    private LongAdder count(int bucket) {
+        LongAdder count = counts.get(bucket);
+        if (count == null) {
+            counts.compareAndSet(bucket, null, new LongAdder());
+            count = counts.get(bucket);
+        }
+        return count;
+    }
+
+    private long countOf(int bucket) {
+        LongAdder count = counts.get(bucket);
+        return count == null ? 0 : count.sum();
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the highest value counted in the bucket
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
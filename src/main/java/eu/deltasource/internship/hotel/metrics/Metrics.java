@@ -0,0 +1,144 @@
+package eu.deltasource.internship.hotel.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * The metrics of the application, kept once per process.
+ * <p>
+ * Names are lower case words separated by underscores, like
+ * booking_service_book. They are written in the text format
+ * of Prometheus with {@link #writeText(Appendable)} and can be
+ * read over JMX after {@link #registerMBean()}.
+ * <p>
+ * Metrics are enabled unless the system property hotel.metrics is false.
+ * The flag is read once, so disabled metrics are left out by the JIT.
+ */
+public final class Metrics {
+
+    public static final boolean ENABLED = !"false".equals(System.getProperty("hotel.metrics"));
+
+    public static final String OBJECT_NAME = "eu.deltasource.internship.hotel:type=Metrics";
+
+    private static final String PREFIX = "hotel_";
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final ConcurrentNavigableMap<String, Timer> TIMERS = new ConcurrentSkipListMap<>();
+
+    private static final ConcurrentNavigableMap<String, Counter> COUNTERS = new ConcurrentSkipListMap<>();
+
+    private static final ConcurrentNavigableMap<String, LongSupplier> GAUGES = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the timer with the given name, creating it on first use
+     */
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /**
+     * Returns the counter with the given name, creating it on first use
+     */
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * Sets the function, which reads the current value of a gauge kept once
+     * per process, like the number of interned commodity layouts. A later
+     * one replaces it.
+     */
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    /**
+     * Adds an instance to a gauge, which reports the sum of the values of
+     * all its live instances, like the sizes of every repository of the
+     * guests. The owner is held weakly, so the value function must read
+     * the owner it is given instead of holding it, for example
+     * {@code Metrics.gauge("guests", repository, Map::size)}.
+     */
+    public static <T> void gauge(String name, T owner, ToLongFunction<? super T> value) {
+        LongSupplier gauge = GAUGES.computeIfAbsent(name, key -> new InstanceGauge());
+        if (!(gauge instanceof InstanceGauge)) {
+            throw new IllegalArgumentException("The gauge " + name + " is kept once per process!");
+        }
+        ((InstanceGauge) gauge).add(owner, value);
+    }
+
+    static Map<String, Timer> timers() {
+        return TIMERS;
+    }
+
+    static Map<String, Counter> counters() {
+        return COUNTERS;
+    }
+
+    static Map<String, LongSupplier> gauges() {
+        return GAUGES;
+    }
+
+    /**
+     * Writes all metrics in the text format of Prometheus. Timers are
+     * summaries in seconds with quantiles, a count, a sum and a max.
+     */
+    public static void writeText(Appendable out) throws IOException {
+        for (Map.Entry<String, Counter> counter : COUNTERS.entrySet()) {
+            String name = PREFIX + counter.getKey() + "_total";
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(Long.toString(counter.getValue().get())).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> gauge : GAUGES.entrySet()) {
+            String name = PREFIX + gauge.getKey();
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            out.append(name).append(' ').append(Long.toString(gauge.getValue().getAsLong())).append('\n');
+        }
+        for (Map.Entry<String, Timer> timer : TIMERS.entrySet()) {
+            LatencyHistogram histogram = timer.getValue().getHistogram();
+            String name = PREFIX + timer.getKey() + "_seconds";
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                out.append(name).append("{quantile=\"").append(Double.toString(quantile)).append("\"} ")
+                        .append(seconds(histogram.getQuantileNanos(quantile))).append('\n');
+            }
+            out.append(name).append("_count ").append(Long.toString(histogram.getCount())).append('\n');
+            out.append(name).append("_sum ").append(seconds(histogram.getSumNanos())).append('\n');
+            out.append(name).append("_max ").append(seconds(histogram.getMaxNanos())).append('\n');
+        }
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under
+     * {@link #OBJECT_NAME}, if they are not registered yet
+     */
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsMBean(), name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("The metrics could not be registered", e);
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / NANOS_PER_SECOND);
+    }
+}
@@ -0,0 +1,110 @@
+package eu.deltasource.internship.hotel.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Shows every metric as read-only attributes of type long. A counter or
+ * gauge is one attribute with its name, a timer has the attributes
+ * name.count, name.p50Micros, name.p99Micros and name.maxMicros.
+ * Metrics created after the registration show up on the next read.
+ */
+class MetricsMBean implements DynamicMBean {
+
+    private static final String COUNT = ".count";
+    private static final String P50 = ".p50Micros";
+    private static final String P99 = ".p99Micros";
+    private static final String MAX = ".maxMicros";
+
+    private static final long NANOS_PER_MICRO = 1000;
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Counter counter = Metrics.counters().get(attribute);
+        if (counter != null) {
+            return counter.get();
+        }
+        LongSupplier gauge = Metrics.gauges().get(attribute);
+        if (gauge != null) {
+            return gauge.getAsLong();
+        }
+        int dot = attribute.lastIndexOf('.');
+        Timer timer = dot < 0 ? null : Metrics.timers().get(attribute.substring(0, dot));
+        if (timer != null) {
+            LatencyHistogram histogram = timer.getHistogram();
+            switch (attribute.substring(dot)) {
+                case COUNT:
+                    return histogram.getCount();
+                case P50:
+                    return histogram.getQuantileNanos(0.5) / NANOS_PER_MICRO;
+                case P99:
+                    return histogram.getQuantileNanos(0.99) / NANOS_PER_MICRO;
+                case MAX:
+                    return histogram.getMaxNanos() / NANOS_PER_MICRO;
+                default:
+                    break;
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("The metrics are read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // left out of the list, as the interface expects
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new UnsupportedOperationException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : Metrics.counters().keySet()) {
+            attributes.add(attribute(name, "Counter"));
+        }
+        for (String name : Metrics.gauges().keySet()) {
+            attributes.add(attribute(name, "Gauge"));
+        }
+        for (Map.Entry<String, Timer> timer : Metrics.timers().entrySet()) {
+            for (String suffix : new String[]{COUNT, P50, P99, MAX}) {
+                attributes.add(attribute(timer.getKey() + suffix, "Timer"));
+            }
+        }
+        return new MBeanInfo(getClass().getName(), "Metrics of the hotel",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+    }
+
+    private static MBeanAttributeInfo attribute(String name, String description) {
+        return new MBeanAttributeInfo(name, long.class.getName(), description, true, false, false);
+    }
+}
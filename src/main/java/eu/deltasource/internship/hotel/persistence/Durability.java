@@ -0,0 +1,20 @@
+package eu.deltasource.internship.hotel.persistence;
+
+/**
+ * When the changes written to the {@link WriteAheadLog}
+ * are forced to the disk.
+ */
+public enum Durability {
+
+    /**
+     * Every change waits until the batch it was written in is forced
+     * to the disk. Changes made at the same time share one force.
+     */
+    BATCH,
+
+    /**
+     * Changes do not wait, the log is forced to the disk on a fixed interval.
+     * A crash can lose the changes made during the last interval.
+     */
+    INTERVAL
+}
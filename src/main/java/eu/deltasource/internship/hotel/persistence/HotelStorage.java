@@ -0,0 +1,209 @@
+package eu.deltasource.internship.hotel.persistence;
+
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.GuestRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the repositories in a directory as snapshots
+ * and a write-ahead log split in numbered segments.
+ * <p>
+ * The snapshot with number n has to be combined with the log segments
+ * from n on. Taking a snapshot rolls the log over to a new segment,
+ * writes the repositories to the snapshot with that number and then
+ * deletes the older segments and snapshots, so the log never grows
+ * past the changes made since the last snapshot.
+ * <p>
+ * On start the latest snapshot is mapped into memory and only
+ * the segments written after it are replayed.
+ */
+public class HotelStorage implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private final Path directory;
+
+    private final WriteAheadLog log;
+
+    /**
+     * Number of the latest snapshot, or -1 if there is none
+     */
+    private final long snapshotSegment;
+
+    /**
+     * Number of the segment the log is currently written to
+     */
+    private long currentSegment;
+
+    private BookingRepository bookingRepository;
+
+    private GuestRepository guestRepository;
+
+    private RoomRepository roomRepository;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Opens the log in the latest segment of the directory. The repositories
+     * have to be created with {@link #getLog()} and loaded with
+     * {@link #recover(BookingRepository, GuestRepository, RoomRepository)}.
+     *
+     * @param intervalMillis how often the log is forced with {@link Durability#INTERVAL}
+     */
+    public HotelStorage(Path directory, Durability durability, long intervalMillis) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        List<Long> snapshots = findNumbers(SNAPSHOT_SUFFIX);
+        List<Long> segments = findNumbers(SEGMENT_SUFFIX);
+        snapshotSegment = snapshots.isEmpty() ? -1 : snapshots.get(snapshots.size() - 1);
+        currentSegment = Math.max(0, snapshotSegment);
+        if (!segments.isEmpty()) {
+            currentSegment = Math.max(currentSegment, segments.get(segments.size() - 1));
+        }
+        log = new WriteAheadLog(segmentFile(currentSegment), durability, intervalMillis);
+    }
+
+    public WriteAheadLog getLog() {
+        return log;
+    }
+
+    /**
+     * Loads the latest snapshot into the repositories, replays the log
+     * segments written after it and starts accepting changes.
+     * The repositories are kept for the later snapshots.
+     */
+    public void recover(BookingRepository bookingRepository, GuestRepository guestRepository,
+                        RoomRepository roomRepository) throws IOException {
+        this.bookingRepository = bookingRepository;
+        this.guestRepository = guestRepository;
+        this.roomRepository = roomRepository;
+        long firstSegment = 0;
+        if (snapshotSegment >= 0) {
+            firstSegment = SnapshotFile.read(snapshotFile(snapshotSegment),
+                    bookingRepository, guestRepository, roomRepository);
+        }
+        LogReplayer replayer = new LogReplayer(bookingRepository, guestRepository, roomRepository);
+        for (long segment = firstSegment; segment < currentSegment; segment++) {
+            Path file = segmentFile(segment);
+            if (Files.exists(file)) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    LogReader.read(channel, replayer);
+                }
+            }
+        }
+        log.recover(replayer);
+    }
+
+    /**
+     * Takes a snapshot of the repositories and deletes
+     * the log segments and snapshots it replaces.
+     */
+    public synchronized void snapshot() throws IOException {
+        if (bookingRepository == null) {
+            throw new IllegalStateException("The storage is not recovered!");
+        }
+        long segment = currentSegment + 1;
+        log.rollover(segmentFile(segment));
+        currentSegment = segment;
+        SnapshotFile.write(snapshotFile(segment), segment, bookingRepository, guestRepository, roomRepository);
+        for (long number : findNumbers(SNAPSHOT_SUFFIX)) {
+            if (number < segment) {
+                Files.deleteIfExists(snapshotFile(number));
+            }
+        }
+        for (long number : findNumbers(SEGMENT_SUFFIX)) {
+            if (number < segment) {
+                Files.deleteIfExists(segmentFile(number));
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot in the background every given number of minutes
+     */
+    public synchronized void scheduleSnapshots(long periodMinutes) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Snapshots are already scheduled!");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "hotel-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                // the log still holds every change, the next snapshot tries again
+                System.err.println("Taking a snapshot failed: " + e);
+            }
+        }, periodMinutes, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops the scheduled snapshots and closes the log
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService runningScheduler;
+        synchronized (this) {
+            runningScheduler = scheduler;
+        }
+        if (runningScheduler != null) {
+            runningScheduler.shutdown();
+            try {
+                runningScheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.close();
+    }
+
+    private Path segmentFile(long segment) {
+        return directory.resolve(fileName(segment, SEGMENT_SUFFIX));
+    }
+
+    private Path snapshotFile(long segment) {
+        return directory.resolve(fileName(segment, SNAPSHOT_SUFFIX));
+    }
+
+    private static String fileName(long segment, String suffix) {
+        return String.format("hotel-%016d%s", segment, suffix);
+    }
+
+    /**
+     * Returns the numbers of the files in the directory
+     * with the given suffix in ascending order.
+     */
+    private List<Long> findNumbers(String suffix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "hotel-*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring("hotel-".length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+}
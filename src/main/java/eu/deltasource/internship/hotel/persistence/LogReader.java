@@ -0,0 +1,68 @@
+package eu.deltasource.internship.hotel.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the records of a {@link WriteAheadLog} file in order.
+ * <p>
+ * Reading stops at the first record, which is cut short or does not
+ * match its checksum. Such a record can only be the last one, written
+ * while the process stopped, so the log cuts the file off before it.
+ */
+public final class LogReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Handles one record of the log. The payload buffer
+     * is only valid until the handler returns.
+     */
+    public interface RecordHandler {
+        void handle(LogRecordType type, ByteBuffer payload);
+    }
+
+    private LogReader() {
+    }
+
+    /**
+     * Passes every valid record from the start of the channel to the
+     * handler and returns the length of the valid records in bytes.
+     * The channel is left open.
+     */
+    public static long read(FileChannel channel, RecordHandler handler) throws IOException {
+        long size = channel.size();
+        channel.position(0);
+        // the stream is not closed, as that would close the channel
+        DataInputStream data = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+        byte[] body = new byte[256];
+        CRC32 checksum = new CRC32();
+        long validLength = 0;
+        while (size - validLength >= WriteAheadLog.RECORD_OVERHEAD) {
+            int length = data.readInt();
+            long recordSize = WriteAheadLog.RECORD_OVERHEAD - 1L + length;
+            if (length <= 0 || recordSize > size - validLength) {
+                break;
+            }
+            if (body.length < length) {
+                body = new byte[Math.max(length, body.length * 2)];
+            }
+            data.readFully(body, 0, length);
+            checksum.reset();
+            checksum.update(body, 0, length);
+            LogRecordType type = LogRecordType.fromCode(body[0]);
+            if (data.readInt() != (int) checksum.getValue() || type == null) {
+                break;
+            }
+            handler.handle(type, ByteBuffer.wrap(body, 1, length - 1).slice());
+            validLength += recordSize;
+        }
+        return validLength;
+    }
+}
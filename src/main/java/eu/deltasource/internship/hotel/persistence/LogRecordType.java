@@ -0,0 +1,39 @@
+package eu.deltasource.internship.hotel.persistence;
+
+/**
+ * The kinds of changes, which are written to the {@link WriteAheadLog}.
+ * <p>
+ * The code of a type is written to disk, so existing
+ * codes must never change.
+ */
+public enum LogRecordType {
+    BOOKING_SAVED(1), BOOKING_UPDATED(2), BOOKING_DELETED(3), BOOKINGS_CLEARED(4),
+    GUEST_SAVED(11), GUEST_UPDATED(12), GUEST_DELETED(13), GUESTS_CLEARED(14),
+    ROOM_SAVED(21), ROOM_UPDATED(22), ROOM_DELETED(23), ROOMS_CLEARED(24);
+
+    private static final LogRecordType[] BY_CODE = new LogRecordType[128];
+
+    static {
+        for (LogRecordType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    LogRecordType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the type with the given code,
+     * or null if there is no such type.
+     */
+    public static LogRecordType fromCode(byte code) {
+        return code >= 0 ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,68 @@
+package eu.deltasource.internship.hotel.persistence;
+
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.GuestRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Applies the records of the write-ahead log to the repositories,
+ * rebuilding the state they had when the log was written.
+ * <p>
+ * Saves and updates carry the whole item and simply put it back,
+ * so replaying a record twice leaves the same state.
+ */
+public class LogReplayer implements LogReader.RecordHandler {
+
+    private final BookingRepository bookingRepository;
+
+    private final GuestRepository guestRepository;
+
+    private final RoomRepository roomRepository;
+
+    public LogReplayer(BookingRepository bookingRepository, GuestRepository guestRepository,
+                       RoomRepository roomRepository) {
+        this.bookingRepository = bookingRepository;
+        this.guestRepository = guestRepository;
+        this.roomRepository = roomRepository;
+    }
+
+    @Override
+    public void handle(LogRecordType type, ByteBuffer payload) {
+        switch (type) {
+            case BOOKING_SAVED:
+            case BOOKING_UPDATED:
+                bookingRepository.restore(RecordCodec.readBooking(payload));
+                break;
+            case BOOKING_DELETED:
+                bookingRepository.restoreDeletion(payload.getInt());
+                break;
+            case BOOKINGS_CLEARED:
+                bookingRepository.restoreDeleteAll();
+                break;
+            case GUEST_SAVED:
+            case GUEST_UPDATED:
+                guestRepository.restore(RecordCodec.readGuest(payload));
+                break;
+            case GUEST_DELETED:
+                guestRepository.restoreDeletion(payload.getInt());
+                break;
+            case GUESTS_CLEARED:
+                guestRepository.restoreDeleteAll();
+                break;
+            case ROOM_SAVED:
+            case ROOM_UPDATED:
+                roomRepository.restore(RecordCodec.readRoom(payload));
+                break;
+            case ROOM_DELETED:
+                roomRepository.restoreDeletion(payload.getInt());
+                break;
+            case ROOMS_CLEARED:
+                roomRepository.restoreDeleteAll();
+                break;
+            default:
+                throw new IllegalStateException("Unknown record type " + type);
+        }
+    }
+}
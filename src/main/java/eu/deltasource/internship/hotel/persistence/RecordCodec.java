@@ -0,0 +1,142 @@
+package eu.deltasource.internship.hotel.persistence;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Gender;
+import eu.deltasource.internship.hotel.domain.Guest;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.domain.commodity.AbstractCommodity;
+import eu.deltasource.internship.hotel.domain.commodity.Bed;
+import eu.deltasource.internship.hotel.domain.commodity.BedType;
+import eu.deltasource.internship.hotel.domain.commodity.Shower;
+import eu.deltasource.internship.hotel.domain.commodity.Toilet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Binary encoding of the domain objects, shared by
+ * the write-ahead log and the snapshots.
+ * <p>
+ * Numbers are big endian, dates are epoch days
+ * and strings are UTF-8 with a two byte length.
+ */
+public final class RecordCodec {
+
+    private static final byte BED = 1;
+    private static final byte SHOWER = 2;
+    private static final byte TOILET = 3;
+
+    private static final byte NO_BED_TYPE = -1;
+
+    static final int BOOKING_SIZE = 6 * Integer.BYTES;
+
+    private RecordCodec() {
+    }
+
+    public static byte[] encodeId(int id) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(id).array();
+    }
+
+    public static byte[] encodeBooking(Booking booking) {
+        ByteBuffer buffer = ByteBuffer.allocate(BOOKING_SIZE);
+        writeBooking(buffer, booking);
+        return buffer.array();
+    }
+
+    public static void writeBooking(ByteBuffer buffer, Booking booking) {
+        buffer.putInt(booking.getBookingId())
+                .putInt(booking.getGuestId())
+                .putInt(booking.getRoomId())
+                .putInt(booking.getNumberOfPeople())
+                .putInt((int) booking.getFrom().toEpochDay())
+                .putInt((int) booking.getTo().toEpochDay());
+    }
+
+    public static Booking readBooking(ByteBuffer buffer) {
+        return Booking.restore(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                LocalDate.ofEpochDay(buffer.getInt()), LocalDate.ofEpochDay(buffer.getInt()));
+    }
+
+    public static byte[] encodeGuest(Guest guest) {
+        byte[] firstName = guest.getFirstName().getBytes(StandardCharsets.UTF_8);
+        byte[] lastName = guest.getLastName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + 1 + 2 * Short.BYTES
+                + firstName.length + lastName.length);
+        buffer.putInt(guest.getGuestId()).put((byte) guest.getGender().ordinal());
+        putString(buffer, firstName);
+        putString(buffer, lastName);
+        return buffer.array();
+    }
+
+    public static Guest readGuest(ByteBuffer buffer) {
+        int guestId = buffer.getInt();
+        Gender gender = Gender.values()[buffer.get()];
+        String firstName = getString(buffer);
+        String lastName = getString(buffer);
+        return new Guest(guestId, firstName, lastName, gender);
+    }
+
+    public static byte[] encodeRoom(Room room) {
+        Set<AbstractCommodity> commodities = room.getCommodities();
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Short.BYTES
+                + commodities.size() * (2 + Integer.BYTES));
+        buffer.putInt(room.getRoomId()).putShort((short) commodities.size());
+        for (AbstractCommodity commodity : commodities) {
+            if (commodity instanceof Bed) {
+                buffer.put(BED).put((byte) ((Bed) commodity).getBedType().ordinal());
+            } else if (commodity instanceof Shower) {
+                buffer.put(SHOWER).put(NO_BED_TYPE);
+            } else if (commodity instanceof Toilet) {
+                buffer.put(TOILET).put(NO_BED_TYPE);
+            } else {
+                throw new IllegalArgumentException("Unknown commodity " + commodity.getClass().getName());
+            }
+            buffer.putInt(commodity.getInventoryId());
+        }
+        return buffer.array();
+    }
+
+    public static Room readRoom(ByteBuffer buffer) {
+        int roomId = buffer.getInt();
+        int count = buffer.getShort();
+        Set<AbstractCommodity> commodities = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            byte kind = buffer.get();
+            byte bedType = buffer.get();
+            int inventoryId = buffer.getInt();
+            if (!commodities.add(readCommodity(kind, bedType, inventoryId))) {
+                // files written before the ids were given out atomically can repeat an id
+                commodities.add(readCommodity(kind, bedType, 0));
+            }
+        }
+        return new Room(roomId, commodities);
+    }
+
+    /**
+     * Restores a commodity with its inventory id, or creates it with a new id if the id is 0
+     */
+    private static AbstractCommodity readCommodity(byte kind, byte bedType, int inventoryId) {
+        if (kind == BED) {
+            BedType type = BedType.values()[bedType];
+            return inventoryId == 0 ? new Bed(type) : Bed.restore(type, inventoryId);
+        } else if (kind == SHOWER) {
+            return inventoryId == 0 ? new Shower() : Shower.restore(inventoryId);
+        } else if (kind == TOILET) {
+            return inventoryId == 0 ? new Toilet() : Toilet.restore(inventoryId);
+        }
+        throw new IllegalArgumentException("Unknown commodity kind " + kind);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,159 @@
+package eu.deltasource.internship.hotel.persistence;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Guest;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.GuestRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary image of the three repositories.
+ * <p>
+ * The file holds a header with the log segment, from which the
+ * log has to be replayed on top of the snapshot, and the last ids
+ * of the repositories, followed by the rooms, the guests and the
+ * bookings and a CRC32 of everything before it. Bookings are
+ * written ordered by arrival date, so loading them only appends
+ * to the interval index.
+ * <p>
+ * The snapshot is read while the repositories keep changing, so it
+ * may already contain some of the changes of its log segment.
+ * Replaying a change twice leaves the same state, so replaying the
+ * whole segment on top of it gives back the exact state.
+ */
+public final class SnapshotFile {
+
+    private static final int MAGIC = 0x484F544C;
+
+    private static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes the snapshot next to the given file and moves it in place
+     * once it is on the disk, so a crash never leaves half a snapshot.
+     * Writers are not blocked while it is written.
+     */
+    public static void write(Path file, long segment, BookingRepository bookingRepository,
+                             GuestRepository guestRepository, RoomRepository roomRepository) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile())) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(stream, checksum), BUFFER_SIZE));
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(segment);
+            data.writeInt(roomRepository.getLastId());
+            data.writeInt(guestRepository.getLastId());
+            data.writeInt(bookingRepository.getLastId());
+
+            List<Room> rooms = roomRepository.findAll();
+            data.writeInt(rooms.size());
+            for (Room room : rooms) {
+                writeRecord(data, RecordCodec.encodeRoom(room));
+            }
+            List<Guest> guests = guestRepository.findAll();
+            data.writeInt(guests.size());
+            for (Guest guest : guests) {
+                writeRecord(data, RecordCodec.encodeGuest(guest));
+            }
+            List<Booking> bookings = new ArrayList<>(bookingRepository.findAll());
+            bookings.sort(Comparator.comparing(Booking::getFrom));
+            data.writeInt(bookings.size());
+            ByteBuffer booking = ByteBuffer.allocate(RecordCodec.BOOKING_SIZE);
+            for (Booking item : bookings) {
+                booking.clear();
+                RecordCodec.writeBooking(booking, item);
+                data.write(booking.array());
+            }
+            data.flush();
+            data.writeInt((int) checksum.getValue());
+            data.flush();
+            stream.getChannel().force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Maps the snapshot into memory, checks it and restores its items
+     * into the repositories. Returns the log segment, from which the
+     * log has to be replayed.
+     */
+    public static long read(Path file, BookingRepository bookingRepository,
+                            GuestRepository guestRepository, RoomRepository roomRepository) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int end = buffer.limit() - Integer.BYTES;
+        if (end < 0 || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("The file " + file + " is not a hotel snapshot!");
+        }
+        CRC32 checksum = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.limit(end);
+        checksum.update(content);
+        if (buffer.getInt(end) != (int) checksum.getValue()) {
+            throw new IOException("The snapshot " + file + " is corrupt!");
+        }
+
+        buffer.position(2 * Integer.BYTES);
+        long segment = buffer.getLong();
+        roomRepository.restoreLastId(buffer.getInt());
+        guestRepository.restoreLastId(buffer.getInt());
+        bookingRepository.restoreLastId(buffer.getInt());
+
+        int rooms = buffer.getInt();
+        for (int i = 0; i < rooms; i++) {
+            roomRepository.restore(RecordCodec.readRoom(nextRecord(buffer)));
+        }
+        int guests = buffer.getInt();
+        for (int i = 0; i < guests; i++) {
+            guestRepository.restore(RecordCodec.readGuest(nextRecord(buffer)));
+        }
+        int bookings = buffer.getInt();
+        for (int i = 0; i < bookings; i++) {
+            bookingRepository.restore(RecordCodec.readBooking(buffer));
+        }
+        return segment;
+    }
+
+    private static void writeRecord(DataOutputStream data, byte[] record) throws IOException {
+        data.writeInt(record.length);
+        data.write(record);
+    }
+
+    /**
+     * Returns a view of the next length prefixed record
+     * and moves the buffer past it.
+     */
+    private static ByteBuffer nextRecord(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        ByteBuffer record = buffer.slice();
+        record.limit(length);
+        buffer.position(buffer.position() + length);
+        return record;
+    }
+}
@@ -0,0 +1,409 @@
+package eu.deltasource.internship.hotel.persistence;
+
+import eu.deltasource.internship.hotel.metrics.Metrics;
+import eu.deltasource.internship.hotel.metrics.Timer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of every change made to the repositories.
+ * <p>
+ * Each record is written as its length, its type code, its payload and
+ * a CRC32 of the type and payload. Records are collected in memory and
+ * a single flusher thread writes and forces them to the disk in batches,
+ * so changes made at the same time share one force (group commit).
+ * <p>
+ * The log can be rolled over to a new file, so older files can be
+ * dropped once a snapshot covers them. Positions in the log keep
+ * counting across files.
+ * <p>
+ * The log only uses {@link ReentrantLock}s, so waiting threads
+ * never hold a monitor.
+ */
+public class WriteAheadLog implements Closeable {
+
+    /**
+     * Length, type code and checksum
+     */
+    static final int RECORD_OVERHEAD = Integer.BYTES + 1 + Integer.BYTES;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Appending waits while this many bytes are waiting for the
+     * next batch, so a slow disk can not fill up the memory
+     */
+    static final int MAX_PENDING_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * Time the disk takes to force a batch
+     */
+    private static final Timer FORCE_TIMER = Metrics.timer("wal_force");
+
+    private FileChannel channel;
+
+    private final Durability durability;
+
+    private final long intervalMillis;
+
+    private final ReentrantLock lock;
+
+    private final Condition recordsAppended;
+
+    private final Condition batchForced;
+
+    private final Thread flusher;
+
+    /**
+     * Held shared by every change from its append until it is applied
+     * in memory, and exclusively while rolling over to a new file.
+     */
+    private final ReentrantReadWriteLock changeGate;
+
+    /**
+     * The file to roll over to after the current batch
+     */
+    private Path nextFile;
+
+    /**
+     * Records waiting for the next batch
+     */
+    private ByteBuffer pending;
+
+    /**
+     * Buffer of the batch being written, swapped with the pending one
+     */
+    private ByteBuffer writing;
+
+    /**
+     * Position in the log after the last appended record
+     */
+    private long appendedPosition;
+
+    /**
+     * Position in the log up to which everything is on the disk
+     */
+    private long durablePosition;
+
+    /**
+     * Set once by the flusher, which stops then
+     */
+    private volatile IOException failure;
+
+    /**
+     * Number of threads waiting for room in the pending buffer
+     */
+    private int waitingAppenders;
+
+    private boolean recovered;
+
+    private boolean closed;
+
+    /**
+     * Opens the log file, creating it if it does not exist.
+     * The log has to be recovered with {@link #recover(LogReader.RecordHandler)}
+     * before any changes are appended.
+     *
+     * @param intervalMillis how often the log is forced with {@link Durability#INTERVAL}
+     */
+    public WriteAheadLog(Path file, Durability durability, long intervalMillis) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.durability = durability;
+        this.intervalMillis = intervalMillis;
+        lock = new ReentrantLock();
+        recordsAppended = lock.newCondition();
+        batchForced = lock.newCondition();
+        pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        writing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        flusher = new Thread(this::flushBatches, "wal-flusher");
+        flusher.setDaemon(true);
+        changeGate = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Passes every record in the log to the handler, cuts off a torn record
+     * at the end of the file, if there is one, and starts accepting changes.
+     */
+    public void recover(LogReader.RecordHandler handler) throws IOException {
+        lock.lock();
+        try {
+            if (recovered) {
+                throw new IllegalStateException("The write-ahead log is already recovered!");
+            }
+            long validLength = LogReader.read(channel, handler);
+            if (validLength < channel.size()) {
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+            channel.position(validLength);
+            appendedPosition = validLength;
+            durablePosition = validLength;
+            recovered = true;
+            flusher.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a record to the next batch and returns right away.
+     * Call {@link #sync()} to wait until the record is on the disk.
+     * <p>
+     * Records are written in the order they are appended, so callers
+     * changing the same item have to append while holding its lock.
+     * <p>
+     * Waits while {@link #MAX_PENDING_SIZE} bytes are not written yet,
+     * and fails once writing the log failed, as the record would never
+     * get to the disk.
+     */
+    public void append(LogRecordType type, byte[] payload) {
+        CRC32 checksum = new CRC32();
+        checksum.update(type.getCode());
+        checksum.update(payload, 0, payload.length);
+        int recordSize = RECORD_OVERHEAD + payload.length;
+        lock.lock();
+        try {
+            checkOpen();
+            checkFailure();
+            while (pending.position() > 0 && pending.position() + recordSize > MAX_PENDING_SIZE) {
+                waitingAppenders++;
+                recordsAppended.signal();
+                try {
+                    batchForced.awaitUninterruptibly();
+                } finally {
+                    waitingAppenders--;
+                }
+                checkOpen();
+                checkFailure();
+            }
+            ensureCapacity(recordSize);
+            pending.putInt(1 + payload.length)
+                    .put(type.getCode())
+                    .put(payload)
+                    .putInt((int) checksum.getValue());
+            appendedPosition += recordSize;
+            if (durability == Durability.BATCH) {
+                recordsAppended.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Has to be called before a change is appended, and {@link #endChange()}
+     * after it is applied in memory, so a roll over never splits the two.
+     */
+    public void beginChange() {
+        changeGate.readLock().lock();
+    }
+
+    public void endChange() {
+        changeGate.readLock().unlock();
+    }
+
+    /**
+     * Writes every appended record to the current file and continues
+     * in the given one. Every change appended to the old file is
+     * already applied in memory when this method returns.
+     */
+    public void rollover(Path file) {
+        changeGate.writeLock().lock();
+        try {
+            lock.lock();
+            try {
+                checkOpen();
+                nextFile = file;
+                recordsAppended.signal();
+                while (nextFile != null) {
+                    checkFailure();
+                    batchForced.awaitUninterruptibly();
+                }
+                checkFailure();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            changeGate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is on the disk.
+     * Returns right away with {@link Durability#INTERVAL}, unless
+     * writing the log failed.
+     */
+    public void sync() {
+        if (durability != Durability.BATCH) {
+            checkFailure();
+            return;
+        }
+        lock.lock();
+        try {
+            long target = appendedPosition;
+            while (durablePosition < target) {
+                checkFailure();
+                batchForced.awaitUninterruptibly();
+            }
+            checkFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the remaining records, forces them
+     * to the disk and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            recordsAppended.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (recovered) {
+                flusher.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flushBatches() {
+        while (true) {
+            long batchEnd;
+            boolean last;
+            Path switchTo;
+            lock.lock();
+            try {
+                waitForRecords();
+                last = closed;
+                switchTo = nextFile;
+                ByteBuffer batch = pending;
+                pending = writing;
+                writing = batch;
+                batchEnd = appendedPosition;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = writeBatch();
+            if (error == null && switchTo != null) {
+                error = switchFile(switchTo);
+            }
+            lock.lock();
+            try {
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                if (switchTo != null) {
+                    nextFile = null;
+                }
+                durablePosition = batchEnd;
+                batchForced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (last || error != null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * With batch durability waits until there are records, with interval
+     * durability sleeps for the interval, unless the log is closed.
+     */
+    private void waitForRecords() {
+        if (durability == Durability.INTERVAL) {
+            long left = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            while (!closed && nextFile == null && waitingAppenders == 0 && left > 0) {
+                try {
+                    left = recordsAppended.awaitNanos(left);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        } else {
+            while (!closed && nextFile == null && pending.position() == 0) {
+                recordsAppended.awaitUninterruptibly();
+            }
+        }
+    }
+
+    private IOException writeBatch() {
+        writing.flip();
+        try {
+            boolean written = writing.hasRemaining();
+            while (writing.hasRemaining()) {
+                channel.write(writing);
+            }
+            if (written) {
+                long start = FORCE_TIMER.start();
+                channel.force(false);
+                FORCE_TIMER.stop(start);
+            }
+            return null;
+        } catch (IOException e) {
+            return e;
+        } finally {
+            writing.clear();
+        }
+    }
+
+    private IOException switchFile(Path file) {
+        try {
+            FileChannel next = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.close();
+            channel = next;
+            channel.position(channel.size());
+            return null;
+        } catch (IOException e) {
+            return e;
+        }
+    }
+
+    private void ensureCapacity(int recordSize) {
+        if (pending.remaining() < recordSize) {
+            int capacity = Math.max(pending.capacity() * 2, pending.position() + recordSize);
+            ByteBuffer larger = ByteBuffer.allocate(capacity);
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    private void checkOpen() {
+        if (!recovered || closed) {
+            throw new IllegalStateException("The write-ahead log is not open!");
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Writing the write-ahead log failed", failure);
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the booked intervals of every room,
+ * used to answer overlap and availability queries
+ * without scanning all bookings.
+ * <p>
+ * Each room keeps its bookings in an interval tree ordered by arrival
+ * date, which knows the latest departure below every node, so a query
+ * only walks the bookings which can overlap the given dates.
+ * Next to them each room keeps an {@link OccupancyCalendar},
+ * which answers availability queries for the next two years.
+ * <p>
+ * Every room is guarded by its own lock, so rooms can be
+ * read and updated in parallel.
+ * <p>
+ * The index has to be updated by the repository
+ * every time a booking is saved, moved or deleted.
+ */
+class BookingIntervalIndex {
+
+    private final ConcurrentMap<Integer, RoomIntervals> rooms;
+
+    /**
+     * First night of the occupancy calendars. Every room
+     * moves its calendar here the next time it is used.
+     */
+    private volatile int calendarStart;
+
+    BookingIntervalIndex(LocalDate calendarStart) {
+        rooms = new ConcurrentHashMap<>();
+        this.calendarStart = toDay(calendarStart);
+    }
+
+    /**
+     * Adds the dates of the given booking to the index of its room
+     */
+    void add(Booking booking) {
+        rooms.computeIfAbsent(booking.getRoomId(), roomId -> new RoomIntervals())
+                .add(booking.getBookingId(), toDay(booking.getFrom()), toDay(booking.getTo()), calendarStart);
+    }
+
+    /**
+     * Adds the dates of many bookings at once. The bookings are sorted
+     * by room and arrival date first, so every room takes its lock once
+     * for all of its new bookings. A room without bookings builds a
+     * balanced tree of them in linear time, any other room inserts
+     * them into its tree one by one, in logarithmic time each.
+     */
+    void addAll(Booking[] bookings) {
+        Booking[] sorted = bookings.clone();
+        Arrays.sort(sorted, Comparator.comparingInt(Booking::getRoomId)
+                .thenComparing(Booking::getFrom)
+                .thenComparingInt(Booking::getBookingId));
+        int start = 0;
+        while (start < sorted.length) {
+            int roomId = sorted[start].getRoomId();
+            int end = start;
+            while (end < sorted.length && sorted[end].getRoomId() == roomId) {
+                end++;
+            }
+            int count = end - start;
+            int[] froms = new int[count];
+            int[] tos = new int[count];
+            int[] ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                Booking booking = sorted[start + i];
+                froms[i] = toDay(booking.getFrom());
+                tos[i] = toDay(booking.getTo());
+                ids[i] = booking.getBookingId();
+            }
+            rooms.computeIfAbsent(roomId, id -> new RoomIntervals()).addAll(froms, tos, ids, calendarStart);
+            start = end;
+        }
+    }
+
+    /**
+     * Removes the dates of the given booking from the index of its room.
+     * <p>
+     * The booking must still have the dates it was indexed with.
+     */
+    void remove(Booking booking) {
+        RoomIntervals intervals = rooms.get(booking.getRoomId());
+        if (intervals != null) {
+            intervals.remove(booking.getBookingId(), toDay(booking.getFrom()), toDay(booking.getTo()),
+                    calendarStart);
+        }
+    }
+
+    /**
+     * Replaces the dates of a booking in one step, so no reader
+     * can see the room without the booking in between.
+     */
+    void move(Booking oldBooking, Booking newBooking) {
+        RoomIntervals intervals = rooms.computeIfAbsent(newBooking.getRoomId(), roomId -> new RoomIntervals());
+        synchronized (intervals) {
+            remove(oldBooking);
+            add(newBooking);
+        }
+    }
+
+    /**
+     * Returns true if no booking of the room
+     * overlaps the nights between from and to.
+     */
+    boolean isFree(int roomId, LocalDate from, LocalDate to) {
+        RoomIntervals intervals = rooms.get(roomId);
+        return intervals == null || intervals.isFree(toDay(from), toDay(to), calendarStart);
+    }
+
+    /**
+     * Returns the ids of the bookings of the room,
+     * which overlap the nights between from and to,
+     * ordered by their arrival date.
+     */
+    int[] findOverlapping(int roomId, LocalDate from, LocalDate to) {
+        RoomIntervals intervals = rooms.get(roomId);
+        if (intervals == null) {
+            return new int[0];
+        }
+        return intervals.findOverlapping(toDay(from), toDay(to));
+    }
+
+    /**
+     * Moves the occupancy calendars of all rooms to start at the given night.
+     * Each room catches up the next time it is used.
+     */
+    void moveCalendar(LocalDate firstNight) {
+        calendarStart = toDay(firstNight);
+    }
+
+    /**
+     * Removes all rooms from the index
+     */
+    void clear() {
+        rooms.clear();
+    }
+
+    /**
+     * Returns the number of indexed bookings, counting every room
+     */
+    long size() {
+        long size = 0;
+        for (RoomIntervals intervals : rooms.values()) {
+            size += intervals.size();
+        }
+        return size;
+    }
+
+    private static int toDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    /**
+     * The bookings of a single room in an AVL tree ordered by arrival day
+     * and then by id, together with the occupancy calendar of the room.
+     * <p>
+     * Every node also holds the latest departure day in its subtree, so
+     * subtrees, which end before a date, are skipped. A booking is added
+     * or removed in O(log n), a room is checked for an overlap in O(log n)
+     * and the k overlapping bookings are found in O(k log n), however long
+     * the stays are.
+     * <p>
+     * The nodes are kept in parallel arrays of ints, a node is its index,
+     * so the tree takes no object per booking. The nodes of removed
+     * bookings are reused, chained by their left child.
+     */
+    private static class RoomIntervals {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private static final int NIL = -1;
+
+        private int[] froms = new int[INITIAL_CAPACITY];
+        private int[] tos = new int[INITIAL_CAPACITY];
+        private int[] ids = new int[INITIAL_CAPACITY];
+
+        /**
+         * The latest departure day in the subtree of each node
+         */
+        private int[] maxTos = new int[INITIAL_CAPACITY];
+        private int[] lefts = new int[INITIAL_CAPACITY];
+        private int[] rights = new int[INITIAL_CAPACITY];
+        private int[] heights = new int[INITIAL_CAPACITY];
+
+        private int root = NIL;
+        private int size;
+
+        /**
+         * Number of nodes ever used, the next new node
+         */
+        private int used;
+
+        /**
+         * First node of the chain of removed nodes
+         */
+        private int free = NIL;
+
+        /**
+         * The nodes found by the last walk over the overlapping bookings
+         */
+        private int[] found = new int[INITIAL_CAPACITY];
+        private int foundCount;
+
+        private OccupancyCalendar calendar;
+
+        synchronized void add(int id, int from, int to, int calendarStart) {
+            root = insert(root, newNode(id, from, to));
+            size++;
+            calendar(calendarStart).occupy(from, to);
+        }
+
+        /**
+         * Adds bookings sorted by arrival day and id. An empty room
+         * builds a balanced tree of them at once in O(n).
+         */
+        synchronized void addAll(int[] newFroms, int[] newTos, int[] newIds, int calendarStart) {
+            int count = newIds.length;
+            if (root == NIL) {
+                // all nodes of an empty room are unused, so the new ones are taken in order
+                used = 0;
+                free = NIL;
+                for (int k = 0; k < count; k++) {
+                    newNode(newIds[k], newFroms[k], newTos[k]);
+                }
+                root = build(0, count - 1);
+            } else {
+                for (int k = 0; k < count; k++) {
+                    root = insert(root, newNode(newIds[k], newFroms[k], newTos[k]));
+                }
+            }
+            size += count;
+            OccupancyCalendar calendar = calendar(calendarStart);
+            for (int k = 0; k < count; k++) {
+                calendar.occupy(newFroms[k], newTos[k]);
+            }
+        }
+
+        /**
+         * Removes the booking and releases its nights in the calendar.
+         * Any other booking of the room, which overlaps them,
+         * occupies them again.
+         */
+        synchronized void remove(int id, int from, int to, int calendarStart) {
+            int sizeBefore = size;
+            root = delete(root, from, id);
+            if (size == sizeBefore) {
+                return;
+            }
+            OccupancyCalendar calendar = calendar(calendarStart);
+            calendar.release(from, to);
+            occupyOverlapping(calendar, from, to);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized boolean isFree(int from, int to, int calendarStart) {
+            OccupancyCalendar calendar = calendar(calendarStart);
+            if (calendar.covers(from, to)) {
+                return calendar.isFree(from, to);
+            }
+            // if the left subtree ends after from, but none of it overlaps, one of its bookings
+            // arrives at or after to, and so does every booking to the right of it
+            int node = root;
+            while (node != NIL) {
+                if (froms[node] < to && tos[node] > from) {
+                    return false;
+                }
+                node = lefts[node] != NIL && maxTos[lefts[node]] > from ? lefts[node] : rights[node];
+            }
+            return true;
+        }
+
+        synchronized int[] findOverlapping(int from, int to) {
+            findOverlappingNodes(from, to);
+            int[] result = new int[foundCount];
+            for (int i = 0; i < foundCount; i++) {
+                result[i] = ids[found[i]];
+            }
+            return result;
+        }
+
+        /**
+         * Returns the calendar of the room, first moving it
+         * to the given start and filling in the nights,
+         * which entered its window.
+         */
+        private OccupancyCalendar calendar(int calendarStart) {
+            if (calendar == null) {
+                calendar = new OccupancyCalendar(calendarStart);
+            } else if (calendar.getFirstDay() != calendarStart) {
+                int entered = calendar.moveTo(calendarStart);
+                occupyOverlapping(calendar, entered, calendarStart + OccupancyCalendar.WINDOW_DAYS);
+            }
+            return calendar;
+        }
+
+        private void occupyOverlapping(OccupancyCalendar calendar, int from, int to) {
+            findOverlappingNodes(from, to);
+            for (int i = 0; i < foundCount; i++) {
+                calendar.occupy(froms[found[i]], tos[found[i]]);
+            }
+        }
+
+        /**
+         * Collects the nodes of the bookings overlapping the nights
+         * between from and to in {@link #found}, ordered by arrival day
+         */
+        private void findOverlappingNodes(int from, int to) {
+            foundCount = 0;
+            collect(root, from, to);
+        }
+
+        private void collect(int node, int from, int to) {
+            if (node == NIL || maxTos[node] <= from) {
+                return;
+            }
+            collect(lefts[node], from, to);
+            if (froms[node] >= to) {
+                // the bookings to the right arrive even later
+                return;
+            }
+            if (tos[node] > from) {
+                if (foundCount == found.length) {
+                    found = Arrays.copyOf(found, foundCount * 2);
+                }
+                found[foundCount++] = node;
+            }
+            collect(rights[node], from, to);
+        }
+
+        private int newNode(int id, int from, int to) {
+            int node;
+            if (free != NIL) {
+                node = free;
+                free = lefts[node];
+            } else {
+                if (used == ids.length) {
+                    int capacity = used * 2;
+                    froms = Arrays.copyOf(froms, capacity);
+                    tos = Arrays.copyOf(tos, capacity);
+                    ids = Arrays.copyOf(ids, capacity);
+                    maxTos = Arrays.copyOf(maxTos, capacity);
+                    lefts = Arrays.copyOf(lefts, capacity);
+                    rights = Arrays.copyOf(rights, capacity);
+                    heights = Arrays.copyOf(heights, capacity);
+                }
+                node = used++;
+            }
+            froms[node] = from;
+            tos[node] = to;
+            ids[node] = id;
+            maxTos[node] = to;
+            lefts[node] = NIL;
+            rights[node] = NIL;
+            heights[node] = 1;
+            return node;
+        }
+
+        /**
+         * Links the consecutive nodes from low to high, which are sorted,
+         * into a balanced subtree and returns its root
+         */
+        private int build(int low, int high) {
+            if (low > high) {
+                return NIL;
+            }
+            int middle = (low + high) >>> 1;
+            lefts[middle] = build(low, middle - 1);
+            rights[middle] = build(middle + 1, high);
+            update(middle);
+            return middle;
+        }
+
+        /**
+         * Inserts the node into the subtree and returns its new root
+         */
+        private int insert(int node, int added) {
+            if (node == NIL) {
+                return added;
+            }
+            if (compare(froms[added], ids[added], node) < 0) {
+                lefts[node] = insert(lefts[node], added);
+            } else {
+                rights[node] = insert(rights[node], added);
+            }
+            return balance(node);
+        }
+
+        /**
+         * Removes the booking from the subtree, if it is there,
+         * and returns the new root of the subtree
+         */
+        private int delete(int node, int from, int id) {
+            if (node == NIL) {
+                return NIL;
+            }
+            int compared = compare(from, id, node);
+            if (compared < 0) {
+                lefts[node] = delete(lefts[node], from, id);
+                return balance(node);
+            } else if (compared > 0) {
+                rights[node] = delete(rights[node], from, id);
+                return balance(node);
+            }
+            int left = lefts[node];
+            int right = rights[node];
+            lefts[node] = free;
+            free = node;
+            size--;
+            if (left == NIL) {
+                return right;
+            } else if (right == NIL) {
+                return left;
+            }
+            int successor = right;
+            while (lefts[successor] != NIL) {
+                successor = lefts[successor];
+            }
+            rights[successor] = deleteFirst(right);
+            lefts[successor] = left;
+            return balance(successor);
+        }
+
+        /**
+         * Unlinks the first node of the subtree and returns the new root of the subtree
+         */
+        private int deleteFirst(int node) {
+            if (lefts[node] == NIL) {
+                return rights[node];
+            }
+            lefts[node] = deleteFirst(lefts[node]);
+            return balance(node);
+        }
+
+        /**
+         * Updates the node and rotates it, if its subtrees differ
+         * in height by two, and returns the new root of the subtree
+         */
+        private int balance(int node) {
+            update(node);
+            int difference = height(lefts[node]) - height(rights[node]);
+            if (difference > 1) {
+                if (height(lefts[lefts[node]]) < height(rights[lefts[node]])) {
+                    lefts[node] = rotateLeft(lefts[node]);
+                }
+                return rotateRight(node);
+            } else if (difference < -1) {
+                if (height(rights[rights[node]]) < height(lefts[rights[node]])) {
+                    rights[node] = rotateRight(rights[node]);
+                }
+                return rotateLeft(node);
+            }
+            return node;
+        }
+
+        private int rotateRight(int node) {
+            int left = lefts[node];
+            lefts[node] = rights[left];
+            rights[left] = node;
+            update(node);
+            update(left);
+            return left;
+        }
+
+        private int rotateLeft(int node) {
+            int right = rights[node];
+            rights[node] = lefts[right];
+            lefts[right] = node;
+            update(node);
+            update(right);
+            return right;
+        }
+
+        private void update(int node) {
+            int left = lefts[node];
+            int right = rights[node];
+            heights[node] = 1 + Math.max(height(left), height(right));
+            int maxTo = tos[node];
+            if (left != NIL) {
+                maxTo = Math.max(maxTo, maxTos[left]);
+            }
+            if (right != NIL) {
+                maxTo = Math.max(maxTo, maxTos[right]);
+            }
+            maxTos[node] = maxTo;
+        }
+
+        private int height(int node) {
+            return node == NIL ? 0 : heights[node];
+        }
+
+        /**
+         * Compares the arrival day and id with the ones of the node
+         */
+        private int compare(int from, int id, int node) {
+            return froms[node] != from ? Integer.compare(from, froms[node]) : Integer.compare(id, ids[node]);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+
+/**
+ * Is told about every change of the bookings of a {@link BookingRepository},
+ * including the changes replayed when loading it from disk.
+ * <p>
+ * The methods are called by the thread making the change, right after it is
+ * applied, with the read-only bookings. Changes of different rooms are told
+ * from many threads at once, so listeners have to be thread-safe and fast.
+ */
+public interface BookingListener {
+
+    void bookingSaved(Booking booking);
+
+    /**
+     * The dates of a booking were changed
+     *
+     * @param old the booking with the old dates
+     * @param moved the booking with the new dates
+     */
+    void bookingMoved(Booking old, Booking moved);
+
+    void bookingDeleted(Booking booking);
+
+    /**
+     * All bookings were deleted at once
+     */
+    void bookingsCleared();
+}
@@ -2,33 +2,179 @@ package eu.deltasource.internship.hotel.repository;
 
 import eu.deltasource.internship.hotel.domain.Booking;
 import eu.deltasource.internship.hotel.exception.ItemNotFoundException;
+import eu.deltasource.internship.hotel.metrics.Metrics;
+import eu.deltasource.internship.hotel.persistence.LogRecordType;
+import eu.deltasource.internship.hotel.persistence.RecordCodec;
+import eu.deltasource.internship.hotel.persistence.WriteAheadLog;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
+ * The repository is safe to use from many threads.
+ * Stored bookings are never changed, every update
+ * replaces the stored booking with a new one.
+ * Stored bookings are read-only and are handed out
+ * without copying them, a {@link BookingStorage}, which
+ * does not keep the objects, creates them on every read.
+ * <p>
  * Created by Taner Ilyazov - Delta Source Bulgaria on 2019-07-28.
  */
 public class BookingRepository {
 
-    private final List<Booking> repository;
+    /**
+     * Pages are allocated for at most this many items up front
+     */
+    private static final int PAGE_CAPACITY = 1024;
+
+    /**
+     * Number of id lock stripes, has to be a power of two
+     */
+    private static final int ID_LOCKS = 64;
+
+    private final BookingStorage repository;
+
+    /**
+     * Keep a booking from being saved, moved and deleted at once, so the
+     * indexes and the listeners see the changes of a booking in order.
+     * Changes of many bookings at once take all of them in order.
+     */
+    private final Lock[] idLocks;
+
+    private final BookingIntervalIndex intervalIndex;
+
+    private final GuestBookingIndex guestIndex;
+
+    private final AtomicInteger lastId;
+
+    private final WriteAheadLog log;
+
+    private final List<BookingListener> listeners;
+
+    private volatile ChangeFeed changeFeed;
+
+    private volatile RepositoryVersions versions;
+
+    /**
+     * The items replaced while a snapshot is open
+     */
+    private final VersionHistory<Booking> history;
 
     /**
      * Default constructor, which initializes the repository
-     * as an empty ArrayList.
+     * as an empty concurrent map indexed by id.
      */
     public BookingRepository() {
-        repository = new ArrayList<>();
+        this(null);
+    }
+
+    /**
+     * Initializes the repository, writing every change to the given log.
+     * Without a log the repository is kept only in memory.
+     */
+    public BookingRepository(WriteAheadLog log) {
+        this(log, new MapBookingStorage());
+    }
+
+    /**
+     * Initializes the repository, which keeps its bookings in the given
+     * empty storage, for example a {@link ColumnarBookingStorage}
+     * for millions of bookings.
+     */
+    public BookingRepository(WriteAheadLog log, BookingStorage storage) {
+        repository = storage;
+        idLocks = new Lock[ID_LOCKS];
+        for (int i = 0; i < ID_LOCKS; i++) {
+            idLocks[i] = new ReentrantLock();
+        }
+        intervalIndex = new BookingIntervalIndex(LocalDate.now());
+        guestIndex = new GuestBookingIndex();
+        lastId = new AtomicInteger();
+        this.log = log;
+        history = new VersionHistory<>();
+        listeners = new CopyOnWriteArrayList<>();
+        Metrics.gauge("bookings", repository, BookingStorage::size);
+        Metrics.gauge("booking_interval_index_entries", intervalIndex, BookingIntervalIndex::size);
+        Metrics.gauge("guest_booking_index_guests", guestIndex, GuestBookingIndex::size);
+    }
+
+    /**
+     * Adds a listener, which is told about every later change of the bookings
+     */
+    public void addListener(BookingListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Publishes every later change of the bookings to the given feed,
+     * or to none if it is null. The changes replayed when loading
+     * the repository from disk are not published.
+     */
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Versions every later change for the snapshots of the given versions
+     */
+    void setVersions(RepositoryVersions versions) {
+        this.versions = versions;
     }
 
     /**
      * Returns an unmodifiable list of all items
-     * currently in the repository.
+     * currently in the repository, ordered by id.
+     * The items are read-only.
      */
     public List<Booking> findAll() {
-        return Collections.unmodifiableList(repository);
+        List<Booking> items = new ArrayList<>(repository.size());
+        repository.forEach(items::add);
+        items.sort(Comparator.comparingInt(Booking::getBookingId));
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Returns an unmodifiable page of at most limit items with ids greater
+     * than afterId, ordered by id. The id of the last item is the afterId
+     * of the next page, a page with fewer items than the limit is the last one.
+     * The items are read-only.
+     * <p>
+     * Pages stay consistent while items are saved and deleted between them:
+     * no item, which is stored the whole time, is skipped or returned twice.
+     */
+    public List<Booking> findAll(int afterId, int limit) {
+        List<Booking> page = new ArrayList<>(Math.max(Math.min(limit, PAGE_CAPACITY), 0));
+        for (int id = repository.nextId(afterId); id != 0 && page.size() < limit; id = repository.nextId(id)) {
+            // deleted after its id was found
+            Booking item = repository.get(id);
+            if (item != null) {
+                page.add(item);
+            }
+        }
+        return Collections.unmodifiableList(page);
+    }
+
+    /**
+     * Returns a lazy stream of the read-only items ordered by id,
+     * which neither copies the repository nor keeps writers waiting.
+     * <p>
+     * The stream is weakly consistent, it sees every item stored
+     * the whole time it is used, and may or may not see the items
+     * saved or deleted meanwhile.
+     */
+    public Stream<Booking> stream() {
+        return StreamSupport.stream(
+                new IdRangeSpliterator<>(repository::nextId, repository::get, 1, lastId.get() + 1), false);
     }
 
     /**
@@ -38,32 +184,80 @@ public class BookingRepository {
      * Check this always, before using operations with id's.
      */
     public boolean existsById(int id) {
-        for (Booking item : repository) {
-            if (item.getBookingId() == id)
-                return true;
-        }
-        return false;
+        return repository.containsKey(id);
     }
 
     /**
-     * Returns an item from the repository
+     * Returns the item with the given id without copying it.
+     * <p>
+     * The item is read-only, create a copy
+     * with the copy constructor to change it.
      */
     public Booking findById(int id) {
-        for (Booking item : repository) {
-            if (item.getBookingId() == id)
-                return new Booking(item);
-        }
-        throw new ItemNotFoundException("A booking with id: " + id + " was not found!");
+        return findStored(id);
+    }
+
+    /**
+     * Returns an unmodifiable list of the items at the epoch
+     * of an open snapshot, ordered by id
+     */
+    List<Booking> findAllAt(long epoch) {
+        return Collections.unmodifiableList(new ArrayList<>(
+                history.readAll(repository::forEach, Booking::getBookingId, epoch).values()));
+    }
+
+    /**
+     * Returns the item with the id at the epoch of an
+     * open snapshot, or null if there was none
+     */
+    Booking findByIdAt(int id, long epoch) {
+        return history.read(id, repository.get(id), epoch);
+    }
+
+    /**
+     * Drops the replaced items, which no snapshot at
+     * the given epoch or later needs any more
+     */
+    void pruneVersions(long oldestEpoch) {
+        history.prune(oldestEpoch);
     }
 
     /**
-     * Saves the item in the repository with a new id
-     * using the item count in the repository
+     * Returns the number of items, whose replaced versions are kept for snapshots
      */
-    public void save(Booking item) {
-        Booking newBooking = new Booking(count() + 1, item.getGuestId(), item.getRoomId(),
-                item.getNumberOfPeople(), item.getFrom(), item.getTo());
-        repository.add(newBooking);
+    int getOldVersionCount() {
+        return history.size();
+    }
+
+    /**
+     * Saves the item in the repository with a new id,
+     * which is one greater than the last id given out.
+     * <p>
+     * Returns the saved item, which is read-only
+     */
+    public Booking save(Booking item) {
+        Booking newBooking = new Booking(lastId.incrementAndGet(), item.getGuestId(), item.getRoomId(),
+                item.getNumberOfPeople(), item.getFrom(), item.getTo()).makeReadOnly();
+        Lock lock = idLock(newBooking.getBookingId());
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lock.lock();
+        try {
+            log(LogRecordType.BOOKING_SAVED, RecordCodec.encodeBooking(newBooking));
+            event = claim(feed, ChangeType.BOOKING_SAVED, newBooking.getBookingId(), newBooking);
+            record(newBooking.getBookingId(), null, version);
+            repository.put(newBooking);
+            intervalIndex.add(newBooking);
+            guestIndex.add(newBooking);
+            fireSaved(newBooking);
+        } finally {
+            lock.unlock();
+            endChange(version);
+            publish(feed, event);
+        }
+        sync();
+        return newBooking;
     }
 
     /**
@@ -81,6 +275,52 @@ public class BookingRepository {
         saveAll(Arrays.asList(items));
     }
 
+    /**
+     * Reserves the given number of consecutive ids at once
+     * and returns the first of them. None of them is given
+     * out again by {@link #save(Booking)}.
+     */
+    public int reserveIds(int count) {
+        return lastId.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Saves items, which already have ids reserved with {@link #reserveIds(int)},
+     * all at once. Every item is written to the log, but the log is waited for
+     * only once and the interval index is built once, after all items are stored.
+     * <p>
+     * All validations should be done in the service layer!!!
+     */
+    public void saveReserved(List<Booking> items) {
+        Booking[] newBookings = new Booking[items.size()];
+        ChangeFeed feed = changeFeed;
+        ChangeEvent[] events = new ChangeEvent[newBookings.length];
+        long version = beginChange();
+        lockAll();
+        try {
+            for (int i = 0; i < newBookings.length; i++) {
+                Booking newBooking = items.get(i).makeReadOnly();
+                log(LogRecordType.BOOKING_SAVED, RecordCodec.encodeBooking(newBooking));
+                events[i] = claim(feed, ChangeType.BOOKING_SAVED, newBooking.getBookingId(), newBooking);
+                record(newBooking.getBookingId(), null, version);
+                repository.put(newBooking);
+                guestIndex.add(newBooking);
+                newBookings[i] = newBooking;
+            }
+            intervalIndex.addAll(newBookings);
+            for (Booking newBooking : newBookings) {
+                fireSaved(newBooking);
+            }
+        } finally {
+            unlockAll();
+            endChange(version);
+            for (ChangeEvent event : events) {
+                publish(feed, event);
+            }
+        }
+        sync();
+    }
+
     /**
      * Updates the dates of a given booking
      * <p>
@@ -91,8 +331,36 @@ public class BookingRepository {
      * All validations should be done in the service layer!!!
      */
     public Booking updateDates(Booking item) {
-        Booking updatedBooking = findById(item.getBookingId());
-        updatedBooking.setBookingDates(item.getFrom(), item.getTo());
+        Booking updatedBooking = null;
+        int id = item.getBookingId();
+        Lock lock = idLock(id);
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lock.lock();
+        try {
+            Booking stored = repository.get(id);
+            if (stored != null) {
+                updatedBooking = new Booking(id, stored.getGuestId(), stored.getRoomId(),
+                        stored.getNumberOfPeople(), item.getFrom(), item.getTo()).makeReadOnly();
+                log(LogRecordType.BOOKING_UPDATED, RecordCodec.encodeBooking(updatedBooking));
+                event = claim(feed, ChangeType.BOOKING_UPDATED, id, updatedBooking);
+                intervalIndex.move(stored, updatedBooking);
+                for (BookingListener listener : listeners) {
+                    listener.bookingMoved(stored, updatedBooking);
+                }
+                record(id, stored, version);
+                repository.put(updatedBooking);
+            }
+        } finally {
+            lock.unlock();
+            endChange(version);
+            publish(feed, event);
+        }
+        if (updatedBooking == null) {
+            throw new ItemNotFoundException("A booking with id: " + item.getBookingId() + " was not found!");
+        }
+        sync();
         return updatedBooking;
     }
 
@@ -104,7 +372,7 @@ public class BookingRepository {
      * returns false if there's no match and the list is unchanged.
      */
     public boolean delete(Booking item) {
-        return repository.remove(item);
+        return remove(item.getBookingId());
     }
 
     /**
@@ -115,15 +383,36 @@ public class BookingRepository {
      * returns false if there's no match and the list is unchanged.
      */
     public boolean deleteById(int id) {
-        Booking item = findById(id);
-        return delete(item);
+        if (!remove(id)) {
+            throw new ItemNotFoundException("A booking with id: " + id + " was not found!");
+        }
+        return true;
     }
 
     /**
      * Deletes all items in the repository
      */
     public void deleteAll() {
-        repository.clear();
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lockAll();
+        try {
+            log(LogRecordType.BOOKINGS_CLEARED, new byte[0]);
+            event = claim(feed, ChangeType.BOOKINGS_CLEARED, 0, null);
+            if (isRecording(version)) {
+                repository.forEach(booking -> history.record(booking.getBookingId(), booking, version));
+            }
+            repository.clear();
+            intervalIndex.clear();
+            guestIndex.clear();
+            fireCleared();
+        } finally {
+            unlockAll();
+            endChange(version);
+            publish(feed, event);
+        }
+        sync();
     }
 
     /**
@@ -132,4 +421,293 @@ public class BookingRepository {
     public int count() {
         return repository.size();
     }
+
+    /**
+     * Checks if the room has no booking for any
+     * of the nights between from and to.
+     * <p>
+     * All validations should be done in the service layer!!!
+     */
+    public boolean isRoomAvailable(int roomId, LocalDate from, LocalDate to) {
+        return intervalIndex.isFree(roomId, from, to);
+    }
+
+    /**
+     * Returns the ids of the given rooms, which have no booking
+     * for any of the nights between from and to, in the given order.
+     * <p>
+     * All validations should be done in the service layer!!!
+     */
+    public int[] findAvailableRoomIds(int[] roomIds, LocalDate from, LocalDate to) {
+        int[] available = new int[roomIds.length];
+        int found = 0;
+        for (int roomId : roomIds) {
+            if (isRoomAvailable(roomId, from, to)) {
+                available[found++] = roomId;
+            }
+        }
+        return Arrays.copyOf(available, found);
+    }
+
+    /**
+     * Moves the occupancy calendar to start at the given night,
+     * which keeps the fast availability checks covering the
+     * next two years. Should be called once a day.
+     */
+    public void moveOccupancyCalendar(LocalDate firstNight) {
+        intervalIndex.moveCalendar(firstNight);
+    }
+
+    /**
+     * Returns the read-only bookings of the room, which overlap
+     * any of the nights between from and to, ordered by arrival date.
+     * <p>
+     * All validations should be done in the service layer!!!
+     */
+    public List<Booking> findConflictingBookings(int roomId, LocalDate from, LocalDate to) {
+        int[] ids = intervalIndex.findOverlapping(roomId, from, to);
+        List<Booking> conflicts = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Booking booking = repository.get(id);
+            if (booking != null) {
+                conflicts.add(booking);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Returns the read-only bookings of the guest, ordered by arrival date and id
+     */
+    public List<Booking> findByGuestId(int guestId) {
+        List<Booking> bookings = new ArrayList<>();
+        for (Integer id : guestIndex.find(guestId)) {
+            Booking booking = repository.get(id);
+            if (booking != null) {
+                bookings.add(booking);
+            }
+        }
+        bookings.sort(Comparator.comparing(Booking::getFrom).thenComparingInt(Booking::getBookingId));
+        return Collections.unmodifiableList(bookings);
+    }
+
+    /**
+     * Returns the last id given out, which may
+     * belong to an item, which is already deleted.
+     */
+    public int getLastId() {
+        return lastId.get();
+    }
+
+    /**
+     * Makes sure no id up to the given one is given out again.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restoreLastId(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Puts the item in the repository with its own id,
+     * without writing it to the log.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restore(Booking item) {
+        item.makeReadOnly();
+        Booking old = repository.put(item);
+        if (old != null) {
+            intervalIndex.remove(old);
+            guestIndex.remove(old);
+        }
+        intervalIndex.add(item);
+        guestIndex.add(item);
+        if (old != null) {
+            for (BookingListener listener : listeners) {
+                listener.bookingMoved(old, item);
+            }
+        } else {
+            fireSaved(item);
+        }
+        lastId.accumulateAndGet(item.getBookingId(), Math::max);
+    }
+
+    /**
+     * Removes the item with the given id, if there is one,
+     * without writing it to the log.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restoreDeletion(int id) {
+        Booking removed = repository.remove(id);
+        if (removed != null) {
+            intervalIndex.remove(removed);
+            guestIndex.remove(removed);
+            fireDeleted(removed);
+        }
+    }
+
+    /**
+     * Removes all items without writing it to the log.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restoreDeleteAll() {
+        repository.clear();
+        intervalIndex.clear();
+        guestIndex.clear();
+        fireCleared();
+    }
+
+    private boolean remove(int id) {
+        Lock lock = idLock(id);
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lock.lock();
+        try {
+            // kept for the snapshots before the booking is gone
+            Booking stored = isRecording(version) ? repository.get(id) : null;
+            if (stored != null) {
+                record(id, stored, version);
+            }
+            Booking removed = repository.remove(id);
+            if (removed == null) {
+                return false;
+            }
+            log(LogRecordType.BOOKING_DELETED, RecordCodec.encodeId(id));
+            event = claim(feed, ChangeType.BOOKING_DELETED, id, removed);
+            intervalIndex.remove(removed);
+            guestIndex.remove(removed);
+            fireDeleted(removed);
+        } finally {
+            lock.unlock();
+            endChange(version);
+            publish(feed, event);
+        }
+        sync();
+        return true;
+    }
+
+    private void fireSaved(Booking booking) {
+        for (BookingListener listener : listeners) {
+            listener.bookingSaved(booking);
+        }
+    }
+
+    private void fireDeleted(Booking booking) {
+        for (BookingListener listener : listeners) {
+            listener.bookingDeleted(booking);
+        }
+    }
+
+    private void fireCleared() {
+        for (BookingListener listener : listeners) {
+            listener.bookingsCleared();
+        }
+    }
+
+    /**
+     * Numbers the change for the feed, returns null without a feed
+     */
+    private static ChangeEvent claim(ChangeFeed feed, ChangeType type, int id, Booking item) {
+        return feed == null ? null : feed.claim(type, id, item);
+    }
+
+    /**
+     * Writes the claimed change to the feed, which may wait for
+     * a slow subscription, so no lock may be held any more
+     */
+    private static void publish(ChangeFeed feed, ChangeEvent event) {
+        if (event != null) {
+            feed.publish(event);
+        }
+    }
+
+    private Lock idLock(int id) {
+        return idLocks[id & (ID_LOCKS - 1)];
+    }
+
+    /**
+     * Locks all ids, so no booking is changed until {@link #unlockAll()}
+     */
+    private void lockAll() {
+        for (Lock lock : idLocks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = idLocks.length - 1; i >= 0; i--) {
+            idLocks[i].unlock();
+        }
+    }
+
+    /**
+     * Keeps the log from rolling over and snapshots from being opened
+     * until the change is applied, returns the version of the change
+     */
+    private long beginChange() {
+        if (log != null) {
+            log.beginChange();
+        }
+        RepositoryVersions current = versions;
+        return current == null ? RepositoryVersions.NOT_VERSIONED : current.beginChange();
+    }
+
+    private void endChange(long version) {
+        if (version != RepositoryVersions.NOT_VERSIONED) {
+            versions.endChange();
+        }
+        if (log != null) {
+            log.endChange();
+        }
+    }
+
+    /**
+     * Keeps the item, which the change replaces, if a snapshot is open
+     *
+     * @param before the item before the change, or null if there was none
+     */
+    private void record(int id, Booking before, long version) {
+        if (isRecording(version)) {
+            history.record(id, before, version);
+        }
+    }
+
+    private boolean isRecording(long version) {
+        return version != RepositoryVersions.NOT_VERSIONED && versions.isRecording();
+    }
+
+    private void log(LogRecordType type, byte[] payload) {
+        if (log != null) {
+            log.append(type, payload);
+        }
+    }
+
+    /**
+     * Waits until the logged changes are on the disk
+     */
+    private void sync() {
+        if (log != null) {
+            log.sync();
+        }
+    }
+
+    /**
+     * Returns the stored item with the given id,
+     * which is read-only, so it is handed out as it is.
+     */
+    private Booking findStored(int id) {
+        Booking item = repository.get(id);
+        if (item == null) {
+            throw new ItemNotFoundException("A booking with id: " + id + " was not found!");
+        }
+        return item;
+    }
 }
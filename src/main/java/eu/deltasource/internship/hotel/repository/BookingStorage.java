@@ -0,0 +1,51 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+
+import java.util.function.Consumer;
+
+/**
+ * Keeps the read-only bookings of a {@link BookingRepository} by id.
+ * <p>
+ * The methods can be called from many threads at once. The repository
+ * never changes the same id from two threads at once, so a storage only
+ * has to keep every single booking consistent for its readers.
+ */
+public interface BookingStorage {
+
+    /**
+     * Returns the booking with the given id, or null if there is none
+     */
+    Booking get(int id);
+
+    boolean containsKey(int id);
+
+    /**
+     * Stores the booking under its id and returns the one
+     * stored before, or null if there was none
+     */
+    Booking put(Booking booking);
+
+    /**
+     * Removes the booking with the given id and returns it,
+     * or null if there was none
+     */
+    Booking remove(int id);
+
+    void clear();
+
+    int size();
+
+    /**
+     * Returns the smallest id greater than afterId, which holds a booking,
+     * or 0 if there is none. It finds the next page of the repository,
+     * so it does not look at the ids of deleted bookings one by one.
+     */
+    int nextId(int afterId);
+
+    /**
+     * Calls the action with every stored booking, weakly consistent
+     * like the iterators of the concurrent collections
+     */
+    void forEach(Consumer<Booking> action);
+}
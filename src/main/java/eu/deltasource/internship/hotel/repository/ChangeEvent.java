@@ -0,0 +1,78 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Guest;
+import eu.deltasource.internship.hotel.domain.Room;
+
+/**
+ * A change of a repository, as read from a {@link ChangeFeed}.
+ * <p>
+ * The item is the read-only item after the change, or the deleted item
+ * for deletions. It is null when all items of a repository are cleared.
+ */
+public final class ChangeEvent {
+
+    private final long sequence;
+
+    private final ChangeType type;
+
+    private final int id;
+
+    private final Object item;
+
+    ChangeEvent(long sequence, ChangeType type, int id, Object item) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.item = item;
+    }
+
+    /**
+     * Returns the number of the change, which is one greater than the
+     * number of the change before it in the feed, starting at 1
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the id of the changed item, or 0 when all items are cleared
+     */
+    public int getId() {
+        return id;
+    }
+
+    public Object getItem() {
+        return item;
+    }
+
+    /**
+     * Returns the changed booking, or null if the change is not of a booking
+     */
+    public Booking getBooking() {
+        return item instanceof Booking ? (Booking) item : null;
+    }
+
+    /**
+     * Returns the changed guest, or null if the change is not of a guest
+     */
+    public Guest getGuest() {
+        return item instanceof Guest ? (Guest) item : null;
+    }
+
+    /**
+     * Returns the changed room, or null if the change is not of a room
+     */
+    public Room getRoom() {
+        return item instanceof Room ? (Room) item : null;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + type + " " + id;
+    }
+}
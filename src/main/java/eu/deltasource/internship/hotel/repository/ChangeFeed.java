@@ -0,0 +1,293 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.metrics.Metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The changes of the repositories, which publish to it, numbered in the
+ * order they were made, so other parts of the hotel can follow the changes
+ * without scanning the repositories again.
+ * <p>
+ * The last {@link #getCapacity()} changes are kept in a ring. A change
+ * takes the next sequence number and is written to its slot in the ring,
+ * by as many threads as change the repositories at once. They only share
+ * a read lock, which keeps a resuming subscription from missing a slot.
+ * Every {@link ChangeSubscription} reads the changes in order at its own
+ * pace. A slot is not written again before all subscriptions have read it,
+ * so a subscription, which falls a whole ring behind, keeps the next change
+ * waiting. The thread reading a subscription must never change
+ * the repositories, as it may then wait for itself.
+ * <p>
+ * A change takes its sequence with {@link #claim(ChangeType, int, Object)}
+ * where it is written to the log, so changes of the same item are numbered
+ * in the order they were made. It is written to the ring with
+ * {@link #publish(ChangeEvent)} only after the repository released its
+ * locks, so a writer waiting for a slow subscription never keeps other
+ * writers waiting. A reader may see a change a moment after the repository
+ * shows it, the events hold the changed items, so they need not be looked
+ * up. The changes replayed when loading the repositories from disk are not
+ * published, so sequence numbers are only valid until a restart.
+ */
+public class ChangeFeed {
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final int mask;
+
+    private final AtomicReferenceArray<ChangeEvent> events;
+
+    /**
+     * The sequence of the change in each slot, set after the change is written
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * The last sequence given out to a change
+     */
+    private final AtomicLong claimed;
+
+    private final List<ChangeSubscription> subscriptions;
+
+    /**
+     * Read by the writers, while they check and write a slot, written
+     * by the subscriptions, while they check where they start
+     */
+    private final StampedLock ringLock;
+
+    /**
+     * Guards the waiting of readers and writers
+     */
+    private final Lock lock;
+
+    private final Condition changePublished;
+
+    private final Condition changeRead;
+
+    private final AtomicInteger waitingReaders;
+
+    private final AtomicInteger waitingWriters;
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of changes kept, a power of two
+     */
+    public ChangeFeed(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity " + capacity + " is not a power of two!");
+        }
+        mask = capacity - 1;
+        events = new AtomicReferenceArray<>(capacity);
+        published = new AtomicLongArray(capacity);
+        claimed = new AtomicLong();
+        subscriptions = new CopyOnWriteArrayList<>();
+        ringLock = new StampedLock();
+        lock = new ReentrantLock();
+        changePublished = lock.newCondition();
+        changeRead = lock.newCondition();
+        waitingReaders = new AtomicInteger();
+        waitingWriters = new AtomicInteger();
+        Metrics.gauge("change_feed_last_sequence", claimed, AtomicLong::get);
+        Metrics.gauge("change_feed_subscriptions", subscriptions, List::size);
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the sequence of the last published change, 0 if there is none
+     */
+    public long getLastSequence() {
+        return claimed.get();
+    }
+
+    /**
+     * Returns a sequence, from which on all changes are still kept, so a
+     * subscription can resume from it. Older ones may be kept as well.
+     */
+    public long getFirstSequence() {
+        return Math.max(1, claimed.get() - mask);
+    }
+
+    /**
+     * Subscribes to the changes published from now on
+     */
+    public ChangeSubscription subscribe() {
+        long stamp = ringLock.writeLock();
+        try {
+            ChangeSubscription subscription = new ChangeSubscription(this, claimed.get() + 1);
+            subscriptions.add(subscription);
+            return subscription;
+        } finally {
+            ringLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Subscribes to the changes from the given sequence on, for example the
+     * {@link ChangeSubscription#getNextSequence()} of a closed subscription
+     *
+     * @throws IllegalArgumentException if the change with the sequence is not kept any more
+     *                                  or was not published yet
+     */
+    public ChangeSubscription subscribe(long nextSequence) {
+        long stamp = ringLock.writeLock();
+        try {
+            if (nextSequence <= 0 || nextSequence > claimed.get() + 1) {
+                throw new IllegalArgumentException("No change " + nextSequence + " was published!");
+            }
+            // no writer is between checking and writing a slot, so a slot not written
+            // again yet is kept, as the writers see the subscription from now on
+            if (published.get((int) nextSequence & mask) > nextSequence) {
+                throw new IllegalArgumentException("The change " + nextSequence
+                        + " is not kept any more, the oldest is " + getFirstSequence() + "!");
+            }
+            ChangeSubscription subscription = new ChangeSubscription(this, nextSequence);
+            subscriptions.add(subscription);
+            return subscription;
+        } finally {
+            ringLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Numbers the change without waiting, it has to be published
+     * with {@link #publish(ChangeEvent)} in any case, as
+     * the subscriptions wait for every sequence in turn
+     */
+    ChangeEvent claim(ChangeType type, int id, Object item) {
+        return new ChangeEvent(claimed.incrementAndGet(), type, id, item);
+    }
+
+    /**
+     * Writes the claimed change to the ring, waiting while the slot
+     * is not yet read by all subscriptions, so it must not be called
+     * while holding a lock, which other writers need
+     */
+    void publish(ChangeEvent event) {
+        long sequence = event.getSequence();
+        long stamp = ringLock.readLock();
+        try {
+            while (sequence - getCapacity() >= minNextSequence(sequence)) {
+                ringLock.unlockRead(stamp);
+                awaitRead(sequence);
+                stamp = ringLock.readLock();
+            }
+            int slot = (int) sequence & mask;
+            events.set(slot, event);
+            published.set(slot, sequence);
+        } finally {
+            ringLock.unlockRead(stamp);
+        }
+        if (waitingReaders.get() > 0) {
+            signalAll(changePublished);
+        }
+    }
+
+    /**
+     * Returns the published change with the given sequence,
+     * waiting at most until the deadline for it
+     *
+     * @return the change, or null if it was not published before the deadline
+     */
+    ChangeEvent read(long sequence, long deadline) throws InterruptedException {
+        int slot = (int) sequence & mask;
+        if (published.get(slot) == sequence) {
+            return events.get(slot);
+        }
+        waitingReaders.incrementAndGet();
+        lock.lock();
+        try {
+            while (published.get(slot) != sequence) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                changePublished.awaitNanos(remaining);
+            }
+            return events.get(slot);
+        } finally {
+            lock.unlock();
+            waitingReaders.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the change with the given sequence, if it is published
+     * already, or null if it is not, without waiting for it
+     */
+    ChangeEvent readNow(long sequence) {
+        int slot = (int) sequence & mask;
+        return published.get(slot) == sequence ? events.get(slot) : null;
+    }
+
+    /**
+     * Tells the writers, which wait for a slot, that a subscription read up to a new sequence
+     */
+    void read() {
+        if (waitingWriters.get() > 0) {
+            signalAll(changeRead);
+        }
+    }
+
+    void unsubscribe(ChangeSubscription subscription) {
+        subscriptions.remove(subscription);
+        read();
+    }
+
+    private void awaitRead(long sequence) {
+        boolean interrupted = false;
+        waitingWriters.incrementAndGet();
+        lock.lock();
+        try {
+            while (sequence - getCapacity() >= minNextSequence(sequence)) {
+                try {
+                    changeRead.await();
+                } catch (InterruptedException e) {
+                    // the sequence is taken, so the change has to be published
+                    interrupted = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+            waitingWriters.decrementAndGet();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the smallest sequence, which a subscription is still to read,
+     * or the given one if there are no subscriptions
+     */
+    private long minNextSequence(long sequence) {
+        long min = sequence;
+        for (ChangeSubscription subscription : subscriptions) {
+            min = Math.min(min, subscription.getNextSequence());
+        }
+        return min;
+    }
+
+    private void signalAll(Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package eu.deltasource.internship.hotel.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the changes of a {@link ChangeFeed} in order, from one thread.
+ * <p>
+ * A change is read once it is returned by {@link #poll(int, long, TimeUnit)},
+ * its slot can then be written again. Until the subscription is closed, the
+ * feed keeps every change it did not return yet, so a subscription, which
+ * stops polling, keeps the threads changing the repositories waiting once
+ * the ring is full, after their changes are applied.
+ * <p>
+ * To resume later, keep {@link #getNextSequence()} of the last poll and
+ * subscribe with it again, which works as long as the change is still
+ * kept in the ring.
+ */
+public class ChangeSubscription implements AutoCloseable {
+
+    private final ChangeFeed feed;
+
+    private volatile long nextSequence;
+
+    private volatile boolean closed;
+
+    ChangeSubscription(ChangeFeed feed, long nextSequence) {
+        this.feed = feed;
+        this.nextSequence = nextSequence;
+    }
+
+    /**
+     * Returns the sequence of the next change to read
+     */
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Returns the next changes in order, at most the given number.
+     * Waits at most the given time for the first change, the later
+     * ones are returned only if they are published already.
+     *
+     * @return the changes, an empty list if none was published in time
+     */
+    public List<ChangeEvent> poll(int maxEvents, long timeout, TimeUnit unit) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("The subscription is closed!");
+        }
+        if (maxEvents <= 0) {
+            throw new IllegalArgumentException("Invalid number of changes " + maxEvents);
+        }
+        long sequence = nextSequence;
+        ChangeEvent first = feed.read(sequence, System.nanoTime() + unit.toNanos(timeout));
+        if (first == null) {
+            return new ArrayList<>();
+        }
+        List<ChangeEvent> changes = new ArrayList<>(Math.min(maxEvents, 64));
+        changes.add(first);
+        ChangeEvent next;
+        while (changes.size() < maxEvents && (next = feed.readNow(sequence + changes.size())) != null) {
+            changes.add(next);
+        }
+        nextSequence = sequence + changes.size();
+        feed.read();
+        return changes;
+    }
+
+    /**
+     * Stops reading, the feed does not keep changes for the subscription any more
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            feed.unsubscribe(this);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package eu.deltasource.internship.hotel.repository;
+
+/**
+ * The kinds of changes published to a {@link ChangeFeed}
+ */
+public enum ChangeType {
+
+    BOOKING_SAVED,
+    /**
+     * The dates of a booking were changed
+     */
+    BOOKING_UPDATED,
+    BOOKING_DELETED,
+    /**
+     * All bookings were deleted at once
+     */
+    BOOKINGS_CLEARED,
+
+    GUEST_SAVED,
+    GUEST_UPDATED,
+    GUEST_DELETED,
+    GUESTS_CLEARED,
+
+    ROOM_SAVED,
+    ROOM_UPDATED,
+    ROOM_DELETED,
+    ROOMS_CLEARED
+}
@@ -0,0 +1,52 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The ids of the bookings of every guest, which can be read from many threads.
+ * <p>
+ * The set of a guest is only changed inside the compute methods of the map,
+ * which lock the guest, so a set is never dropped while a booking is added.
+ */
+class GuestBookingIndex {
+
+    private final ConcurrentMap<Integer, Set<Integer>> bookingIdsByGuest = new ConcurrentHashMap<>();
+
+    void add(Booking booking) {
+        bookingIdsByGuest.compute(booking.getGuestId(), (guestId, bookingIds) -> {
+            Set<Integer> ids = bookingIds == null ? ConcurrentHashMap.newKeySet() : bookingIds;
+            ids.add(booking.getBookingId());
+            return ids;
+        });
+    }
+
+    void remove(Booking booking) {
+        bookingIdsByGuest.computeIfPresent(booking.getGuestId(), (guestId, bookingIds) -> {
+            bookingIds.remove(booking.getBookingId());
+            return bookingIds.isEmpty() ? null : bookingIds;
+        });
+    }
+
+    void clear() {
+        bookingIdsByGuest.clear();
+    }
+
+    /**
+     * Returns the number of guests with bookings
+     */
+    int size() {
+        return bookingIdsByGuest.size();
+    }
+
+    /**
+     * Returns the ids of the bookings of the guest
+     */
+    Set<Integer> find(int guestId) {
+        return bookingIdsByGuest.getOrDefault(guestId, Collections.emptySet());
+    }
+}
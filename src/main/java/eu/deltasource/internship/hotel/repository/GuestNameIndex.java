@@ -0,0 +1,127 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.domain.Guest;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the guests by their normalized last and first name,
+ * which can be searched by prefix and read from many threads.
+ * <p>
+ * Names are normalized to lower case without accents, so "Ilyazov"
+ * and "ilyazov" are found with the same prefix, as are names
+ * written with and without accents. The keys are
+ * the last name, the first name and the guest id, separated by a zero
+ * character, so the guests are found ordered by last name, first name and id.
+ * <p>
+ * The index holds the stored, read-only guests, which are replaced on every
+ * update. It is changed right after the stored guests, so a search skips
+ * every found guest, which is no longer the stored one, and never returns
+ * a guest by an old name. A guest renamed during a search may be found
+ * under both names, it is returned only once, or may be missed.
+ */
+class GuestNameIndex {
+
+    private static final char SEPARATOR = '\0';
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    private final ConcurrentNavigableMap<String, Guest> guestsByName = new ConcurrentSkipListMap<>();
+
+    void add(Guest guest) {
+        guestsByName.put(key(guest), guest);
+    }
+
+    /**
+     * Replaces the old guest with the updated one. The new key is added
+     * first, so a guest, which keeps its names, can always be found.
+     */
+    void move(Guest old, Guest updated) {
+        String oldKey = key(old);
+        String newKey = key(updated);
+        guestsByName.put(newKey, updated);
+        if (!oldKey.equals(newKey)) {
+            guestsByName.remove(oldKey, old);
+        }
+    }
+
+    void remove(Guest guest) {
+        guestsByName.remove(key(guest), guest);
+    }
+
+    void clear() {
+        guestsByName.clear();
+    }
+
+    int size() {
+        return guestsByName.size();
+    }
+
+    /**
+     * Returns at most limit stored guests, whose normalized
+     * last name starts with the normalized prefix.
+     */
+    List<Guest> findByLastNamePrefix(String prefix, int limit, IntFunction<Guest> lookup) {
+        return find(normalize(prefix), limit, lookup);
+    }
+
+    /**
+     * Returns at most limit stored guests with the given last name,
+     * whose normalized first name starts with the normalized prefix.
+     */
+    List<Guest> findByName(String lastName, String firstNamePrefix, int limit, IntFunction<Guest> lookup) {
+        return find(normalize(lastName) + SEPARATOR + normalize(firstNamePrefix), limit, lookup);
+    }
+
+    private List<Guest> find(String prefix, int limit, IntFunction<Guest> lookup) {
+        List<Guest> guests = new ArrayList<>();
+        Set<Integer> foundIds = new HashSet<>();
+        for (Map.Entry<String, Guest> entry : guestsByName.tailMap(prefix).entrySet()) {
+            if (guests.size() >= limit || !entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            Guest guest = entry.getValue();
+            if (lookup.apply(guest.getGuestId()) == guest && foundIds.add(guest.getGuestId())) {
+                guests.add(guest);
+            }
+        }
+        return guests;
+    }
+
+    /**
+     * Returns the key of the guest, which ends with
+     * the id as two characters, to keep it unique.
+     */
+    private static String key(Guest guest) {
+        int id = guest.getGuestId();
+        return normalize(guest.getLastName()) + SEPARATOR + normalize(guest.getFirstName()) + SEPARATOR
+                + (char) (id >>> 16) + (char) id;
+    }
+
+    static String normalize(String name) {
+        if (isAscii(name)) {
+            return name.trim().toLowerCase(Locale.ROOT);
+        }
+        String decomposed = Normalizer.normalize(name.trim(), Normalizer.Form.NFD);
+        return ACCENTS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isAscii(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
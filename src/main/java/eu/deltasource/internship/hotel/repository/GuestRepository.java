@@ -2,33 +2,157 @@ package eu.deltasource.internship.hotel.repository;
 
 import eu.deltasource.internship.hotel.domain.Guest;
 import eu.deltasource.internship.hotel.exception.ItemNotFoundException;
+import eu.deltasource.internship.hotel.metrics.Metrics;
+import eu.deltasource.internship.hotel.persistence.LogRecordType;
+import eu.deltasource.internship.hotel.persistence.RecordCodec;
+import eu.deltasource.internship.hotel.persistence.WriteAheadLog;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
+ * The repository is safe to use from many threads.
+ * Stored items are never changed, every update
+ * replaces the stored item with a new one.
+ * Stored items are read-only and are handed out
+ * without copying them.
+ * <p>
  * Created by Taner Ilyazov - Delta Source Bulgaria on 2019-07-28.
  */
 public class GuestRepository {
 
-    private final List<Guest> repository;
+    /**
+     * Pages are allocated for at most this many items up front
+     */
+    private static final int PAGE_CAPACITY = 1024;
+
+    /**
+     * Number of id lock stripes, has to be a power of two
+     */
+    private static final int ID_LOCKS = 64;
+
+    /**
+     * The items sorted by id, so pages and streams find the next
+     * stored id without looking at the ids of deleted items
+     */
+    private final ConcurrentNavigableMap<Integer, Guest> repository;
+
+    /**
+     * Keep a guest from being saved, updated and deleted at once, so the
+     * name index and the log see the changes of a guest in order. The log
+     * may wait for the disk, so it is never written inside a compute of
+     * the map, which would keep the other guests of its bin waiting as well.
+     * Changes of many guests at once take all of them in order.
+     */
+    private final Lock[] idLocks;
+
+    private final GuestNameIndex nameIndex;
+
+    private final AtomicInteger lastId;
+
+    private final WriteAheadLog log;
+
+    private volatile ChangeFeed changeFeed;
+
+    private volatile RepositoryVersions versions;
+
+    /**
+     * The items replaced while a snapshot is open
+     */
+    private final VersionHistory<Guest> history;
 
     /**
      * Default constructor, which initializes the repository
-     * as an empty ArrayList.
+     * as an empty concurrent map indexed by id.
      */
     public GuestRepository() {
-        repository = new ArrayList<>();
+        this(null);
+    }
+
+    /**
+     * Initializes the repository, writing every change to the given log.
+     * Without a log the repository is kept only in memory.
+     */
+    public GuestRepository(WriteAheadLog log) {
+        repository = new ConcurrentSkipListMap<>();
+        idLocks = new Lock[ID_LOCKS];
+        for (int i = 0; i < ID_LOCKS; i++) {
+            idLocks[i] = new ReentrantLock();
+        }
+        nameIndex = new GuestNameIndex();
+        lastId = new AtomicInteger();
+        this.log = log;
+        history = new VersionHistory<>();
+        Metrics.gauge("guests", repository, Map::size);
+        Metrics.gauge("guest_name_index_entries", nameIndex, GuestNameIndex::size);
+    }
+
+    /**
+     * Publishes every later change of the guests to the given feed,
+     * or to none if it is null. The changes replayed when loading
+     * the repository from disk are not published.
+     */
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Versions every later change for the snapshots of the given versions
+     */
+    void setVersions(RepositoryVersions versions) {
+        this.versions = versions;
     }
 
     /**
      * Returns an unmodifiable list of all items
-     * currently in the repository.
+     * currently in the repository, ordered by id.
+     * The items are read-only.
      */
     public List<Guest> findAll() {
-        return Collections.unmodifiableList(repository);
+        return Collections.unmodifiableList(new ArrayList<>(repository.values()));
+    }
+
+    /**
+     * Returns an unmodifiable page of at most limit items with ids greater
+     * than afterId, ordered by id. The id of the last item is the afterId
+     * of the next page, a page with fewer items than the limit is the last one.
+     * The items are read-only.
+     * <p>
+     * Pages stay consistent while items are saved and deleted between them:
+     * no item, which is stored the whole time, is skipped or returned twice.
+     */
+    public List<Guest> findAll(int afterId, int limit) {
+        List<Guest> page = new ArrayList<>(Math.max(Math.min(limit, PAGE_CAPACITY), 0));
+        for (Guest item : repository.tailMap(afterId, false).values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(item);
+        }
+        return Collections.unmodifiableList(page);
+    }
+
+    /**
+     * Returns a lazy stream of the read-only items ordered by id,
+     * which neither copies the repository nor keeps writers waiting.
+     * <p>
+     * The stream is weakly consistent, it sees every item stored
+     * the whole time it is used, and may or may not see the items
+     * saved or deleted meanwhile.
+     */
+    public Stream<Guest> stream() {
+        return StreamSupport.stream(
+                new IdRangeSpliterator<>(this::nextId, repository::get, 1, lastId.get() + 1), false);
     }
 
     /**
@@ -38,32 +162,97 @@ public class GuestRepository {
      * Check this always, before using operations with id's.
      */
     public boolean existsById(int id) {
-        for (Guest item : repository) {
-            if (item.getGuestId() == id)
-                return true;
-        }
-        return false;
+        return repository.containsKey(id);
     }
 
     /**
-     * Returns a copy of the item from the repository
-     * with the given Id.
+     * Returns the item with the given id without copying it.
+     * <p>
+     * The item is read-only, create a copy
+     * with the copy constructor to change it.
      */
     public Guest findById(int id) {
-        for (Guest item : repository) {
-            if (item.getGuestId() == id)
-                return new Guest(item);
-        }
-        throw new ItemNotFoundException("A Guest with id: " + id + " was not found!");
+        return findStored(id);
+    }
+
+    /**
+     * Returns an unmodifiable list of the items at the epoch
+     * of an open snapshot, ordered by id
+     */
+    List<Guest> findAllAt(long epoch) {
+        return Collections.unmodifiableList(new ArrayList<>(
+                history.readAll(action -> repository.values().forEach(action), Guest::getGuestId, epoch).values()));
+    }
+
+    /**
+     * Returns the item with the id at the epoch of an
+     * open snapshot, or null if there was none
+     */
+    Guest findByIdAt(int id, long epoch) {
+        return history.read(id, repository.get(id), epoch);
+    }
+
+    /**
+     * Drops the replaced items, which no snapshot at
+     * the given epoch or later needs any more
+     */
+    void pruneVersions(long oldestEpoch) {
+        history.prune(oldestEpoch);
+    }
+
+    /**
+     * Returns the number of items, whose replaced versions are kept for snapshots
+     */
+    int getOldVersionCount() {
+        return history.size();
+    }
+
+    /**
+     * Returns at most limit read-only guests, whose last name starts
+     * with the prefix, ordered by last name, first name and id.
+     * Case and accents are ignored.
+     */
+    public List<Guest> findByLastNamePrefix(String prefix, int limit) {
+        return Collections.unmodifiableList(nameIndex.findByLastNamePrefix(prefix, limit, repository::get));
     }
 
     /**
-     * Saves the item in the repository with a new id
-     * using the item count in the repository
+     * Returns at most limit read-only guests with the last name, whose first
+     * name starts with the prefix, ordered by first name and id.
+     * Case and accents are ignored.
      */
-    public void save(Guest item) {
-        Guest newGuest = new Guest(count() + 1, item.getFirstName(), item.getLastName(), item.getGender());
-        repository.add(newGuest);
+    public List<Guest> findByName(String lastName, String firstNamePrefix, int limit) {
+        return Collections.unmodifiableList(
+                nameIndex.findByName(lastName, firstNamePrefix, limit, repository::get));
+    }
+
+    /**
+     * Saves the item in the repository with a new id,
+     * which is one greater than the last id given out.
+     * <p>
+     * Returns the saved item, which is read-only
+     */
+    public Guest save(Guest item) {
+        Guest newGuest = new Guest(lastId.incrementAndGet(), item.getFirstName(), item.getLastName(),
+                item.getGender()).makeReadOnly();
+        Lock lock = idLock(newGuest.getGuestId());
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lock.lock();
+        try {
+            log(LogRecordType.GUEST_SAVED, RecordCodec.encodeGuest(newGuest));
+            event = claim(feed, ChangeType.GUEST_SAVED, newGuest.getGuestId(), newGuest);
+            record(newGuest.getGuestId(), null, version);
+            repository.put(newGuest.getGuestId(), newGuest);
+            nameIndex.add(newGuest);
+        } finally {
+            lock.unlock();
+            endChange(version);
+            publish(feed, event);
+        }
+        sync();
+        return newGuest;
     }
 
     /**
@@ -81,17 +270,83 @@ public class GuestRepository {
         saveAll(Arrays.asList(items));
     }
 
+    /**
+     * Reserves the given number of consecutive ids at once
+     * and returns the first of them. None of them is given
+     * out again by {@link #save(Guest)}.
+     */
+    public int reserveIds(int count) {
+        return lastId.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Saves items, which already have ids reserved with {@link #reserveIds(int)},
+     * all at once. Every item is written to the log,
+     * but the log is waited for only once.
+     * <p>
+     * All validations should be done in the service layer!!!
+     */
+    public void saveReserved(List<Guest> items) {
+        ChangeFeed feed = changeFeed;
+        List<ChangeEvent> events = new ArrayList<>(feed == null ? 0 : items.size());
+        long version = beginChange();
+        lockAll();
+        try {
+            for (Guest item : items) {
+                Guest newGuest = item.makeReadOnly();
+                log(LogRecordType.GUEST_SAVED, RecordCodec.encodeGuest(newGuest));
+                if (feed != null) {
+                    events.add(feed.claim(ChangeType.GUEST_SAVED, newGuest.getGuestId(), newGuest));
+                }
+                record(newGuest.getGuestId(), null, version);
+                repository.put(newGuest.getGuestId(), newGuest);
+                nameIndex.add(newGuest);
+            }
+        } finally {
+            unlockAll();
+            endChange(version);
+            for (ChangeEvent event : events) {
+                publish(feed, event);
+            }
+        }
+        sync();
+    }
+
     /**
      * Updates the names and gender of a given Guest
      * All validations should be done in the service layer!!!
      * <p>
-     * Returns a copy of the updated item
+     * Returns the updated item, which is read-only
      */
     public Guest updateGuest(Guest item) {
-        Guest updatedGuest = findById(item.getGuestId());
-        updatedGuest.changeGender(item.getGender());
-        updatedGuest.changeFirstAndLastNames(item.getFirstName(), item.getLastName());
-        return new Guest(updatedGuest);
+        Guest updatedGuest = null;
+        int id = item.getGuestId();
+        Lock lock = idLock(id);
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lock.lock();
+        try {
+            Guest stored = repository.get(id);
+            if (stored != null) {
+                updatedGuest = new Guest(id, item.getFirstName(), item.getLastName(),
+                        item.getGender()).makeReadOnly();
+                log(LogRecordType.GUEST_UPDATED, RecordCodec.encodeGuest(updatedGuest));
+                event = claim(feed, ChangeType.GUEST_UPDATED, id, updatedGuest);
+                record(id, stored, version);
+                repository.put(id, updatedGuest);
+                nameIndex.move(stored, updatedGuest);
+            }
+        } finally {
+            lock.unlock();
+            endChange(version);
+            publish(feed, event);
+        }
+        if (updatedGuest == null) {
+            throw new ItemNotFoundException("A Guest with id: " + item.getGuestId() + " was not found!");
+        }
+        sync();
+        return updatedGuest;
     }
 
     /**
@@ -102,7 +357,7 @@ public class GuestRepository {
      * returns false if there's no match and the list is unchanged.
      */
     public boolean delete(Guest item) {
-        return repository.remove(item);
+        return remove(item.getGuestId());
     }
 
     /**
@@ -113,15 +368,34 @@ public class GuestRepository {
      * returns false if there's no match and the list is unchanged.
      */
     public boolean deleteById(int id) {
-        Guest item = findById(id);
-        return delete(item);
+        if (!remove(id)) {
+            throw new ItemNotFoundException("A Guest with id: " + id + " was not found!");
+        }
+        return true;
     }
 
     /**
      * Deletes all items in the repository
      */
     public void deleteAll() {
-        repository.clear();
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lockAll();
+        try {
+            log(LogRecordType.GUESTS_CLEARED, new byte[0]);
+            event = claim(feed, ChangeType.GUESTS_CLEARED, 0, null);
+            if (isRecording(version)) {
+                repository.forEach((id, item) -> history.record(id, item, version));
+            }
+            repository.clear();
+            nameIndex.clear();
+        } finally {
+            unlockAll();
+            endChange(version);
+            publish(feed, event);
+        }
+        sync();
     }
 
     /**
@@ -130,4 +404,198 @@ public class GuestRepository {
     public int count() {
         return repository.size();
     }
+
+    /**
+     * Returns the last id given out, which may
+     * belong to an item, which is already deleted.
+     */
+    public int getLastId() {
+        return lastId.get();
+    }
+
+    /**
+     * Makes sure no id up to the given one is given out again.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restoreLastId(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Puts the item in the repository with its own id,
+     * without writing it to the log.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restore(Guest item) {
+        item.makeReadOnly();
+        Guest old = repository.put(item.getGuestId(), item);
+        if (old != null) {
+            nameIndex.move(old, item);
+        } else {
+            nameIndex.add(item);
+        }
+        lastId.accumulateAndGet(item.getGuestId(), Math::max);
+    }
+
+    /**
+     * Removes the item with the given id, if there is one,
+     * without writing it to the log.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restoreDeletion(int id) {
+        Guest removed = repository.remove(id);
+        if (removed != null) {
+            nameIndex.remove(removed);
+        }
+    }
+
+    /**
+     * Removes all items without writing it to the log.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restoreDeleteAll() {
+        repository.clear();
+        nameIndex.clear();
+    }
+
+    private boolean remove(int id) {
+        Lock lock = idLock(id);
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lock.lock();
+        try {
+            Guest removed = repository.get(id);
+            if (removed == null) {
+                return false;
+            }
+            log(LogRecordType.GUEST_DELETED, RecordCodec.encodeId(id));
+            event = claim(feed, ChangeType.GUEST_DELETED, id, removed);
+            // kept for the snapshots before the guest is gone
+            record(id, removed, version);
+            repository.remove(id);
+            nameIndex.remove(removed);
+        } finally {
+            lock.unlock();
+            endChange(version);
+            publish(feed, event);
+        }
+        sync();
+        return true;
+    }
+
+    /**
+     * Numbers the change for the feed, returns null without a feed
+     */
+    private static ChangeEvent claim(ChangeFeed feed, ChangeType type, int id, Guest item) {
+        return feed == null ? null : feed.claim(type, id, item);
+    }
+
+    /**
+     * Returns the smallest stored id greater than afterId, or 0 if there is none
+     */
+    private int nextId(int afterId) {
+        Integer id = repository.higherKey(afterId);
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Writes the claimed change to the feed, which may wait for
+     * a slow subscription, so no lock may be held any more
+     */
+    private static void publish(ChangeFeed feed, ChangeEvent event) {
+        if (event != null) {
+            feed.publish(event);
+        }
+    }
+
+    private Lock idLock(int id) {
+        return idLocks[id & (ID_LOCKS - 1)];
+    }
+
+    /**
+     * Locks all ids, so no guest is changed until {@link #unlockAll()}
+     */
+    private void lockAll() {
+        for (Lock lock : idLocks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = idLocks.length - 1; i >= 0; i--) {
+            idLocks[i].unlock();
+        }
+    }
+
+    /**
+     * Keeps the log from rolling over and snapshots from being opened
+     * until the change is applied, returns the version of the change
+     */
+    private long beginChange() {
+        if (log != null) {
+            log.beginChange();
+        }
+        RepositoryVersions current = versions;
+        return current == null ? RepositoryVersions.NOT_VERSIONED : current.beginChange();
+    }
+
+    private void endChange(long version) {
+        if (version != RepositoryVersions.NOT_VERSIONED) {
+            versions.endChange();
+        }
+        if (log != null) {
+            log.endChange();
+        }
+    }
+
+    /**
+     * Keeps the item, which the change replaces, if a snapshot is open
+     *
+     * @param before the item before the change, or null if there was none
+     */
+    private void record(int id, Guest before, long version) {
+        if (isRecording(version)) {
+            history.record(id, before, version);
+        }
+    }
+
+    private boolean isRecording(long version) {
+        return version != RepositoryVersions.NOT_VERSIONED && versions.isRecording();
+    }
+
+    private void log(LogRecordType type, byte[] payload) {
+        if (log != null) {
+            log.append(type, payload);
+        }
+    }
+
+    /**
+     * Waits until the logged changes are on the disk
+     */
+    private void sync() {
+        if (log != null) {
+            log.sync();
+        }
+    }
+
+    /**
+     * Returns the stored item with the given id,
+     * which is read-only, so it is handed out as it is.
+     */
+    private Guest findStored(int id) {
+        Guest item = repository.get(id);
+        if (item == null) {
+            throw new ItemNotFoundException("A Guest with id: " + id + " was not found!");
+        }
+        return item;
+    }
 }
@@ -0,0 +1,104 @@
+package eu.deltasource.internship.hotel.repository;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Walks the items of a repository in a range of ids, ordered by id.
+ * <p>
+ * The repository finds the next stored id after the last one walked
+ * in its ordered id index, so runs of deleted ids are jumped over instead
+ * of being looked up one by one. The walk is weakly consistent: it never
+ * fails while the repository changes, it sees every item, which is stored
+ * for the whole walk, and may or may not see items saved or deleted during
+ * it. Nothing is copied or locked, so writers are never kept waiting.
+ * <p>
+ * The range is split in halves for parallel streams.
+ */
+class IdRangeSpliterator<T> implements Spliterator<T> {
+
+    /**
+     * Ranges with fewer ids are not split any further
+     */
+    private static final int MIN_SPLIT = 1024;
+
+    private final IntUnaryOperator nextId;
+
+    private final IntFunction<T> lookup;
+
+    /**
+     * The last id walked, the walk goes on after it
+     */
+    private int last;
+
+    /**
+     * Exclusive end of the range
+     */
+    private final int end;
+
+    /**
+     * @param nextId returns the smallest stored id greater than the given one, or 0 if there is none
+     * @param lookup returns the item with the given id, or null if there is none
+     * @param from the first id of the range
+     * @param end the id after the last one of the range
+     */
+    IdRangeSpliterator(IntUnaryOperator nextId, IntFunction<T> lookup, int from, int end) {
+        this.nextId = nextId;
+        this.lookup = lookup;
+        this.last = from - 1;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (last < end - 1) {
+            int id = nextId.applyAsInt(last);
+            if (id <= 0 || id >= end) {
+                last = end - 1;
+                return false;
+            }
+            last = id;
+            // deleted after its id was found
+            T item = lookup.apply(id);
+            if (item != null) {
+                action.accept(item);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        while (tryAdvance(action)) {
+            // every item is passed to the action
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int size = end - 1 - last;
+        if (size < MIN_SPLIT) {
+            return null;
+        }
+        int from = last + 1;
+        last += size / 2;
+        return new IdRangeSpliterator<>(nextId, lookup, from, last + 1);
+    }
+
+    /**
+     * Returns the number of ids left, which is more than
+     * the number of items left, if some were deleted.
+     */
+    @Override
+    public long estimateSize() {
+        return end - 1 - last;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL | CONCURRENT;
+    }
+}
@@ -0,0 +1,62 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the bookings as they are in a concurrent map, so they are
+ * handed out without creating anything. Every booking takes about
+ * 140 bytes with its dates and its entry in the map. The map is
+ * sorted by id, so the next stored id is found in logarithmic time.
+ */
+public class MapBookingStorage implements BookingStorage {
+
+    private final ConcurrentNavigableMap<Integer, Booking> bookings = new ConcurrentSkipListMap<>();
+
+    @Override
+    public Booking get(int id) {
+        return bookings.get(id);
+    }
+
+    @Override
+    public boolean containsKey(int id) {
+        return bookings.containsKey(id);
+    }
+
+    @Override
+    public Booking put(Booking booking) {
+        return bookings.put(booking.getBookingId(), booking);
+    }
+
+    @Override
+    public Booking remove(int id) {
+        return bookings.remove(id);
+    }
+
+    @Override
+    public void clear() {
+        bookings.clear();
+    }
+
+    @Override
+    public int size() {
+        return bookings.size();
+    }
+
+    @Override
+    public int nextId(int afterId) {
+        Integer id = bookings.higherKey(afterId);
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Calls the action with the bookings ordered by id
+     */
+    @Override
+    public void forEach(Consumer<Booking> action) {
+        bookings.values().forEach(action);
+    }
+}
@@ -0,0 +1,135 @@
+package eu.deltasource.internship.hotel.repository;
+
+import java.util.Arrays;
+
+/**
+ * Bitset calendar of the occupied nights of a single room.
+ * <p>
+ * The room has one bit per night, packed in longs, for a window of
+ * {@link #WINDOW_DAYS} nights starting at a given day. Checking if
+ * the room is free for a stay is then a handful of word operations.
+ * <p>
+ * Nights outside the window are not tracked, so the calendar
+ * only answers queries which fall completely inside it.
+ * <p>
+ * Days are counted as epoch days. The calendar is not thread safe,
+ * its owner has to guard it.
+ */
+class OccupancyCalendar {
+
+    /**
+     * Two years, counting a leap day
+     */
+    static final int WINDOW_DAYS = 731;
+
+    private static final int WORDS = (WINDOW_DAYS + Long.SIZE - 1) / Long.SIZE;
+
+    private final long[] words;
+
+    private int firstDay;
+
+    OccupancyCalendar(int firstDay) {
+        words = new long[WORDS];
+        this.firstDay = firstDay;
+    }
+
+    int getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * Returns true if the nights between from and to
+     * are all inside the window of the calendar.
+     */
+    boolean covers(int from, int to) {
+        return from >= firstDay && to - firstDay <= WINDOW_DAYS;
+    }
+
+    /**
+     * Marks the nights between from and to as occupied,
+     * skipping the nights outside the window.
+     */
+    void occupy(int from, int to) {
+        int start = Math.max(from - firstDay, 0);
+        int end = Math.min(to - firstDay, WINDOW_DAYS);
+        for (int index = start >>> 6; start < end && index <= (end - 1) >>> 6; index++) {
+            words[index] |= mask(index, start, end);
+        }
+    }
+
+    /**
+     * Marks the nights between from and to as free,
+     * skipping the nights outside the window.
+     */
+    void release(int from, int to) {
+        int start = Math.max(from - firstDay, 0);
+        int end = Math.min(to - firstDay, WINDOW_DAYS);
+        for (int index = start >>> 6; start < end && index <= (end - 1) >>> 6; index++) {
+            words[index] &= ~mask(index, start, end);
+        }
+    }
+
+    /**
+     * Checks if all nights between from and to are free.
+     * Check {@link #covers(int, int)} first.
+     */
+    boolean isFree(int from, int to) {
+        int start = from - firstDay;
+        int end = to - firstDay;
+        for (int index = start >>> 6; index <= (end - 1) >>> 6; index++) {
+            if ((words[index] & mask(index, start, end)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the window to start at the given day. The nights which
+     * enter the window are free and have to be occupied again by the owner.
+     * <p>
+     * Returns the first day, which entered the window.
+     */
+    int moveTo(int newFirstDay) {
+        int shift = newFirstDay - firstDay;
+        int oldEnd = firstDay + WINDOW_DAYS;
+        firstDay = newFirstDay;
+        if (shift <= 0 || shift >= WINDOW_DAYS) {
+            Arrays.fill(words, 0L);
+            return newFirstDay;
+        }
+        shift(shift);
+        return oldEnd;
+    }
+
+    /**
+     * Drops the first nights of the window, moving
+     * every later night towards the start.
+     */
+    private void shift(int nights) {
+        int wordShift = nights >>> 6;
+        int bitShift = nights & 63;
+        for (int i = 0; i < WORDS; i++) {
+            int source = i + wordShift;
+            long low = source < WORDS ? words[source] >>> bitShift : 0L;
+            long high = bitShift != 0 && source + 1 < WORDS ? words[source + 1] << (Long.SIZE - bitShift) : 0L;
+            words[i] = low | high;
+        }
+    }
+
+    /**
+     * The bits of the word with the given index,
+     * which fall between the start and end nights.
+     */
+    private static long mask(int index, int start, int end) {
+        int wordStart = index << 6;
+        long mask = -1L;
+        if (start > wordStart) {
+            mask &= -1L << (start - wordStart);
+        }
+        if (end < wordStart + Long.SIZE) {
+            mask &= -1L >>> (wordStart + Long.SIZE - end);
+        }
+        return mask;
+    }
+}
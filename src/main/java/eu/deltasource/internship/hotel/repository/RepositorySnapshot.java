@@ -0,0 +1,114 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Guest;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.exception.ItemNotFoundException;
+
+import java.util.List;
+
+/**
+ * The bookings, guests and rooms as they were when the snapshot was
+ * opened with {@link RepositoryVersions#openSnapshot()}, for reports
+ * and exports, which need all of them at one instant.
+ * <p>
+ * Reading never waits for the changes of the repositories and they never
+ * wait for the reading. The items are read-only. The snapshot can be read
+ * from many threads at once and has to be closed after the reading.
+ */
+public class RepositorySnapshot implements AutoCloseable {
+
+    private final RepositoryVersions versions;
+
+    private final long epoch;
+
+    private final BookingRepository bookingRepository;
+
+    private final GuestRepository guestRepository;
+
+    private final RoomRepository roomRepository;
+
+    private volatile boolean closed;
+
+    RepositorySnapshot(RepositoryVersions versions, long epoch, BookingRepository bookingRepository,
+                       GuestRepository guestRepository, RoomRepository roomRepository) {
+        this.versions = versions;
+        this.epoch = epoch;
+        this.bookingRepository = bookingRepository;
+        this.guestRepository = guestRepository;
+        this.roomRepository = roomRepository;
+    }
+
+    /**
+     * Returns the epoch of the snapshot, snapshots opened later have greater epochs
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns an unmodifiable list of all bookings of the snapshot ordered by id
+     */
+    public List<Booking> findBookings() {
+        checkOpen();
+        return bookingRepository.findAllAt(epoch);
+    }
+
+    public Booking findBookingById(int id) {
+        checkOpen();
+        Booking booking = bookingRepository.findByIdAt(id, epoch);
+        if (booking == null) {
+            throw new ItemNotFoundException("A booking with id: " + id + " was not found!");
+        }
+        return booking;
+    }
+
+    /**
+     * Returns an unmodifiable list of all guests of the snapshot ordered by id
+     */
+    public List<Guest> findGuests() {
+        checkOpen();
+        return guestRepository.findAllAt(epoch);
+    }
+
+    public Guest findGuestById(int id) {
+        checkOpen();
+        Guest guest = guestRepository.findByIdAt(id, epoch);
+        if (guest == null) {
+            throw new ItemNotFoundException("A Guest with id: " + id + " was not found!");
+        }
+        return guest;
+    }
+
+    /**
+     * Returns an unmodifiable list of all rooms of the snapshot ordered by id
+     */
+    public List<Room> findRooms() {
+        checkOpen();
+        return roomRepository.findAllAt(epoch);
+    }
+
+    public Room findRoomById(int id) {
+        checkOpen();
+        Room room = roomRepository.findByIdAt(id, epoch);
+        if (room == null) {
+            throw new ItemNotFoundException("A Room with id: " + id + " was not found!");
+        }
+        return room;
+    }
+
+    /**
+     * Releases the old items kept for the snapshot, which can not be read any more
+     */
+    @Override
+    public void close() {
+        closed = true;
+        versions.close(this);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The snapshot is closed!");
+        }
+    }
+}
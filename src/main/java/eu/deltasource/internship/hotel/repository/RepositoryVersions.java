@@ -0,0 +1,150 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.metrics.Metrics;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Opens snapshots of the bookings, guests and rooms at one instant,
+ * which can be read for as long as needed while the repositories
+ * keep changing.
+ * <p>
+ * Every change of the repositories is made with the current epoch as its
+ * version. Opening a snapshot waits for the changes being made and starts
+ * a new epoch, so the snapshot sees exactly the changes of the older
+ * epochs. While a snapshot is open, a change keeps the item it replaces in
+ * the {@link VersionHistory} of the repository, so changing never waits for
+ * the readers, only for a snapshot being opened. When a snapshot is closed,
+ * the old items, which no open snapshot needs any more, are dropped.
+ */
+public class RepositoryVersions {
+
+    /**
+     * Returned by the repositories for a change, which is not versioned
+     */
+    static final long NOT_VERSIONED = -1;
+
+    private final BookingRepository bookingRepository;
+
+    private final GuestRepository guestRepository;
+
+    private final RoomRepository roomRepository;
+
+    /**
+     * Read by every change, written while a snapshot is opened
+     */
+    private final ReentrantReadWriteLock changeGate;
+
+    /**
+     * The version of the changes made now, written only with the write lock of the gate
+     */
+    private volatile long epoch;
+
+    private final Set<RepositorySnapshot> openSnapshots;
+
+    private final AtomicInteger openCount;
+
+    private final Lock pruneLock;
+
+    /**
+     * Versions the changes of the repositories from now on. Has to be
+     * created before the repositories are changed from other threads.
+     */
+    public RepositoryVersions(BookingRepository bookingRepository, GuestRepository guestRepository,
+                              RoomRepository roomRepository) {
+        this.bookingRepository = bookingRepository;
+        this.guestRepository = guestRepository;
+        this.roomRepository = roomRepository;
+        changeGate = new ReentrantReadWriteLock();
+        openSnapshots = ConcurrentHashMap.newKeySet();
+        openCount = new AtomicInteger();
+        pruneLock = new ReentrantLock();
+        bookingRepository.setVersions(this);
+        guestRepository.setVersions(this);
+        roomRepository.setVersions(this);
+        Metrics.gauge("open_snapshots", openCount, AtomicInteger::get);
+        Metrics.gauge("snapshot_old_versions", this, RepositoryVersions::getOldVersionCount);
+    }
+
+    /**
+     * Returns a view of the repositories as they are now, which
+     * has to be closed, so the old items it needs can be dropped
+     */
+    public RepositorySnapshot openSnapshot() {
+        changeGate.writeLock().lock();
+        try {
+            long snapshotEpoch = epoch;
+            epoch = snapshotEpoch + 1;
+            RepositorySnapshot snapshot = new RepositorySnapshot(this, snapshotEpoch,
+                    bookingRepository, guestRepository, roomRepository);
+            openSnapshots.add(snapshot);
+            openCount.incrementAndGet();
+            return snapshot;
+        } finally {
+            changeGate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of open snapshots
+     */
+    public int getOpenSnapshotCount() {
+        return openCount.get();
+    }
+
+    /**
+     * Has to be called before a change is made, and {@link #endChange()}
+     * after it is applied, so no snapshot is opened in between.
+     *
+     * @return the version of the change
+     */
+    long beginChange() {
+        changeGate.readLock().lock();
+        return epoch;
+    }
+
+    void endChange() {
+        changeGate.readLock().unlock();
+    }
+
+    /**
+     * Returns true if a change has to keep the item
+     * it replaces, as a snapshot is open
+     */
+    boolean isRecording() {
+        return openCount.get() > 0;
+    }
+
+    /**
+     * Returns the number of ids with old items kept for the snapshots
+     */
+    long getOldVersionCount() {
+        return (long) bookingRepository.getOldVersionCount() + guestRepository.getOldVersionCount()
+                + roomRepository.getOldVersionCount();
+    }
+
+    void close(RepositorySnapshot snapshot) {
+        if (!openSnapshots.remove(snapshot)) {
+            return;
+        }
+        openCount.decrementAndGet();
+        pruneLock.lock();
+        try {
+            // snapshots opened from now on are not older than the current epoch
+            long oldestEpoch = epoch;
+            for (RepositorySnapshot open : openSnapshots) {
+                oldestEpoch = Math.min(oldestEpoch, open.getEpoch());
+            }
+            bookingRepository.pruneVersions(oldestEpoch);
+            guestRepository.pruneVersions(oldestEpoch);
+            roomRepository.pruneVersions(oldestEpoch);
+        } finally {
+            pruneLock.unlock();
+        }
+    }
+}
@@ -2,33 +2,153 @@ package eu.deltasource.internship.hotel.repository;
 
 import eu.deltasource.internship.hotel.domain.Room;
 import eu.deltasource.internship.hotel.exception.ItemNotFoundException;
+import eu.deltasource.internship.hotel.metrics.Metrics;
+import eu.deltasource.internship.hotel.persistence.LogRecordType;
+import eu.deltasource.internship.hotel.persistence.RecordCodec;
+import eu.deltasource.internship.hotel.persistence.WriteAheadLog;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
+ * The repository is safe to use from many threads.
+ * Stored items are never changed, every update
+ * replaces the stored item with a new one.
+ * Stored items are read-only and are handed out
+ * without copying them.
+ * <p>
  * Created by Taner Ilyazov - Delta Source Bulgaria on 2019-07-28.
  */
 public class RoomRepository {
 
-    private final List<Room> repository;
+    /**
+     * Pages are allocated for at most this many items up front
+     */
+    private static final int PAGE_CAPACITY = 1024;
+
+    /**
+     * Number of id lock stripes, has to be a power of two
+     */
+    private static final int ID_LOCKS = 64;
+
+    /**
+     * The items sorted by id, so pages and streams find the next
+     * stored id without looking at the ids of deleted items
+     */
+    private final ConcurrentNavigableMap<Integer, Room> repository;
+
+    /**
+     * Keep a room from being saved, updated and deleted at once, so its
+     * changes are logged in the order they are applied. The log may wait
+     * for the disk, so it is never written inside a compute of the map,
+     * which would keep the other rooms of its bin waiting as well.
+     * Changes of all rooms at once take all of them in order.
+     */
+    private final Lock[] idLocks;
+
+    private final AtomicInteger lastId;
+
+    private final WriteAheadLog log;
+
+    private volatile ChangeFeed changeFeed;
+
+    private volatile RepositoryVersions versions;
+
+    /**
+     * The items replaced while a snapshot is open
+     */
+    private final VersionHistory<Room> history;
 
     /**
      * Default constructor, which initializes the repository
-     * as an empty ArrayList.
+     * as an empty concurrent map indexed by id.
      */
     public RoomRepository() {
-        repository = new ArrayList<>();
+        this(null);
+    }
+
+    /**
+     * Initializes the repository, writing every change to the given log.
+     * Without a log the repository is kept only in memory.
+     */
+    public RoomRepository(WriteAheadLog log) {
+        repository = new ConcurrentSkipListMap<>();
+        idLocks = new Lock[ID_LOCKS];
+        for (int i = 0; i < ID_LOCKS; i++) {
+            idLocks[i] = new ReentrantLock();
+        }
+        lastId = new AtomicInteger();
+        this.log = log;
+        history = new VersionHistory<>();
+        Metrics.gauge("rooms", repository, Map::size);
+    }
+
+    /**
+     * Publishes every later change of the rooms to the given feed,
+     * or to none if it is null. The changes replayed when loading
+     * the repository from disk are not published.
+     */
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Versions every later change for the snapshots of the given versions
+     */
+    void setVersions(RepositoryVersions versions) {
+        this.versions = versions;
     }
 
     /**
      * Returns an unmodifiable list of all items
-     * currently in the repository.
+     * currently in the repository, ordered by id.
+     * The items are read-only.
      */
     public List<Room> findAll() {
-        return Collections.unmodifiableList(repository);
+        return Collections.unmodifiableList(new ArrayList<>(repository.values()));
+    }
+
+    /**
+     * Returns an unmodifiable page of at most limit items with ids greater
+     * than afterId, ordered by id. The id of the last item is the afterId
+     * of the next page, a page with fewer items than the limit is the last one.
+     * The items are read-only.
+     * <p>
+     * Pages stay consistent while items are saved and deleted between them:
+     * no item, which is stored the whole time, is skipped or returned twice.
+     */
+    public List<Room> findAll(int afterId, int limit) {
+        List<Room> page = new ArrayList<>(Math.max(Math.min(limit, PAGE_CAPACITY), 0));
+        for (Room item : repository.tailMap(afterId, false).values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(item);
+        }
+        return Collections.unmodifiableList(page);
+    }
+
+    /**
+     * Returns a lazy stream of the read-only items ordered by id,
+     * which neither copies the repository nor keeps writers waiting.
+     * <p>
+     * The stream is weakly consistent, it sees every item stored
+     * the whole time it is used, and may or may not see the items
+     * saved or deleted meanwhile.
+     */
+    public Stream<Room> stream() {
+        return StreamSupport.stream(
+                new IdRangeSpliterator<>(this::nextId, repository::get, 1, lastId.get() + 1), false);
     }
 
     /**
@@ -38,32 +158,76 @@ public class RoomRepository {
      * Check this always, before using operations with id's.
      */
     public boolean existsById(int id) {
-        for (Room item : repository) {
-            if (item.getRoomId() == id)
-                return true;
-        }
-        return false;
+        return repository.containsKey(id);
     }
 
     /**
-     * Returns a copy of the item from the repository
-     * with the given Id.
+     * Returns the item with the given id without copying it.
+     * <p>
+     * The item is read-only, create a copy
+     * with the copy constructor to change it.
      */
     public Room findById(int id) {
-        for (Room item : repository) {
-            if (item.getRoomId() == id)
-                return new Room(item);
-        }
-        throw new ItemNotFoundException("A Room with id: " + id + " was not found!");
+        return findStored(id);
     }
 
     /**
-     * Saves the item in the repository with a new id
-     * using the item count in the repository
+     * Returns an unmodifiable list of the items at the epoch
+     * of an open snapshot, ordered by id
      */
-    public void save(Room item) {
-        Room newRoom = new Room(count() + 1, item.getCommodities());
-        repository.add(newRoom);
+    List<Room> findAllAt(long epoch) {
+        return Collections.unmodifiableList(new ArrayList<>(
+                history.readAll(action -> repository.values().forEach(action), Room::getRoomId, epoch).values()));
+    }
+
+    /**
+     * Returns the item with the id at the epoch of an
+     * open snapshot, or null if there was none
+     */
+    Room findByIdAt(int id, long epoch) {
+        return history.read(id, repository.get(id), epoch);
+    }
+
+    /**
+     * Drops the replaced items, which no snapshot at
+     * the given epoch or later needs any more
+     */
+    void pruneVersions(long oldestEpoch) {
+        history.prune(oldestEpoch);
+    }
+
+    /**
+     * Returns the number of items, whose replaced versions are kept for snapshots
+     */
+    int getOldVersionCount() {
+        return history.size();
+    }
+
+    /**
+     * Saves the item in the repository with a new id,
+     * which is one greater than the last id given out.
+     * <p>
+     * Returns the saved item, which is read-only
+     */
+    public Room save(Room item) {
+        Room newRoom = new Room(lastId.incrementAndGet(), item.getCommodities()).makeReadOnly();
+        Lock lock = idLock(newRoom.getRoomId());
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lock.lock();
+        try {
+            log(LogRecordType.ROOM_SAVED, RecordCodec.encodeRoom(newRoom));
+            event = claim(feed, ChangeType.ROOM_SAVED, newRoom.getRoomId(), newRoom);
+            record(newRoom.getRoomId(), null, version);
+            repository.put(newRoom.getRoomId(), newRoom);
+        } finally {
+            lock.unlock();
+            endChange(version);
+            publish(feed, event);
+        }
+        sync();
+        return newRoom;
     }
 
     /**
@@ -85,12 +249,35 @@ public class RoomRepository {
      * Updates the commodities of a Room
      * All validations should be done in the service layer!!!
      * <p>
-     * Returns a copy of the updated item
+     * Returns the updated item, which is read-only
      */
     public Room updateRoom(Room item) {
-        Room updatedRoom = findById(item.getRoomId());
-        updatedRoom.updateCommodities(item.getCommodities());
-        return new Room(updatedRoom);
+        Room updatedRoom = null;
+        int id = item.getRoomId();
+        Lock lock = idLock(id);
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lock.lock();
+        try {
+            Room stored = repository.get(id);
+            if (stored != null) {
+                updatedRoom = new Room(id, item.getCommodities()).makeReadOnly();
+                log(LogRecordType.ROOM_UPDATED, RecordCodec.encodeRoom(updatedRoom));
+                event = claim(feed, ChangeType.ROOM_UPDATED, id, updatedRoom);
+                record(id, stored, version);
+                repository.put(id, updatedRoom);
+            }
+        } finally {
+            lock.unlock();
+            endChange(version);
+            publish(feed, event);
+        }
+        if (updatedRoom == null) {
+            throw new ItemNotFoundException("A Room with id: " + item.getRoomId() + " was not found!");
+        }
+        sync();
+        return updatedRoom;
     }
 
     /**
@@ -101,7 +288,7 @@ public class RoomRepository {
      * returns false if there's no match and the list is unchanged.
      */
     public boolean delete(Room item) {
-        return repository.remove(item);
+        return remove(item.getRoomId());
     }
 
     /**
@@ -112,15 +299,33 @@ public class RoomRepository {
      * returns false if there's no match and the list is unchanged.
      */
     public boolean deleteById(int id) {
-        Room item = findById(id);
-        return delete(item);
+        if (!remove(id)) {
+            throw new ItemNotFoundException("A Room with id: " + id + " was not found!");
+        }
+        return true;
     }
 
     /**
      * Deletes all items in the repository
      */
     public void deleteAll() {
-        repository.clear();
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lockAll();
+        try {
+            log(LogRecordType.ROOMS_CLEARED, new byte[0]);
+            event = claim(feed, ChangeType.ROOMS_CLEARED, 0, null);
+            if (isRecording(version)) {
+                repository.forEach((id, item) -> history.record(id, item, version));
+            }
+            repository.clear();
+        } finally {
+            unlockAll();
+            endChange(version);
+            publish(feed, event);
+        }
+        sync();
     }
 
     /**
@@ -129,4 +334,188 @@ public class RoomRepository {
     public int count() {
         return repository.size();
     }
+
+    /**
+     * Returns the last id given out, which may
+     * belong to an item, which is already deleted.
+     */
+    public int getLastId() {
+        return lastId.get();
+    }
+
+    /**
+     * Makes sure no id up to the given one is given out again.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restoreLastId(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Puts the item in the repository with its own id,
+     * without writing it to the log.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restore(Room item) {
+        item.makeReadOnly();
+        repository.put(item.getRoomId(), item);
+        lastId.accumulateAndGet(item.getRoomId(), Math::max);
+    }
+
+    /**
+     * Removes the item with the given id, if there is one,
+     * without writing it to the log.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restoreDeletion(int id) {
+        repository.remove(id);
+    }
+
+    /**
+     * Removes all items without writing it to the log.
+     * <p>
+     * This method should be used only when loading
+     * the repository from disk.
+     */
+    public void restoreDeleteAll() {
+        repository.clear();
+    }
+
+    private boolean remove(int id) {
+        Lock lock = idLock(id);
+        ChangeFeed feed = changeFeed;
+        ChangeEvent event = null;
+        long version = beginChange();
+        lock.lock();
+        try {
+            Room removed = repository.get(id);
+            if (removed == null) {
+                return false;
+            }
+            log(LogRecordType.ROOM_DELETED, RecordCodec.encodeId(id));
+            event = claim(feed, ChangeType.ROOM_DELETED, id, removed);
+            // kept for the snapshots before the room is gone
+            record(id, removed, version);
+            repository.remove(id);
+        } finally {
+            lock.unlock();
+            endChange(version);
+            publish(feed, event);
+        }
+        sync();
+        return true;
+    }
+
+    /**
+     * Numbers the change for the feed, returns null without a feed
+     */
+    private static ChangeEvent claim(ChangeFeed feed, ChangeType type, int id, Room item) {
+        return feed == null ? null : feed.claim(type, id, item);
+    }
+
+    /**
+     * Returns the smallest stored id greater than afterId, or 0 if there is none
+     */
+    private int nextId(int afterId) {
+        Integer id = repository.higherKey(afterId);
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Writes the claimed change to the feed, which may wait for
+     * a slow subscription, so no lock may be held any more
+     */
+    private static void publish(ChangeFeed feed, ChangeEvent event) {
+        if (event != null) {
+            feed.publish(event);
+        }
+    }
+
+    private Lock idLock(int id) {
+        return idLocks[id & (ID_LOCKS - 1)];
+    }
+
+    /**
+     * Locks all ids, so no room is changed until {@link #unlockAll()}
+     */
+    private void lockAll() {
+        for (Lock lock : idLocks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = idLocks.length - 1; i >= 0; i--) {
+            idLocks[i].unlock();
+        }
+    }
+
+    /**
+     * Keeps the log from rolling over and snapshots from being opened
+     * until the change is applied, returns the version of the change
+     */
+    private long beginChange() {
+        if (log != null) {
+            log.beginChange();
+        }
+        RepositoryVersions current = versions;
+        return current == null ? RepositoryVersions.NOT_VERSIONED : current.beginChange();
+    }
+
+    private void endChange(long version) {
+        if (version != RepositoryVersions.NOT_VERSIONED) {
+            versions.endChange();
+        }
+        if (log != null) {
+            log.endChange();
+        }
+    }
+
+    /**
+     * Keeps the item, which the change replaces, if a snapshot is open
+     *
+     * @param before the item before the change, or null if there was none
+     */
+    private void record(int id, Room before, long version) {
+        if (isRecording(version)) {
+            history.record(id, before, version);
+        }
+    }
+
+    private boolean isRecording(long version) {
+        return version != RepositoryVersions.NOT_VERSIONED && versions.isRecording();
+    }
+
+    private void log(LogRecordType type, byte[] payload) {
+        if (log != null) {
+            log.append(type, payload);
+        }
+    }
+
+    /**
+     * Waits until the logged changes are on the disk
+     */
+    private void sync() {
+        if (log != null) {
+            log.sync();
+        }
+    }
+
+    /**
+     * Returns the stored item with the given id,
+     * which is read-only, so it is handed out as it is.
+     */
+    private Room findStored(int id) {
+        Room item = repository.get(id);
+        if (item == null) {
+            throw new ItemNotFoundException("A Room with id: " + id + " was not found!");
+        }
+        return item;
+    }
 }
@@ -0,0 +1,137 @@
+package eu.deltasource.internship.hotel.repository;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * The items of one repository, as they were before the changes made
+ * while a {@link RepositorySnapshot} was open, so the snapshot can
+ * still read them.
+ * <p>
+ * The old items of an id form a chain, newest first. A change records
+ * the item it replaces before it changes the repository, and a reader
+ * reads the repository before the chain, so a reader never misses an
+ * old item, which it needs. Old items are dropped once no open snapshot
+ * is older than the change, which replaced them.
+ */
+final class VersionHistory<T> {
+
+    private final ConcurrentMap<Integer, Version<T>> versions;
+
+    VersionHistory() {
+        versions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Records the item, which the change of the given version replaces
+     *
+     * @param before the item before the change, or null if the id had no item
+     */
+    void record(int id, T before, long version) {
+        versions.compute(id, (key, newest) -> new Version<>(before, version, newest));
+    }
+
+    /**
+     * Returns the item with the id at the epoch of a snapshot,
+     * or null if the id had no item then
+     *
+     * @param current the item read from the repository before calling this method, or null
+     */
+    T read(int id, T current, long epoch) {
+        Version<T> newest = versions.get(id);
+        return newest != null && newest.replacedAt > epoch ? readOld(newest, epoch) : current;
+    }
+
+    /**
+     * Collects the items at the epoch of a snapshot ordered by id
+     *
+     * @param forEachCurrent calls its action with every item of the repository
+     * @param idOf           returns the id of an item
+     */
+    Map<Integer, T> readAll(Consumer<Consumer<T>> forEachCurrent, ToIntFunction<T> idOf, long epoch) {
+        Map<Integer, T> items = new TreeMap<>();
+        forEachCurrent.accept(current -> {
+            int id = idOf.applyAsInt(current);
+            T item = read(id, current, epoch);
+            if (item != null) {
+                items.put(id, item);
+            }
+        });
+        // items deleted since the snapshot are only in the history, and so are items
+        // the repository changed again while it was read above
+        for (Map.Entry<Integer, Version<T>> entry : versions.entrySet()) {
+            Version<T> version = entry.getValue();
+            if (version.replacedAt > epoch) {
+                T item = readOld(version, epoch);
+                if (item != null) {
+                    items.put(entry.getKey(), item);
+                } else {
+                    items.remove(entry.getKey());
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Drops the old items, which no snapshot at the given
+     * epoch or later needs any more
+     */
+    void prune(long oldestEpoch) {
+        for (Integer id : versions.keySet()) {
+            versions.computeIfPresent(id, (key, newest) -> {
+                if (newest.replacedAt <= oldestEpoch) {
+                    return null;
+                }
+                Version<T> version = newest;
+                while (version.older != null && version.older.replacedAt > oldestEpoch) {
+                    version = version.older;
+                }
+                version.older = null;
+                return newest;
+            });
+        }
+    }
+
+    /**
+     * Returns the number of ids with old items
+     */
+    int size() {
+        return versions.size();
+    }
+
+    /**
+     * Returns the item before the oldest change newer than the epoch
+     */
+    private static <T> T readOld(Version<T> newest, long epoch) {
+        T item = null;
+        Version<T> version = newest;
+        while (version != null && version.replacedAt > epoch) {
+            item = version.item;
+            version = version.older;
+        }
+        return item;
+    }
+
+    private static final class Version<T> {
+
+        private final T item;
+
+        /**
+         * The version of the change, which replaced the item
+         */
+        private final long replacedAt;
+
+        private volatile Version<T> older;
+
+        Version(T item, long replacedAt, Version<T> older) {
+            this.item = item;
+            this.replacedAt = replacedAt;
+            this.older = older;
+        }
+    }
+}
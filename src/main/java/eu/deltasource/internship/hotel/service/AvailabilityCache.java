@@ -0,0 +1,352 @@
+package eu.deltasource.internship.hotel.service;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.metrics.Metrics;
+import eu.deltasource.internship.hotel.repository.BookingListener;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the free rooms found for a date range and a number
+ * of people, in front of {@link BookingService#findAvailableRoomIds}.
+ * <p>
+ * It listens to the booking repository and counts the changed bookings of
+ * every night. A result keeps the sum of the counts of its nights from
+ * before its search, it is only returned while the sum is the same, so
+ * a changed booking drops only the results sharing a night with it, when
+ * they are read next. The writers of the bookings only add to the counts
+ * of their nights, without taking a lock. The counts are kept in a ring of
+ * {@link #NIGHT_SLOTS} nights, nights a whole ring apart share a count,
+ * which only drops a result more often. Searches of more than
+ * {@link #MAX_NIGHTS} nights are not cached. Results found before a room
+ * was saved, updated or deleted are dropped when they are read as well.
+ * <p>
+ * The results are spread over {@link #SEGMENTS} segments by their key, each
+ * with its own lock, so searches of different ranges hardly wait for each
+ * other. The least recently used result of a segment is evicted when the
+ * segment is full.
+ */
+public class AvailabilityCache {
+
+    /**
+     * Longest range of nights, whose results are cached
+     */
+    public static final int MAX_NIGHTS = 31;
+
+    /**
+     * Number of nights, whose changes are counted apart, a power of two
+     */
+    static final int NIGHT_SLOTS = 1024;
+
+    /**
+     * Most segments of the results, a power of two
+     */
+    static final int SEGMENTS = 16;
+
+    private final RoomService roomService;
+
+    private final int capacity;
+
+    /**
+     * Number of changed bookings of every night, by its epoch day modulo {@link #NIGHT_SLOTS}
+     */
+    private final AtomicLongArray nightChanges;
+
+    private final Segment[] segments;
+
+    private final LongAdder hits;
+
+    private final LongAdder misses;
+
+    private final LongAdder evictions;
+
+    private final LongAdder invalidations;
+
+    /**
+     * @param capacity the most results kept, 0 turns the cache off
+     */
+    public AvailabilityCache(BookingRepository bookingRepository, RoomService roomService, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid cache capacity " + capacity);
+        }
+        this.roomService = roomService;
+        this.capacity = capacity;
+        nightChanges = new AtomicLongArray(NIGHT_SLOTS);
+        int segmentCount = Math.max(1, Math.min(SEGMENTS, Integer.highestOneBit(Math.max(capacity, 1))));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // the first segments get one more result, so they hold the capacity together
+            segments[i] = new Segment(capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0));
+        }
+        hits = new LongAdder();
+        misses = new LongAdder();
+        evictions = new LongAdder();
+        invalidations = new LongAdder();
+        bookingRepository.addListener(new Invalidating());
+        Metrics.gauge("availability_cache_entries", this, AvailabilityCache::size);
+        Metrics.gauge("availability_cache_hits", this, AvailabilityCache::getHits);
+        Metrics.gauge("availability_cache_misses", this, AvailabilityCache::getMisses);
+        Metrics.gauge("availability_cache_evictions", this, AvailabilityCache::getEvictions);
+        Metrics.gauge("availability_cache_invalidations", this, AvailabilityCache::getInvalidations);
+    }
+
+    /**
+     * Returns the cached ids of the rooms, or the ones of the search,
+     * which are then cached. The caller gets its own copy.
+     *
+     * @param from the first night, before to
+     * @param search finds the ids, if they are not cached
+     */
+    public int[] get(LocalDate from, LocalDate to, int numberOfPeople, Supplier<int[]> search) {
+        long first = from.toEpochDay();
+        long end = to.toEpochDay();
+        if (capacity == 0 || end - first > MAX_NIGHTS) {
+            return search.get();
+        }
+        Key key = new Key(first, end, numberOfPeople);
+        Segment segment = segmentOf(key);
+        long roomModifications = roomService.getModificationCount();
+        // read before the search, so a change it could miss is counted after it
+        long changes = countChanges(first, end);
+        Result result = segment.get(key);
+        if (result != null) {
+            if (result.roomModifications == roomModifications && result.nightChanges == changes) {
+                hits.increment();
+                return result.roomIds.clone();
+            }
+            segment.remove(key, result);
+            invalidations.increment();
+        }
+        misses.increment();
+        int[] roomIds = search.get();
+        if (countChanges(first, end) == changes) {
+            segment.put(key, new Result(roomIds.clone(), roomModifications, changes));
+        }
+        return roomIds;
+    }
+
+    /**
+     * Returns the number of cached results, including
+     * the ones, which are dropped when they are read next
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of results removed to make room for new ones
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of results dropped, because a booking
+     * of their nights or a room was changed
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    private Segment segmentOf(Key key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Returns the sum of the changes of the nights from first (inclusive) to end (exclusive)
+     */
+    private long countChanges(long first, long end) {
+        long changes = 0;
+        for (long night = first; night < end; night++) {
+            changes += nightChanges.get((int) night & (NIGHT_SLOTS - 1));
+        }
+        return changes;
+    }
+
+    /**
+     * Counts a change of every night from from (inclusive) to to (exclusive),
+     * a range longer than the ring counts a change of every slot once
+     */
+    private void changed(LocalDate from, LocalDate to) {
+        long first = from.toEpochDay();
+        long end = Math.min(to.toEpochDay(), first + NIGHT_SLOTS);
+        for (long night = first; night < end; night++) {
+            nightChanges.incrementAndGet((int) night & (NIGHT_SLOTS - 1));
+        }
+    }
+
+    private void changedAll() {
+        for (int slot = 0; slot < NIGHT_SLOTS; slot++) {
+            nightChanges.incrementAndGet(slot);
+        }
+    }
+
+    private class Invalidating implements BookingListener {
+
+        @Override
+        public void bookingSaved(Booking booking) {
+            changed(booking.getFrom(), booking.getTo());
+        }
+
+        @Override
+        public void bookingMoved(Booking old, Booking moved) {
+            changed(old.getFrom(), old.getTo());
+            changed(moved.getFrom(), moved.getTo());
+        }
+
+        @Override
+        public void bookingDeleted(Booking booking) {
+            changed(booking.getFrom(), booking.getTo());
+        }
+
+        @Override
+        public void bookingsCleared() {
+            changedAll();
+        }
+    }
+
+    /**
+     * Part of the results, with its own lock and order of use
+     */
+    private final class Segment {
+
+        private final int capacity;
+
+        /**
+         * Guards the results, not a monitor, so a waiting
+         * virtual thread does not pin its carrier thread
+         */
+        private final Lock lock;
+
+        /**
+         * The results in the order of their last use
+         */
+        private final LinkedHashMap<Key, Result> results;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            lock = new ReentrantLock();
+            results = new LinkedHashMap<>(16, 0.75f, true);
+        }
+
+        Result get(Key key) {
+            lock.lock();
+            try {
+                return results.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(Key key, Result result) {
+            lock.lock();
+            try {
+                results.put(key, result);
+                if (results.size() > capacity) {
+                    Iterator<Key> eldest = results.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Removes the result, unless another search replaced it already
+         */
+        void remove(Key key, Result result) {
+            lock.lock();
+            try {
+                if (results.get(key) == result) {
+                    results.remove(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return results.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A search, the nights are epoch days
+     */
+    private static final class Key {
+
+        private final long first;
+
+        private final long end;
+
+        private final int numberOfPeople;
+
+        Key(long first, long end, int numberOfPeople) {
+            this.first = first;
+            this.end = end;
+            this.numberOfPeople = numberOfPeople;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) obj;
+            return first == key.first && end == key.end && numberOfPeople == key.numberOfPeople;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Long.hashCode(first) + Long.hashCode(end)) + numberOfPeople;
+        }
+    }
+
+    private static final class Result {
+
+        private final int[] roomIds;
+
+        private final long roomModifications;
+
+        /**
+         * The sum of the changes of the nights of the search, from before it started
+         */
+        private final long nightChanges;
+
+        Result(int[] roomIds, long roomModifications, long nightChanges) {
+            this.roomIds = roomIds;
+            this.roomModifications = roomModifications;
+            this.nightChanges = nightChanges;
+        }
+    }
+}
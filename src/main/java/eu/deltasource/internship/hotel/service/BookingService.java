@@ -1,21 +1,353 @@
 package eu.deltasource.internship.hotel.service;
 
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.exception.BookingOverlapException;
+import eu.deltasource.internship.hotel.exception.FailedInitializationException;
+import eu.deltasource.internship.hotel.exception.ItemNotFoundException;
+import eu.deltasource.internship.hotel.imports.BookingRecord;
+import eu.deltasource.internship.hotel.imports.ImportResult;
+import eu.deltasource.internship.hotel.imports.RejectedRecord;
+import eu.deltasource.internship.hotel.metrics.Counter;
+import eu.deltasource.internship.hotel.metrics.Metrics;
+import eu.deltasource.internship.hotel.metrics.Timer;
 import eu.deltasource.internship.hotel.repository.BookingRepository;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
 /**
+ * Bookings of the same room are made one at a time, so the availability
+ * check and the save can never be split by another booking of that room.
+ * Each room is mapped to one of {@link #ROOM_LOCKS} locks, so bookings
+ * of different rooms are made in parallel.
+ * <p>
  * Created by Taner Ilyazov - Delta Source Bulgaria on 2019-07-28.
  */
 public class BookingService {
 
+    private static final Timer FIND_BOOKINGS_TIMER = Metrics.timer("booking_service_find_bookings");
+
+    private static final Timer FIND_BOOKINGS_PAGE_TIMER = Metrics.timer("booking_service_find_bookings_page");
+
+    private static final Timer FIND_BOOKINGS_BY_GUEST_ID_TIMER =
+            Metrics.timer("booking_service_find_bookings_by_guest_id");
+
+    private static final Timer BOOK_TIMER = Metrics.timer("booking_service_book");
+
+    private static final Timer UPDATE_BOOKING_DATES_TIMER = Metrics.timer("booking_service_update_booking_dates");
+
+    private static final Timer CANCEL_BOOKING_TIMER = Metrics.timer("booking_service_cancel_booking");
+
+    private static final Timer IS_ROOM_AVAILABLE_TIMER = Metrics.timer("booking_service_is_room_available");
+
+    private static final Timer FIND_CONFLICTING_BOOKINGS_TIMER =
+            Metrics.timer("booking_service_find_conflicting_bookings");
+
+    private static final Timer FIND_AVAILABLE_ROOM_IDS_TIMER = Metrics.timer("booking_service_find_available_room_ids");
+
+    private static final Timer IMPORT_BOOKINGS_TIMER = Metrics.timer("booking_service_import_bookings");
+
+    /**
+     * Bookings rejected, because their room was already booked
+     */
+    private static final Counter CONFLICTS = Metrics.counter("booking_conflicts");
+
+    /**
+     * Number of lock stripes, has to be a power of two
+     */
+    private static final int ROOM_LOCKS = 64;
+
+    /**
+     * Number of availability searches cached by default
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 10000;
+
     private final BookingRepository bookingRepository;
 
     private final RoomService roomService;
 
     private final GuestService guestService;
 
+    private final Lock[] roomLocks;
+
+    private final AvailabilityCache availabilityCache;
+
     public BookingService(BookingRepository bookingRepository, RoomService roomService, GuestService guestService) {
+        this(bookingRepository, roomService, guestService, DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param cacheCapacity the number of availability searches
+     *                      cached, 0 turns the cache off
+     */
+    public BookingService(BookingRepository bookingRepository, RoomService roomService, GuestService guestService,
+                          int cacheCapacity) {
         this.bookingRepository = bookingRepository;
         this.roomService = roomService;
         this.guestService = guestService;
+        availabilityCache = new AvailabilityCache(bookingRepository, roomService, cacheCapacity);
+        roomLocks = new Lock[ROOM_LOCKS];
+        for (int i = 0; i < ROOM_LOCKS; i++) {
+            roomLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public Booking getBookingById(int id) {
+        return bookingRepository.findById(id);
+    }
+
+    public List<Booking> findBookings() {
+        return FIND_BOOKINGS_TIMER.time(() -> bookingRepository.findAll());
+    }
+
+    /**
+     * Returns a page of at most limit bookings with ids
+     * greater than afterId, ordered by id.
+     */
+    public List<Booking> findBookings(int afterId, int limit) {
+        return FIND_BOOKINGS_PAGE_TIMER.time(() -> {
+            if (limit <= 0) {
+                throw new FailedInitializationException("Invalid page limit!");
+            }
+            return bookingRepository.findAll(afterId, limit);
+        });
+    }
+
+    /**
+     * Returns a lazy, weakly consistent stream of the bookings ordered by id
+     */
+    public Stream<Booking> streamBookings() {
+        return bookingRepository.stream();
+    }
+
+    /**
+     * Returns the bookings of the guest, ordered by arrival date
+     */
+    public List<Booking> findBookingsByGuestId(int guestId) {
+        return FIND_BOOKINGS_BY_GUEST_ID_TIMER.time(() -> bookingRepository.findByGuestId(guestId));
+    }
+
+    /**
+     * Books the room for the guest for every night between from (inclusive)
+     * and to (exclusive), if the room fits the people and is free.
+     * <p>
+     * Returns the saved booking with its new id.
+     */
+    public Booking book(int guestId, int roomId, int numberOfPeople, LocalDate from, LocalDate to) {
+        return BOOK_TIMER.time(() -> {
+            validateDates(from, to);
+            if (!guestService.existsGuestById(guestId)) {
+                throw new ItemNotFoundException("A Guest with id: " + guestId + " was not found!");
+            }
+            Room room = roomService.getRoomById(roomId);
+            if (numberOfPeople <= 0 || numberOfPeople > room.getRoomCapacity()) {
+                throw new FailedInitializationException("Invalid number of people for room " + roomId + "!");
+            }
+            Booking booking = new Booking(0, guestId, roomId, numberOfPeople, from, to);
+            Lock lock = roomLock(roomId);
+            lock.lock();
+            try {
+                if (!bookingRepository.isRoomAvailable(roomId, from, to)) {
+                    CONFLICTS.increment();
+                    throw new BookingOverlapException("Room " + roomId + " is already booked for these dates!");
+                }
+                return bookingRepository.save(booking);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Moves the booking to the new dates, if no other
+     * booking of its room overlaps them.
+     */
+    public Booking updateBookingDates(int bookingId, LocalDate from, LocalDate to) {
+        return UPDATE_BOOKING_DATES_TIMER.time(() -> {
+            validateDates(from, to);
+            Booking booking = bookingRepository.findById(bookingId);
+            Booking moved = new Booking(bookingId, booking.getGuestId(), booking.getRoomId(),
+                    booking.getNumberOfPeople(), from, to);
+            Lock lock = roomLock(booking.getRoomId());
+            lock.lock();
+            try {
+                for (Booking conflict : bookingRepository.findConflictingBookings(booking.getRoomId(), from, to)) {
+                    if (conflict.getBookingId() != bookingId) {
+                        CONFLICTS.increment();
+                        throw new BookingOverlapException("Room " + booking.getRoomId()
+                                + " is already booked for these dates!");
+                    }
+                }
+                return bookingRepository.updateDates(moved);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    public boolean cancelBooking(int id) {
+        return CANCEL_BOOKING_TIMER.time(() -> bookingRepository.deleteById(id));
+    }
+
+    /**
+     * Checks if the room is free for every night
+     * between from (inclusive) and to (exclusive).
+     */
+    public boolean isRoomAvailable(int roomId, LocalDate from, LocalDate to) {
+        return IS_ROOM_AVAILABLE_TIMER.time(() -> {
+            validateDates(from, to);
+            return bookingRepository.isRoomAvailable(roomId, from, to);
+        });
+    }
+
+    /**
+     * Returns the bookings of the room, which overlap
+     * any night between from (inclusive) and to (exclusive).
+     */
+    public List<Booking> findConflictingBookings(int roomId, LocalDate from, LocalDate to) {
+        return FIND_CONFLICTING_BOOKINGS_TIMER.time(() -> {
+            validateDates(from, to);
+            return bookingRepository.findConflictingBookings(roomId, from, to);
+        });
+    }
+
+    /**
+     * Returns the ids of the rooms, which fit the given number of people
+     * and are free for every night between from (inclusive) and to (exclusive).
+     * Repeated searches are answered by the {@link AvailabilityCache}.
+     */
+    public int[] findAvailableRoomIds(LocalDate from, LocalDate to, int numberOfPeople) {
+        return FIND_AVAILABLE_ROOM_IDS_TIMER.time(() -> {
+            validateDates(from, to);
+            return availabilityCache.get(from, to, numberOfPeople, () -> {
+                int[] roomIds = roomService.findRoomIdsByMinCapacity(numberOfPeople);
+                return bookingRepository.findAvailableRoomIds(roomIds, from, to);
+            });
+        });
+    }
+
+    /**
+     * Returns the cache of the availability searches with its statistics
+     */
+    public AvailabilityCache getAvailabilityCache() {
+        return availabilityCache;
+    }
+
+    /**
+     * Imports the bookings of the feed. The records are checked in one pass
+     * against the dates, the guests and the rooms, then against each other
+     * and the stored bookings, where a record overlapping an earlier
+     * arrival in its room is rejected. Rejected records are reported in
+     * the result, all other bookings are saved at once with consecutive
+     * ids in the order of the feed.
+     * <p>
+     * Bookings of all rooms wait while the batch
+     * is checked against the stored bookings and saved.
+     */
+    public ImportResult importBookings(Iterator<BookingRecord> records) {
+        return IMPORT_BOOKINGS_TIMER.time(() -> {
+            Map<Integer, Integer> capacities = new HashMap<>();
+            for (Room room : roomService.findRooms()) {
+                capacities.put(room.getRoomId(), room.getRoomCapacity());
+            }
+            LocalDate today = LocalDate.now();
+            List<BookingRecord> accepted = new ArrayList<>();
+            List<RejectedRecord> rejected = new ArrayList<>();
+            while (records.hasNext()) {
+                BookingRecord record = records.next();
+                String reason = validate(record, capacities, today);
+                if (reason == null) {
+                    accepted.add(record);
+                } else {
+                    rejected.add(new RejectedRecord(record.getLine(), reason));
+                }
+            }
+            accepted.sort(Comparator.comparingInt(BookingRecord::getRoomId)
+                    .thenComparing(BookingRecord::getFrom)
+                    .thenComparingInt(BookingRecord::getLine));
+            List<Booking> bookings = new ArrayList<>(accepted.size());
+            int firstId = 0;
+            for (Lock lock : roomLocks) {
+                lock.lock();
+            }
+            try {
+                List<BookingRecord> free = new ArrayList<>(accepted.size());
+                BookingRecord previous = null;
+                for (BookingRecord record : accepted) {
+                    if (previous != null && previous.getRoomId() == record.getRoomId()
+                            && previous.getTo().isAfter(record.getFrom())) {
+                        CONFLICTS.increment();
+                        rejected.add(new RejectedRecord(record.getLine(),
+                                "Overlaps the booking in line " + previous.getLine() + "!"));
+                    } else if (!bookingRepository.isRoomAvailable(record.getRoomId(),
+                            record.getFrom(), record.getTo())) {
+                        CONFLICTS.increment();
+                        rejected.add(new RejectedRecord(record.getLine(),
+                                "Room " + record.getRoomId() + " is already booked for these dates!"));
+                    } else {
+                        free.add(record);
+                        previous = record;
+                    }
+                }
+                if (!free.isEmpty()) {
+                    free.sort(Comparator.comparingInt(BookingRecord::getLine));
+                    firstId = bookingRepository.reserveIds(free.size());
+                    for (BookingRecord record : free) {
+                        bookings.add(Booking.restore(firstId + bookings.size(), record.getGuestId(), record.getRoomId(),
+                                record.getNumberOfPeople(), record.getFrom(), record.getTo()));
+                    }
+                    bookingRepository.saveReserved(bookings);
+                }
+            } finally {
+                for (int i = roomLocks.length - 1; i >= 0; i--) {
+                    roomLocks[i].unlock();
+                }
+            }
+            rejected.sort(Comparator.comparingInt(RejectedRecord::getLine));
+            return new ImportResult(bookings.size(), firstId, rejected);
+        });
+    }
+
+    /**
+     * Returns why the record can not be booked, or null if it can,
+     * not looking at the other bookings of the room.
+     */
+    private String validate(BookingRecord record, Map<Integer, Integer> capacities, LocalDate today) {
+        if (record.getError() != null) {
+            return record.getError();
+        } else if (!record.getFrom().isBefore(record.getTo()) || record.getFrom().isBefore(today)) {
+            return "Invalid dates given!";
+        } else if (!guestService.existsGuestById(record.getGuestId())) {
+            return "A Guest with id: " + record.getGuestId() + " was not found!";
+        }
+        Integer capacity = capacities.get(record.getRoomId());
+        if (capacity == null) {
+            return "A Room with id: " + record.getRoomId() + " was not found!";
+        } else if (record.getNumberOfPeople() <= 0 || record.getNumberOfPeople() > capacity) {
+            return "Invalid number of people for room " + record.getRoomId() + "!";
+        }
+        return null;
+    }
+
+    private Lock roomLock(int roomId) {
+        int hash = roomId * 0x9E3779B9;
+        return roomLocks[(hash ^ (hash >>> 16)) & (ROOM_LOCKS - 1)];
+    }
+
+    private void validateDates(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new FailedInitializationException("Date parameters are null!");
+        } else if (!from.isBefore(to)) {
+            throw new FailedInitializationException("Invalid dates given!");
+        }
     }
 }
@@ -0,0 +1,89 @@
+package eu.deltasource.internship.hotel.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A count for every day of a fixed period, which can be changed and read
+ * from many threads without locking.
+ * <p>
+ * The counts are kept as the differences d between the count of a day and
+ * the one before, in two Fenwick trees, one over d[i] and one over i * d[i].
+ * Adding a value to a range of days only changes the differences at its
+ * start and its end, so it updates O(log days) nodes, however long the
+ * range is. The count of a day is the sum of the differences up to it, the
+ * sum of the counts of the days before k is k * sum(d[i]) - sum(i * d[i])
+ * over i &lt; k, so both are read in O(log days) as well.
+ */
+class DayCounter {
+
+    private final int days;
+
+    /**
+     * Node i holds the sum of d of the days from i - (i &amp; -i) to i - 1
+     */
+    private final AtomicLongArray differences;
+
+    /**
+     * Node i holds the sum of day * d[day] of the days from i - (i &amp; -i) to i - 1
+     */
+    private final AtomicLongArray weightedDifferences;
+
+    DayCounter(int days) {
+        this.days = days;
+        differences = new AtomicLongArray(days + 1);
+        weightedDifferences = new AtomicLongArray(days + 1);
+    }
+
+    /**
+     * Adds the value to the count of every day from start (inclusive) to end (exclusive)
+     */
+    void add(int start, int end, long value) {
+        addDifference(start, value);
+        if (end < days) {
+            addDifference(end, -value);
+        }
+    }
+
+    long get(int day) {
+        return prefix(differences, day + 1);
+    }
+
+    /**
+     * Returns the sum of the counts of the days from start (inclusive) to end (exclusive)
+     */
+    long sum(int start, int end) {
+        return prefixSum(end) - prefixSum(start);
+    }
+
+    void clear() {
+        for (int i = 0; i < differences.length(); i++) {
+            differences.set(i, 0);
+            weightedDifferences.set(i, 0);
+        }
+    }
+
+    private void addDifference(int day, long value) {
+        for (int node = day + 1; node <= days; node += node & -node) {
+            differences.addAndGet(node, value);
+            weightedDifferences.addAndGet(node, day * value);
+        }
+    }
+
+    /**
+     * Returns the sum of the counts of the days before the given one
+     */
+    private long prefixSum(int end) {
+        return end * prefix(differences, end) - prefix(weightedDifferences, end);
+    }
+
+    /**
+     * Returns the sum of the values of the tree for the days before the given one
+     */
+    private static long prefix(AtomicLongArray tree, int end) {
+        long sum = 0;
+        for (int node = end; node > 0; node -= node & -node) {
+            sum += tree.get(node);
+        }
+        return sum;
+    }
+}
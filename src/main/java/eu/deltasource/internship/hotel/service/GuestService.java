@@ -1,15 +1,164 @@
 package eu.deltasource.internship.hotel.service;
 
+import eu.deltasource.internship.hotel.domain.Guest;
+import eu.deltasource.internship.hotel.exception.FailedInitializationException;
+import eu.deltasource.internship.hotel.imports.GuestRecord;
+import eu.deltasource.internship.hotel.imports.ImportResult;
+import eu.deltasource.internship.hotel.imports.RejectedRecord;
+import eu.deltasource.internship.hotel.metrics.Metrics;
+import eu.deltasource.internship.hotel.metrics.Timer;
 import eu.deltasource.internship.hotel.repository.GuestRepository;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
 /**
  * Created by Taner Ilyazov - Delta Source Bulgaria on 2019-07-28.
  */
 public class GuestService {
 
+    private static final Timer FIND_GUESTS_TIMER = Metrics.timer("guest_service_find_guests");
+
+    private static final Timer FIND_GUESTS_PAGE_TIMER = Metrics.timer("guest_service_find_guests_page");
+
+    private static final Timer FIND_GUESTS_BY_LAST_NAME_TIMER = Metrics.timer("guest_service_find_guests_by_last_name");
+
+    private static final Timer FIND_GUESTS_BY_NAME_TIMER = Metrics.timer("guest_service_find_guests_by_name");
+
+    private static final Timer SAVE_GUEST_TIMER = Metrics.timer("guest_service_save_guest");
+
+    private static final Timer DELETE_GUEST_TIMER = Metrics.timer("guest_service_delete_guest");
+
+    private static final Timer DELETE_GUEST_BY_ID_TIMER = Metrics.timer("guest_service_delete_guest_by_id");
+
+    private static final Timer UPDATE_GUEST_TIMER = Metrics.timer("guest_service_update_guest");
+
+    private static final Timer IMPORT_GUESTS_TIMER = Metrics.timer("guest_service_import_guests");
+
     private final GuestRepository guestRepository;
 
     public GuestService(GuestRepository guestRepository) {
         this.guestRepository = guestRepository;
     }
+
+    public Guest getGuestById(int id) {
+        return guestRepository.findById(id);
+    }
+
+    public boolean existsGuestById(int id) {
+        return guestRepository.existsById(id);
+    }
+
+    public List<Guest> findGuests() {
+        return FIND_GUESTS_TIMER.time(() -> guestRepository.findAll());
+    }
+
+    /**
+     * Returns a page of at most limit guests with ids
+     * greater than afterId, ordered by id.
+     */
+    public List<Guest> findGuests(int afterId, int limit) {
+        return FIND_GUESTS_PAGE_TIMER.time(() -> {
+            if (limit <= 0) {
+                throw new FailedInitializationException("Invalid page limit!");
+            }
+            return guestRepository.findAll(afterId, limit);
+        });
+    }
+
+    /**
+     * Returns a lazy, weakly consistent stream of the guests ordered by id
+     */
+    public Stream<Guest> streamGuests() {
+        return guestRepository.stream();
+    }
+
+    /**
+     * Returns at most limit guests, whose last name starts with the prefix,
+     * ordered by last name, first name and id. Case and accents are ignored.
+     */
+    public List<Guest> findGuestsByLastName(String prefix, int limit) {
+        return FIND_GUESTS_BY_LAST_NAME_TIMER.time(() -> {
+            validateSearch(prefix, limit);
+            return guestRepository.findByLastNamePrefix(prefix, limit);
+        });
+    }
+
+    /**
+     * Returns at most limit guests with the last name, whose first name
+     * starts with the prefix, ordered by first name and id.
+     * Case and accents are ignored.
+     */
+    public List<Guest> findGuestsByName(String lastName, String firstNamePrefix, int limit) {
+        return FIND_GUESTS_BY_NAME_TIMER.time(() -> {
+            validateSearch(lastName, limit);
+            validateSearch(firstNamePrefix, limit);
+            return guestRepository.findByName(lastName, firstNamePrefix, limit);
+        });
+    }
+
+    public Guest saveGuest(Guest guest) {
+        return SAVE_GUEST_TIMER.time(() -> guestRepository.save(guest));
+    }
+
+    public void saveGuests(Guest... guests) {
+        guestRepository.saveAll(guests);
+    }
+
+    public boolean deleteGuest(Guest guest) {
+        return DELETE_GUEST_TIMER.time(() -> guestRepository.delete(guest));
+    }
+
+    public boolean deleteGuestById(int id) {
+        return DELETE_GUEST_BY_ID_TIMER.time(() -> guestRepository.deleteById(id));
+    }
+
+    public Guest updateGuest(Guest guest) {
+        return UPDATE_GUEST_TIMER.time(() -> guestRepository.updateGuest(guest));
+    }
+
+    /**
+     * Imports the guests of the feed in one pass. Records with invalid names
+     * or gender are reported in the result, all other guests are saved at once
+     * with consecutive ids in the order of the feed.
+     */
+    public ImportResult importGuests(Iterator<GuestRecord> records) {
+        return IMPORT_GUESTS_TIMER.time(() -> {
+            List<Guest> accepted = new ArrayList<>();
+            List<RejectedRecord> rejected = new ArrayList<>();
+            while (records.hasNext()) {
+                GuestRecord record = records.next();
+                if (record.getError() != null) {
+                    rejected.add(new RejectedRecord(record.getLine(), record.getError()));
+                    continue;
+                }
+                try {
+                    accepted.add(new Guest(0, record.getFirstName(), record.getLastName(), record.getGender()));
+                } catch (FailedInitializationException e) {
+                    rejected.add(new RejectedRecord(record.getLine(), e.getMessage()));
+                }
+            }
+            if (accepted.isEmpty()) {
+                return new ImportResult(0, 0, rejected);
+            }
+            int firstId = guestRepository.reserveIds(accepted.size());
+            List<Guest> guests = new ArrayList<>(accepted.size());
+            for (int i = 0; i < accepted.size(); i++) {
+                Guest guest = accepted.get(i);
+                guests.add(new Guest(firstId + i, guest.getFirstName(), guest.getLastName(), guest.getGender()));
+            }
+            guestRepository.saveReserved(guests);
+            return new ImportResult(guests.size(), firstId, rejected);
+        });
+    }
+
+    private void validateSearch(String name, int limit) {
+        if (name == null) {
+            throw new FailedInitializationException("Guest name is invalid");
+        } else if (limit <= 0) {
+            throw new FailedInitializationException("Invalid page limit!");
+        }
+    }
 }
@@ -0,0 +1,61 @@
+package eu.deltasource.internship.hotel.service;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * What was prepared for the rooms turning over on a day
+ */
+public class HousekeepingReport {
+
+    private final LocalDate day;
+
+    private final int rooms;
+
+    /**
+     * Number of prepared commodities by the simple name of their class
+     */
+    private final Map<String, Integer> commoditiesByType;
+
+    private final int batches;
+
+    HousekeepingReport(LocalDate day, int rooms, Map<String, Integer> commoditiesByType, int batches) {
+        this.day = day;
+        this.rooms = rooms;
+        this.commoditiesByType = Collections.unmodifiableMap(commoditiesByType);
+        this.batches = batches;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    /**
+     * Returns the number of prepared rooms
+     */
+    public int getRooms() {
+        return rooms;
+    }
+
+    /**
+     * Returns the number of prepared commodities of the given type, like Bed
+     */
+    public int getCommodities(String type) {
+        return commoditiesByType.getOrDefault(type, 0);
+    }
+
+    /**
+     * Returns the number of prepared commodities by type, ordered by type
+     */
+    public Map<String, Integer> getCommoditiesByType() {
+        return commoditiesByType;
+    }
+
+    /**
+     * Returns the number of batches handed to the workers
+     */
+    public int getBatches() {
+        return batches;
+    }
+}
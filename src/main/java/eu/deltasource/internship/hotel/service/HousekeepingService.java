@@ -0,0 +1,196 @@
+package eu.deltasource.internship.hotel.service;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.domain.commodity.AbstractCommodity;
+import eu.deltasource.internship.hotel.exception.FailedInitializationException;
+import eu.deltasource.internship.hotel.exception.ItemNotFoundException;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prepares the rooms, whose guests check out on a day, for the next guests.
+ * <p>
+ * The rooms turning over are the rooms of the bookings ending on the day,
+ * found in one parallel pass over the bookings. Their commodities are
+ * grouped by type, so a batch holds only beds or only showers, and split
+ * into batches of {@link #BATCH_SIZE}, which are prepared on a bounded pool
+ * of workers. While all workers are busy and their queue is full, the
+ * thread handing out the batches prepares the next one itself, so
+ * thousands of rooms turning over at once never flood the queue.
+ * <p>
+ * The rooms have no floors, so commodities are grouped only by type.
+ * What is prepared is told to the event sink of the commodities.
+ */
+public class HousekeepingService implements AutoCloseable {
+
+    public static final int BATCH_SIZE = 256;
+
+    private static final int QUEUED_BATCHES_PER_WORKER = 4;
+
+    private final BookingRepository bookingRepository;
+
+    private final RoomService roomService;
+
+    private final ThreadPoolExecutor workers;
+
+    private ScheduledExecutorService scheduler;
+
+    public HousekeepingService(BookingRepository bookingRepository, RoomService roomService, int workerThreads) {
+        if (workerThreads <= 0) {
+            throw new IllegalArgumentException("Invalid number of workers " + workerThreads);
+        }
+        this.bookingRepository = bookingRepository;
+        this.roomService = roomService;
+        AtomicInteger count = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workerThreads * QUEUED_BATCHES_PER_WORKER),
+                task -> {
+                    Thread thread = new Thread(task, "hotel-housekeeping-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (batch, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("The housekeeping is closed!");
+                    }
+                    batch.run();
+                });
+    }
+
+    /**
+     * Returns the ids of the rooms, which have a booking
+     * ending on the given day, ordered by id
+     */
+    public int[] findTurnoverRoomIds(LocalDate day) {
+        if (day == null) {
+            throw new FailedInitializationException("Date parameters are null!");
+        }
+        return bookingRepository.stream().parallel()
+                .filter(booking -> booking.getTo().equals(day))
+                .mapToInt(Booking::getRoomId)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * Prepares all commodities of the rooms turning over
+     * on the given day and waits until they are prepared.
+     * Rooms deleted since they were booked are skipped.
+     */
+    public HousekeepingReport prepareRooms(LocalDate day) {
+        if (workers.isShutdown()) {
+            throw new IllegalStateException("The housekeeping is closed!");
+        }
+        int rooms = 0;
+        Map<String, List<AbstractCommodity>> commoditiesByType = new TreeMap<>();
+        for (int roomId : findTurnoverRoomIds(day)) {
+            Room room;
+            try {
+                room = roomService.getRoomById(roomId);
+            } catch (ItemNotFoundException e) {
+                continue;
+            }
+            rooms++;
+            for (AbstractCommodity commodity : room.getCommodities()) {
+                commoditiesByType.computeIfAbsent(commodity.getClass().getSimpleName(), type -> new ArrayList<>())
+                        .add(commodity);
+            }
+        }
+
+        Map<String, Integer> prepared = new TreeMap<>();
+        List<Future<?>> batches = new ArrayList<>();
+        for (Map.Entry<String, List<AbstractCommodity>> type : commoditiesByType.entrySet()) {
+            List<AbstractCommodity> commodities = type.getValue();
+            prepared.put(type.getKey(), commodities.size());
+            for (int start = 0; start < commodities.size(); start += BATCH_SIZE) {
+                List<AbstractCommodity> batch =
+                        commodities.subList(start, Math.min(start + BATCH_SIZE, commodities.size()));
+                batches.add(workers.submit(() -> batch.forEach(AbstractCommodity::prepare)));
+            }
+        }
+        for (Future<?> batch : batches) {
+            await(batch);
+        }
+        return new HousekeepingReport(day, rooms, prepared, batches.size());
+    }
+
+    /**
+     * Prepares the rooms turning over every day at the given time, in the background
+     */
+    public synchronized void scheduleDaily(LocalTime time) {
+        if (scheduler != null) {
+            throw new IllegalStateException("The housekeeping is already scheduled!");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "hotel-housekeeping-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(time);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                prepareRooms(LocalDate.now());
+            } catch (RuntimeException e) {
+                // the rooms of the day are left for the staff, the next day tries again
+                System.err.println("Preparing the rooms failed: " + e);
+            }
+        }, Duration.between(now, next).toMillis(), TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the daily schedule and waits for the batches handed out
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService runningScheduler;
+        synchronized (this) {
+            runningScheduler = scheduler;
+        }
+        if (runningScheduler != null) {
+            runningScheduler.shutdown();
+        }
+        workers.shutdown();
+        try {
+            if (runningScheduler != null) {
+                runningScheduler.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(Future<?> batch) {
+        try {
+            batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while preparing the rooms", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Preparing the rooms failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package eu.deltasource.internship.hotel.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * Occupancy of the hotel for the nights between from (inclusive) and to (exclusive).
+ * <p>
+ * Rooms are grouped by their capacity, which stands for the type of the room.
+ * Lengths of stay and people per booking are counted for the bookings
+ * arriving in the period, the nights are counted for every booking
+ * staying in it. Bookings of rooms, which no longer exist, are not counted.
+ * <p>
+ * Two reports are equal if all their counts are equal.
+ */
+public class OccupancyReport {
+
+    private final LocalDate from;
+
+    private final LocalDate to;
+
+    /**
+     * Number of rooms indexed by capacity
+     */
+    private final int[] roomsByCapacity;
+
+    /**
+     * Number of occupied rooms indexed by the night since from
+     */
+    private final int[] occupiedRooms;
+
+    /**
+     * Number of occupied room nights indexed by the capacity of the room
+     */
+    private final long[] roomNightsByCapacity;
+
+    private final long arrivals;
+
+    private final long arrivalNights;
+
+    private final long arrivalPeople;
+
+    private final long arrivalCapacity;
+
+    OccupancyReport(LocalDate from, LocalDate to, int[] roomsByCapacity, int[] occupiedRooms,
+                    long[] roomNightsByCapacity, long arrivals, long arrivalNights,
+                    long arrivalPeople, long arrivalCapacity) {
+        this.from = from;
+        this.to = to;
+        this.roomsByCapacity = roomsByCapacity;
+        this.occupiedRooms = occupiedRooms;
+        this.roomNightsByCapacity = roomNightsByCapacity;
+        this.arrivals = arrivals;
+        this.arrivalNights = arrivalNights;
+        this.arrivalPeople = arrivalPeople;
+        this.arrivalCapacity = arrivalCapacity;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public int getNights() {
+        return occupiedRooms.length;
+    }
+
+    public int getRooms() {
+        int rooms = 0;
+        for (int count : roomsByCapacity) {
+            rooms += count;
+        }
+        return rooms;
+    }
+
+    /**
+     * Returns the number of rooms occupied in the given night of the period
+     */
+    public int getOccupiedRooms(LocalDate night) {
+        return occupiedRooms[nightIndex(night)];
+    }
+
+    /**
+     * Returns the share of the rooms occupied in the given night of the period
+     */
+    public double getOccupancyRate(LocalDate night) {
+        int rooms = getRooms();
+        return rooms == 0 ? 0 : (double) getOccupiedRooms(night) / rooms;
+    }
+
+    /**
+     * Returns the number of bookings arriving in the period
+     */
+    public long getArrivals() {
+        return arrivals;
+    }
+
+    /**
+     * Returns the average number of nights of the bookings arriving in the period
+     */
+    public double getAverageLengthOfStay() {
+        return arrivals == 0 ? 0 : (double) arrivalNights / arrivals;
+    }
+
+    /**
+     * Returns the average number of people of the bookings arriving in the period
+     */
+    public double getAveragePeoplePerBooking() {
+        return arrivals == 0 ? 0 : (double) arrivalPeople / arrivals;
+    }
+
+    /**
+     * Returns the share of the capacity of the booked rooms
+     * used by the people of the bookings arriving in the period
+     */
+    public double getCapacityUtilization() {
+        return arrivalCapacity == 0 ? 0 : (double) arrivalPeople / arrivalCapacity;
+    }
+
+    /**
+     * Returns the largest capacity of a room
+     */
+    public int getMaxCapacity() {
+        return roomsByCapacity.length - 1;
+    }
+
+    /**
+     * Returns the number of rooms with the given capacity
+     */
+    public int getRoomCount(int capacity) {
+        return capacity < roomsByCapacity.length ? roomsByCapacity[capacity] : 0;
+    }
+
+    /**
+     * Returns the share of the nights of the period,
+     * in which the rooms with the given capacity were occupied
+     */
+    public double getUtilization(int capacity) {
+        long roomNights = (long) getRoomCount(capacity) * getNights();
+        return roomNights == 0 ? 0 : (double) roomNightsByCapacity[capacity] / roomNights;
+    }
+
+    private int nightIndex(LocalDate night) {
+        long index = ChronoUnit.DAYS.between(from, night);
+        if (index < 0 || index >= occupiedRooms.length) {
+            throw new IllegalArgumentException("The night " + night + " is not in the report!");
+        }
+        return (int) index;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof OccupancyReport)) {
+            return false;
+        }
+        OccupancyReport other = (OccupancyReport) obj;
+        return arrivals == other.arrivals
+                && arrivalNights == other.arrivalNights
+                && arrivalPeople == other.arrivalPeople
+                && arrivalCapacity == other.arrivalCapacity
+                && from.equals(other.from)
+                && to.equals(other.to)
+                && Arrays.equals(roomsByCapacity, other.roomsByCapacity)
+                && Arrays.equals(occupiedRooms, other.occupiedRooms)
+                && Arrays.equals(roomNightsByCapacity, other.roomNightsByCapacity);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = from.hashCode();
+        result = 31 * result + to.hashCode();
+        result = 31 * result + Arrays.hashCode(occupiedRooms);
+        result = 31 * result + Arrays.hashCode(roomNightsByCapacity);
+        result = 31 * result + Long.hashCode(arrivals);
+        result = 31 * result + Long.hashCode(arrivalNights);
+        return result;
+    }
+}
@@ -0,0 +1,191 @@
+package eu.deltasource.internship.hotel.service;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.exception.FailedInitializationException;
+import eu.deltasource.internship.hotel.exception.ItemNotFoundException;
+import eu.deltasource.internship.hotel.repository.BookingListener;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the number of occupied rooms, occupied beds and people in the hotel
+ * for every night, so they do not have to be counted from the bookings.
+ * <p>
+ * The counters listen to the booking repository and are changed in
+ * O(log nights) with every saved, moved and deleted booking, however long
+ * it is. The count of a night and the sum over a range of nights are read
+ * in O(log nights) as well.
+ * Nights are counted from {@link #HISTORY_DAYS} before the service
+ * is created to {@link #FUTURE_DAYS} after it, later nights of a
+ * booking are not counted.
+ * <p>
+ * A booking is counted with the beds its room has when it is saved or
+ * moved, and removed with the same beds, even if the room was changed
+ * or deleted in between.
+ * <p>
+ * The service has to be created before the repository is changed
+ * by other threads, bookings saved while it reads the stored ones
+ * could be counted twice.
+ */
+public class OccupancyService {
+
+    public static final int HISTORY_DAYS = 365;
+
+    public static final int FUTURE_DAYS = 10 * 365;
+
+    private final RoomService roomService;
+
+    private final long firstDay;
+
+    private final DayCounter rooms;
+
+    private final DayCounter beds;
+
+    private final DayCounter people;
+
+    /**
+     * Number of beds each counted booking was counted with, as its room
+     * may get other beds or be deleted before the booking is removed
+     */
+    private final ConcurrentMap<Integer, Integer> bedsByBooking;
+
+    public OccupancyService(BookingRepository bookingRepository, RoomService roomService) {
+        this.roomService = roomService;
+        firstDay = LocalDate.now().minusDays(HISTORY_DAYS).toEpochDay();
+        int days = HISTORY_DAYS + FUTURE_DAYS;
+        rooms = new DayCounter(days);
+        beds = new DayCounter(days);
+        people = new DayCounter(days);
+        bedsByBooking = new ConcurrentHashMap<>();
+        bookingRepository.addListener(new Counting());
+        bookingRepository.stream().forEach(this::add);
+    }
+
+    /**
+     * Returns the number of rooms occupied in the given night
+     */
+    public long getOccupiedRooms(LocalDate night) {
+        return rooms.get(dayIndex(night));
+    }
+
+    /**
+     * Returns the number of beds in the rooms occupied in the given night
+     */
+    public long getOccupiedBeds(LocalDate night) {
+        return beds.get(dayIndex(night));
+    }
+
+    /**
+     * Returns the number of people staying in the given night
+     */
+    public long getPeople(LocalDate night) {
+        return people.get(dayIndex(night));
+    }
+
+    /**
+     * Returns the number of occupied room nights between from (inclusive) and to (exclusive)
+     */
+    public long getRoomNights(LocalDate from, LocalDate to) {
+        return rooms.sum(dayIndex(from), endIndex(from, to));
+    }
+
+    /**
+     * Returns the number of occupied bed nights between from (inclusive) and to (exclusive)
+     */
+    public long getBedNights(LocalDate from, LocalDate to) {
+        return beds.sum(dayIndex(from), endIndex(from, to));
+    }
+
+    /**
+     * Returns the number of nights stayed by all people between from (inclusive) and to (exclusive)
+     */
+    public long getPeopleNights(LocalDate from, LocalDate to) {
+        return people.sum(dayIndex(from), endIndex(from, to));
+    }
+
+    /**
+     * Counts the booking with the beds its room has now
+     */
+    private void add(Booking booking) {
+        int roomBeds = bedsOf(booking.getRoomId());
+        bedsByBooking.put(booking.getBookingId(), roomBeds);
+        count(booking, 1, roomBeds);
+    }
+
+    /**
+     * Removes the booking with the beds it was counted with
+     */
+    private void remove(Booking booking) {
+        Integer countedBeds = bedsByBooking.remove(booking.getBookingId());
+        count(booking, -1, countedBeds == null ? 0 : countedBeds);
+    }
+
+    private void count(Booking booking, int sign, int roomBeds) {
+        int start = (int) Math.max(booking.getFrom().toEpochDay() - firstDay, 0);
+        int end = (int) Math.min(booking.getTo().toEpochDay() - firstDay, HISTORY_DAYS + FUTURE_DAYS);
+        if (start >= end) {
+            return;
+        }
+        rooms.add(start, end, sign);
+        beds.add(start, end, sign * roomBeds);
+        people.add(start, end, sign * booking.getNumberOfPeople());
+    }
+
+    private int bedsOf(int roomId) {
+        try {
+            return roomService.getRoomById(roomId).getLayout().getBeds();
+        } catch (ItemNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private int dayIndex(LocalDate night) {
+        if (night == null) {
+            throw new FailedInitializationException("Date parameters are null!");
+        }
+        long index = night.toEpochDay() - firstDay;
+        if (index < 0 || index >= HISTORY_DAYS + FUTURE_DAYS) {
+            throw new FailedInitializationException("The night " + night + " is not counted!");
+        }
+        return (int) index;
+    }
+
+    private int endIndex(LocalDate from, LocalDate to) {
+        if (to == null) {
+            throw new FailedInitializationException("Date parameters are null!");
+        } else if (!from.isBefore(to)) {
+            throw new FailedInitializationException("Invalid dates given!");
+        }
+        return dayIndex(to.minusDays(1)) + 1;
+    }
+
+    private class Counting implements BookingListener {
+
+        @Override
+        public void bookingSaved(Booking booking) {
+            add(booking);
+        }
+
+        @Override
+        public void bookingMoved(Booking old, Booking moved) {
+            remove(old);
+            add(moved);
+        }
+
+        @Override
+        public void bookingDeleted(Booking booking) {
+            remove(booking);
+        }
+
+        @Override
+        public void bookingsCleared() {
+            rooms.clear();
+            beds.clear();
+            people.clear();
+            bedsByBooking.clear();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package eu.deltasource.internship.hotel.service;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.exception.FailedInitializationException;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Creates the occupancy reports of the hotel.
+ * <p>
+ * {@link #createOccupancyReport(LocalDate, LocalDate)} walks the bookings
+ * in a parallel stream, which splits the id range of the repository.
+ * Every part counts into its own primitive arrays, which are added
+ * together at the end, so nothing is boxed or shared between threads.
+ */
+public class ReportingService {
+
+    private final BookingRepository bookingRepository;
+
+    private final RoomService roomService;
+
+    public ReportingService(BookingRepository bookingRepository, RoomService roomService) {
+        this.bookingRepository = bookingRepository;
+        this.roomService = roomService;
+    }
+
+    /**
+     * Creates the report for the nights between from (inclusive) and to (exclusive)
+     */
+    public OccupancyReport createOccupancyReport(LocalDate from, LocalDate to) {
+        validateDates(from, to);
+        int[] capacities = roomCapacities();
+        int maxCapacity = Arrays.stream(capacities).max().orElse(0);
+        long firstNight = from.toEpochDay();
+        int nights = (int) (to.toEpochDay() - firstNight);
+        Counts counts = bookingRepository.stream().parallel().collect(
+                () -> new Counts(nights, maxCapacity),
+                (part, booking) -> part.add(booking, capacities, firstNight),
+                Counts::addAll);
+        return counts.toReport(from, to, roomsByCapacity(capacities, maxCapacity));
+    }
+
+    /**
+     * Returns the capacities of the rooms indexed by id, -1 for ids without a room
+     */
+    private int[] roomCapacities() {
+        List<Room> rooms = roomService.findRooms();
+        int[] capacities = new int[rooms.isEmpty() ? 0 : rooms.get(rooms.size() - 1).getRoomId() + 1];
+        Arrays.fill(capacities, -1);
+        for (Room room : rooms) {
+            capacities[room.getRoomId()] = room.getRoomCapacity();
+        }
+        return capacities;
+    }
+
+    private static int[] roomsByCapacity(int[] capacities, int maxCapacity) {
+        int[] roomsByCapacity = new int[maxCapacity + 1];
+        for (int capacity : capacities) {
+            if (capacity >= 0) {
+                roomsByCapacity[capacity]++;
+            }
+        }
+        return roomsByCapacity;
+    }
+
+    private void validateDates(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new FailedInitializationException("Date parameters are null!");
+        } else if (!from.isBefore(to)) {
+            throw new FailedInitializationException("Invalid dates given!");
+        }
+    }
+
+    /**
+     * The counts of one part of the bookings. The occupied rooms are kept
+     * as differences between neighbouring nights, so a booking is counted
+     * with two changes, however long it is.
+     */
+    private static class Counts {
+
+        private final int[] occupancyChanges;
+
+        private final long[] roomNightsByCapacity;
+
+        private long arrivals;
+
+        private long arrivalNights;
+
+        private long arrivalPeople;
+
+        private long arrivalCapacity;
+
+        Counts(int nights, int maxCapacity) {
+            occupancyChanges = new int[nights + 1];
+            roomNightsByCapacity = new long[maxCapacity + 1];
+        }
+
+        void add(Booking booking, int[] capacities, long firstNight) {
+            int roomId = booking.getRoomId();
+            int capacity = roomId < capacities.length ? capacities[roomId] : -1;
+            if (capacity < 0) {
+                return;
+            }
+            int nights = occupancyChanges.length - 1;
+            long arrival = booking.getFrom().toEpochDay() - firstNight;
+            long departure = booking.getTo().toEpochDay() - firstNight;
+            if (arrival >= 0 && arrival < nights) {
+                arrivals++;
+                arrivalNights += departure - arrival;
+                arrivalPeople += booking.getNumberOfPeople();
+                arrivalCapacity += capacity;
+            }
+            int start = (int) Math.max(arrival, 0);
+            int end = (int) Math.min(departure, nights);
+            if (start < end) {
+                occupancyChanges[start]++;
+                occupancyChanges[end]--;
+                roomNightsByCapacity[capacity] += end - start;
+            }
+        }
+
+        void addAll(Counts other) {
+            for (int i = 0; i < occupancyChanges.length; i++) {
+                occupancyChanges[i] += other.occupancyChanges[i];
+            }
+            for (int i = 0; i < roomNightsByCapacity.length; i++) {
+                roomNightsByCapacity[i] += other.roomNightsByCapacity[i];
+            }
+            arrivals += other.arrivals;
+            arrivalNights += other.arrivalNights;
+            arrivalPeople += other.arrivalPeople;
+            arrivalCapacity += other.arrivalCapacity;
+        }
+
+        OccupancyReport toReport(LocalDate from, LocalDate to, int[] roomsByCapacity) {
+            int[] occupiedRooms = new int[occupancyChanges.length - 1];
+            int occupied = 0;
+            for (int i = 0; i < occupiedRooms.length; i++) {
+                occupied += occupancyChanges[i];
+                occupiedRooms[i] = occupied;
+            }
+            return new OccupancyReport(from, to, roomsByCapacity, occupiedRooms, roomNightsByCapacity,
+                    arrivals, arrivalNights, arrivalPeople, arrivalCapacity);
+        }
+    }
+}
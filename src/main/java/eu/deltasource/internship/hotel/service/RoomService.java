@@ -1,19 +1,81 @@
 package eu.deltasource.internship.hotel.service;
 
 import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.domain.commodity.BedType;
+import eu.deltasource.internship.hotel.domain.commodity.CommodityLayout;
+import eu.deltasource.internship.hotel.exception.FailedInitializationException;
+import eu.deltasource.internship.hotel.metrics.Metrics;
+import eu.deltasource.internship.hotel.metrics.Timer;
 import eu.deltasource.internship.hotel.repository.RoomRepository;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 /**
+ * The room indexes can be read from many threads at once.
+ * Changes to the rooms are rare, so they are made one at a time.
+ * They wait for the write-ahead log while holding the write lock,
+ * which is not a monitor, so a waiting virtual thread does not
+ * pin its carrier thread.
+ * <p>
  * Created by Taner Ilyazov - Delta Source Bulgaria on 2019-07-28.
  */
 public class RoomService {
 
+    private static final Timer FIND_ROOMS_TIMER = Metrics.timer("room_service_find_rooms");
+
+    private static final Timer FIND_ROOMS_PAGE_TIMER = Metrics.timer("room_service_find_rooms_page");
+
+    private static final Timer SAVE_ROOM_TIMER = Metrics.timer("room_service_save_room");
+
+    private static final Timer DELETE_ROOM_TIMER = Metrics.timer("room_service_delete_room");
+
+    private static final Timer DELETE_ROOM_BY_ID_TIMER = Metrics.timer("room_service_delete_room_by_id");
+
+    private static final Timer UPDATE_ROOM_TIMER = Metrics.timer("room_service_update_room");
+
     private final RoomRepository roomRepository;
 
+    /**
+     * Ids of the rooms grouped by their capacity
+     */
+    private final ConcurrentNavigableMap<Integer, Set<Integer>> roomIdsByCapacity;
+
+    /**
+     * Ids of the rooms grouped by the number of beds of each type.
+     * The keys are the shared bed compositions of the layouts.
+     */
+    private final ConcurrentMap<Map<BedType, Integer>, Set<Integer>> roomIdsByBeds;
+
+    private final Lock writeLock;
+
+    /**
+     * Incremented after every change of the indexes
+     */
+    private final AtomicLong modifications;
+
     public RoomService(RoomRepository roomRepository) {
         this.roomRepository = roomRepository;
+        writeLock = new ReentrantLock();
+        modifications = new AtomicLong();
+        roomIdsByCapacity = new ConcurrentSkipListMap<>();
+        roomIdsByBeds = new ConcurrentHashMap<>();
+        roomRepository.findAll().forEach(this::index);
+        Metrics.gauge("room_capacity_index_capacities", roomIdsByCapacity, Map::size);
+        Metrics.gauge("room_beds_index_layouts", roomIdsByBeds, Map::size);
+        Metrics.gauge("commodity_layouts", CommodityLayout::count);
     }
 
     public Room getRoomById(int id) {
@@ -21,27 +83,164 @@ public class RoomService {
     }
 
     public List<Room> findRooms() {
-        return roomRepository.findAll();
+        return FIND_ROOMS_TIMER.time(() -> roomRepository.findAll());
+    }
+
+    /**
+     * Returns a page of at most limit rooms with ids
+     * greater than afterId, ordered by id.
+     */
+    public List<Room> findRooms(int afterId, int limit) {
+        return FIND_ROOMS_PAGE_TIMER.time(() -> {
+            if (limit <= 0) {
+                throw new FailedInitializationException("Invalid page limit!");
+            }
+            return roomRepository.findAll(afterId, limit);
+        });
+    }
+
+    /**
+     * Returns a lazy, weakly consistent stream of the rooms ordered by id
+     */
+    public Stream<Room> streamRooms() {
+        return roomRepository.stream();
+    }
+
+    /**
+     * Returns the ids of all rooms, which can
+     * fit at least the given number of people.
+     */
+    public int[] findRoomIdsByMinCapacity(int numberOfPeople) {
+        return toSortedArray(roomIdsByCapacity.tailMap(numberOfPeople, true).values());
+    }
+
+    /**
+     * Returns the ids of all rooms, which fit
+     * exactly the given number of people.
+     */
+    public int[] findRoomIdsByCapacity(int capacity) {
+        return toSortedArray(Collections.singleton(
+                roomIdsByCapacity.getOrDefault(capacity, Collections.emptySet())));
+    }
+
+    /**
+     * Returns the ids of all rooms, which have exactly the given
+     * number of beds of each type, for example two doubles.
+     * Bed types, which are not in the map, must not be in the room.
+     */
+    public int[] findRoomIdsByBeds(Map<BedType, Integer> beds) {
+        Map<BedType, Integer> composition = new EnumMap<>(BedType.class);
+        beds.forEach((bedType, count) -> {
+            if (count > 0) {
+                composition.put(bedType, count);
+            }
+        });
+        return toSortedArray(Collections.singleton(
+                roomIdsByBeds.getOrDefault(composition, Collections.emptySet())));
+    }
+
+    /**
+     * Returns a number, which grows with every saved, updated or deleted
+     * room. The result of a search by capacity is up to date as long
+     * as the count is the same as when the search started.
+     */
+    public long getModificationCount() {
+        return modifications.get();
     }
 
     public Room saveRoom(Room room) {
-        roomRepository.save(room);
-        return roomRepository.findById(room.getRoomId());
+        return SAVE_ROOM_TIMER.time(() -> {
+            writeLock.lock();
+            try {
+                Room savedRoom = roomRepository.save(room);
+                index(savedRoom);
+                return savedRoom;
+            } finally {
+                writeLock.unlock();
+            }
+        });
     }
 
     public void saveRooms(Room... rooms) {
-        roomRepository.saveAll(rooms);
+        writeLock.lock();
+        try {
+            for (Room room : rooms) {
+                saveRoom(room);
+            }
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     public boolean deleteRoom(Room room) {
-        return roomRepository.delete(room);
+        return DELETE_ROOM_TIMER.time(() -> {
+            writeLock.lock();
+            try {
+                return roomRepository.existsById(room.getRoomId()) && deleteRoomById(room.getRoomId());
+            } finally {
+                writeLock.unlock();
+            }
+        });
     }
 
     public boolean deleteRoomById(int id) {
-        return roomRepository.deleteById(id);
+        return DELETE_ROOM_BY_ID_TIMER.time(() -> {
+            writeLock.lock();
+            try {
+                Room room = roomRepository.findById(id);
+                boolean deleted = roomRepository.deleteById(id);
+                unindex(room);
+                return deleted;
+            } finally {
+                writeLock.unlock();
+            }
+        });
     }
 
     public Room updateRoom(Room room) {
-        return roomRepository.updateRoom(room);
+        return UPDATE_ROOM_TIMER.time(() -> {
+            writeLock.lock();
+            try {
+                Room oldRoom = roomRepository.findById(room.getRoomId());
+                Room updatedRoom = roomRepository.updateRoom(room);
+                if (updatedRoom.getLayout() != oldRoom.getLayout()) {
+                    // the same layout has the same capacity and beds, so the indexes stay as they are
+                    unindex(oldRoom);
+                    index(updatedRoom);
+                }
+                return updatedRoom;
+            } finally {
+                writeLock.unlock();
+            }
+        });
+    }
+
+    private void index(Room room) {
+        roomIdsByCapacity.computeIfAbsent(room.getRoomCapacity(), capacity -> ConcurrentHashMap.newKeySet())
+                .add(room.getRoomId());
+        roomIdsByBeds.computeIfAbsent(room.getLayout().getBedComposition(),
+                composition -> ConcurrentHashMap.newKeySet()).add(room.getRoomId());
+        modifications.incrementAndGet();
+    }
+
+    private void unindex(Room room) {
+        removeFromBucket(roomIdsByCapacity, room.getRoomCapacity(), room.getRoomId());
+        removeFromBucket(roomIdsByBeds, room.getLayout().getBedComposition(), room.getRoomId());
+        modifications.incrementAndGet();
+    }
+
+    private static <K> void removeFromBucket(Map<K, Set<Integer>> buckets, K key, int roomId) {
+        Set<Integer> bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.remove(roomId);
+        }
+    }
+
+    private static int[] toSortedArray(Collection<Set<Integer>> buckets) {
+        return buckets.stream()
+                .flatMap(Set::stream)
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .toArray();
     }
 }
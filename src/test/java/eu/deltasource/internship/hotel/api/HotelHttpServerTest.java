@@ -0,0 +1,112 @@
+package eu.deltasource.internship.hotel.api;
+
+import eu.deltasource.internship.hotel.domain.Hotel;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.GuestRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+import eu.deltasource.internship.hotel.service.BookingService;
+import eu.deltasource.internship.hotel.service.GuestService;
+import eu.deltasource.internship.hotel.service.OccupancyService;
+import eu.deltasource.internship.hotel.service.RoomService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+
+public class HotelHttpServerTest {
+
+    private Hotel hotel;
+
+    @Before
+    public void setUp() {
+        BookingRepository bookingRepository = new BookingRepository();
+        RoomService roomService = new RoomService(new RoomRepository());
+        GuestService guestService = new GuestService(new GuestRepository());
+        BookingService bookingService = new BookingService(bookingRepository, roomService, guestService);
+        hotel = new Hotel(bookingService, guestService, roomService,
+                new OccupancyService(bookingRepository, roomService));
+    }
+
+    @Test
+    public void servesRequestsOnPlatformThreads() throws IOException {
+        // given
+        ExecutorService executor = ExecutionMode.PLATFORM.newExecutor(2);
+
+        // when, then
+        assertServesRequests(executor);
+    }
+
+    @Test
+    public void servesRequestsOnVirtualThreads() throws IOException {
+        // given
+        ExecutorService executor = null;
+        try {
+            executor = ExecutionMode.VIRTUAL.newExecutor(2);
+        } catch (IllegalStateException e) {
+            // the running Java has no virtual threads
+            assumeNoException(e);
+        }
+
+        // when, then
+        assertServesRequests(executor);
+    }
+
+    /**
+     * Saves a room through a server running on the executor and reads it back
+     */
+    private void assertServesRequests(ExecutorService executor) throws IOException {
+        HotelHttpServer server = new HotelHttpServer(hotel, new InetSocketAddress("127.0.0.1", 0), executor);
+        server.start();
+        try {
+            String rooms = "http://127.0.0.1:" + server.getAddress().getPort() + "/rooms";
+
+            HttpURLConnection saving = request(rooms, "POST");
+            saving.setDoOutput(true);
+            try (OutputStream body = saving.getOutputStream()) {
+                body.write("{\"beds\": \"DOUBLE,SINGLE\", \"showers\": 1}".getBytes(StandardCharsets.UTF_8));
+            }
+            String saved = read(saving);
+            HttpURLConnection reading = request(rooms + "/1", "GET");
+            String read = read(reading);
+
+            assertEquals(201, saving.getResponseCode());
+            assertEquals(200, reading.getResponseCode());
+            assertTrue(saved, saved.contains("\"roomId\":1"));
+            assertTrue(read, read.contains("\"capacity\":3"));
+        } finally {
+            server.stop(0);
+            executor.shutdown();
+        }
+    }
+
+    private static HttpURLConnection request(String url, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        return connection;
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,43 @@
+package eu.deltasource.internship.hotel.domain.commodity;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncCommodityEventSinkTest {
+
+    @Test
+    public void closeWritesThePublishedEvents() {
+        // given
+        StringWriter out = new StringWriter();
+        Toilet toilet = new Toilet();
+        String separator = System.lineSeparator();
+
+        // when
+        try (AsyncCommodityEventSink sink = new AsyncCommodityEventSink(out)) {
+            sink.publish(toilet, "cleaned");
+            sink.publish(toilet, "checked");
+        }
+
+        // then
+        assertEquals("Toilet " + toilet.getInventoryId() + ": cleaned" + separator
+                + "Toilet " + toilet.getInventoryId() + ": checked" + separator, out.toString());
+    }
+
+    @Test
+    public void interruptedCloseKeepsTheInterrupt() {
+        // given
+        AsyncCommodityEventSink sink = new AsyncCommodityEventSink(new StringWriter());
+        sink.publish(new Shower(), "cleaned");
+        Thread.currentThread().interrupt();
+
+        // when
+        sink.close();
+
+        // then
+        assertTrue(Thread.interrupted());
+    }
+}
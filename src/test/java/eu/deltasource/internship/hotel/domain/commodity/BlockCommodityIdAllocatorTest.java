@@ -0,0 +1,145 @@
+package eu.deltasource.internship.hotel.domain.commodity;
+
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.service.TestConfiguration;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BlockCommodityIdAllocatorTest {
+
+    private static final int THREADS = 4;
+
+    private static final int ROOMS_PER_THREAD = 500;
+
+    @Test
+    public void roomsBuiltConcurrentlyHaveUniqueIdsAndAllTheirCommodities() throws Exception {
+        // given
+        List<Callable<List<Room>>> builders = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            builders.add(() -> {
+                List<Room> rooms = new ArrayList<>();
+                for (int i = 0; i < ROOMS_PER_THREAD; i++) {
+                    rooms.add(new Room(1, TestConfiguration.fivePersonSet()));
+                }
+                return rooms;
+            });
+        }
+
+        // when
+        List<Room> rooms = new ArrayList<>();
+        for (List<Room> built : runAll(builders)) {
+            rooms.addAll(built);
+        }
+
+        // then
+        Set<Integer> ids = new HashSet<>();
+        for (Room room : rooms) {
+            assertEquals(6, room.getCommodities().size());
+            assertEquals(5, room.getRoomCapacity());
+            for (AbstractCommodity commodity : room.getCommodities()) {
+                assertTrue("Duplicate inventory id " + commodity.getInventoryId(),
+                        ids.add(commodity.getInventoryId()));
+            }
+        }
+        assertEquals(THREADS * ROOMS_PER_THREAD * 6, ids.size());
+    }
+
+    @Test
+    public void idsOfManyThreadsAreUnique() throws Exception {
+        // given
+        BlockCommodityIdAllocator allocator = new BlockCommodityIdAllocator(16);
+        List<Callable<List<Integer>>> threads = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            threads.add(() -> {
+                List<Integer> ids = new ArrayList<>();
+                for (int i = 0; i < 10000; i++) {
+                    ids.add(allocator.nextId());
+                }
+                return ids;
+            });
+        }
+
+        // when
+        Set<Integer> ids = new HashSet<>();
+        for (List<Integer> given : runAll(threads)) {
+            ids.addAll(given);
+        }
+
+        // then
+        assertEquals(THREADS * 10000, ids.size());
+        assertTrue(allocator.getLastId() >= THREADS * 10000);
+    }
+
+    @Test
+    public void reservingDropsTheBlocksTakenBefore() throws Exception {
+        // given
+        BlockCommodityIdAllocator allocator = new BlockCommodityIdAllocator(64);
+        assertEquals(1, allocator.nextId());
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(65, (int) other.submit(allocator::nextId).get());
+
+            // when
+            allocator.reserveUpTo(1000);
+
+            // then
+            assertEquals(1001, allocator.nextId());
+            assertEquals(1065, (int) other.submit(allocator::nextId).get());
+            assertEquals(1002, allocator.nextId());
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    public void restoredCommoditiesAreNotGivenOutAgain() {
+        // given
+        int restoredId = new Toilet().getInventoryId() + 10000;
+
+        // when
+        Bed restored = Bed.restore(BedType.DOUBLE, restoredId);
+        Shower created = new Shower();
+
+        // then
+        assertEquals(restoredId, restored.getInventoryId());
+        assertTrue(created.getInventoryId() > restoredId);
+    }
+
+    @Test
+    public void reservingALowerIdKeepsTheCounter() {
+        // given
+        BlockCommodityIdAllocator allocator = new BlockCommodityIdAllocator(8);
+        allocator.reserveUpTo(100);
+
+        // when
+        allocator.reserveUpTo(50);
+
+        // then
+        assertEquals(100, allocator.getLastId());
+        assertEquals(101, allocator.nextId());
+    }
+
+    private static <T> List<T> runAll(List<Callable<T>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BookingIntervalIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private static final int ROOMS = 3;
+
+    @Test
+    public void queriesMatchAScanWhileBookingsChange() {
+        // given
+        BookingIntervalIndex index = new BookingIntervalIndex(TODAY);
+        Map<Integer, Booking> bookings = new HashMap<>();
+        Random random = new Random(1);
+        int lastId = 0;
+
+        // when
+        for (int i = 0; i < 20000; i++) {
+            int action = random.nextInt(5);
+            if (action <= 1 || bookings.isEmpty()) {
+                Booking booking = randomBooking(++lastId, random);
+                index.add(booking);
+                bookings.put(booking.getBookingId(), booking);
+            } else if (action == 2) {
+                Booking booking = randomStored(bookings, random);
+                index.remove(booking);
+                bookings.remove(booking.getBookingId());
+            } else if (action == 3) {
+                Booking booking = randomStored(bookings, random);
+                Booking moved = randomBooking(booking.getBookingId(), random);
+                moved = new Booking(moved.getBookingId(), 1, booking.getRoomId(), 1, moved.getFrom(), moved.getTo());
+                index.move(booking, moved);
+                bookings.put(moved.getBookingId(), moved);
+            } else {
+                Booking[] added = new Booking[1 + random.nextInt(20)];
+                for (int j = 0; j < added.length; j++) {
+                    added[j] = randomBooking(++lastId, random);
+                    bookings.put(added[j].getBookingId(), added[j]);
+                }
+                index.addAll(added);
+            }
+            if (i % 500 == 0) {
+                assertIndexMatchesScan(index, bookings, random);
+            }
+        }
+
+        // then
+        assertEquals(bookings.size(), index.size());
+        assertIndexMatchesScan(index, bookings, random);
+    }
+
+    @Test
+    public void removedLongStayNoLongerOverlaps() {
+        // given
+        BookingIntervalIndex index = new BookingIntervalIndex(TODAY);
+        LocalDate far = TODAY.plusYears(5);
+        Booking longStay = new Booking(1, 1, 1, 1, far, far.plusDays(300));
+        Booking shortStay = new Booking(2, 1, 1, 1, far.plusDays(400), far.plusDays(402));
+        index.add(longStay);
+        index.add(shortStay);
+
+        // when
+        index.remove(longStay);
+
+        // then
+        assertTrue(index.isFree(1, far.plusDays(100), far.plusDays(101)));
+        assertArrayEquals(new int[0], index.findOverlapping(1, far, far.plusDays(399)));
+        assertArrayEquals(new int[]{2}, index.findOverlapping(1, far, far.plusDays(401)));
+    }
+
+    @Test
+    public void roomEmptiedByRemovingIsFilledAgainAtOnce() {
+        // given
+        BookingIntervalIndex index = new BookingIntervalIndex(TODAY);
+        Booking[] bookings = new Booking[50];
+        for (int i = 0; i < bookings.length; i++) {
+            LocalDate from = TODAY.plusDays(2 * i);
+            bookings[i] = new Booking(i + 1, 1, 1, 1, from, from.plusDays(2));
+        }
+        index.addAll(bookings);
+        for (int i = 0; i < 30; i++) {
+            index.remove(bookings[i]);
+        }
+        for (int i = 30; i < bookings.length; i++) {
+            index.remove(bookings[i]);
+        }
+
+        // when
+        index.addAll(bookings);
+
+        // then
+        assertEquals(bookings.length, index.size());
+        assertArrayEquals(new int[]{10, 11, 12}, index.findOverlapping(1, TODAY.plusDays(19), TODAY.plusDays(23)));
+    }
+
+    /**
+     * Returns a booking of up to 90 nights, some of them
+     * after the two years covered by the calendars
+     */
+    private static Booking randomBooking(int id, Random random) {
+        LocalDate from = TODAY.plusDays(random.nextInt(1200));
+        int nights = random.nextInt(10) == 0 ? 1 + random.nextInt(90) : 1 + random.nextInt(7);
+        return new Booking(id, 1, 1 + random.nextInt(ROOMS), 1, from, from.plusDays(nights));
+    }
+
+    private static Booking randomStored(Map<Integer, Booking> bookings, Random random) {
+        List<Integer> ids = new ArrayList<>(bookings.keySet());
+        return bookings.get(ids.get(random.nextInt(ids.size())));
+    }
+
+    private static void assertIndexMatchesScan(BookingIntervalIndex index, Map<Integer, Booking> bookings,
+                                               Random random) {
+        for (int query = 0; query < 200; query++) {
+            int roomId = 1 + random.nextInt(ROOMS);
+            LocalDate from = TODAY.plusDays(random.nextInt(1300));
+            LocalDate to = from.plusDays(1 + random.nextInt(30));
+            List<Booking> scanned = new ArrayList<>();
+            for (Booking booking : bookings.values()) {
+                if (booking.getRoomId() == roomId && booking.getFrom().isBefore(to) && booking.getTo().isAfter(from)) {
+                    scanned.add(booking);
+                }
+            }
+            scanned.sort(Comparator.comparing(Booking::getFrom).thenComparingInt(Booking::getBookingId));
+            int[] expected = new int[scanned.size()];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = scanned.get(i).getBookingId();
+            }
+            assertArrayEquals("Room " + roomId + " from " + from + " to " + to,
+                    expected, index.findOverlapping(roomId, from, to));
+            assertEquals(scanned.isEmpty(), index.isFree(roomId, from, to));
+        }
+    }
+}
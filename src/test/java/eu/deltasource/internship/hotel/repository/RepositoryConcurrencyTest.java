@@ -0,0 +1,254 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Gender;
+import eu.deltasource.internship.hotel.domain.Guest;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.domain.commodity.AbstractCommodity;
+import eu.deltasource.internship.hotel.domain.commodity.Bed;
+import eu.deltasource.internship.hotel.domain.commodity.BedType;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Saves, updates and deletes items of all three repositories from many
+ * threads at once and checks that no change is lost, no id is given out
+ * twice and the indexes of the bookings agree with a full scan.
+ */
+public class RepositoryConcurrencyTest {
+
+    private static final int THREADS = 4;
+
+    private static final int ITEMS_PER_THREAD = 2000;
+
+    private static final int ROOMS = 20;
+
+    private static final LocalDate FIRST_NIGHT = LocalDate.now().plusDays(1);
+
+    @Test
+    public void concurrentChangesAreNeitherLostNorDuplicated() throws Exception {
+        // given
+        BookingRepository bookingRepository = new BookingRepository();
+        GuestRepository guestRepository = new GuestRepository();
+        RoomRepository roomRepository = new RoomRepository();
+        List<Callable<Changes>> workers = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            long seed = thread;
+            workers.add(() -> change(bookingRepository, guestRepository, roomRepository, new Random(seed)));
+        }
+
+        // when
+        List<Changes> results = runAll(workers);
+
+        // then
+        Set<Integer> bookingIds = new HashSet<>();
+        Set<Integer> guestIds = new HashSet<>();
+        Set<Integer> roomIds = new HashSet<>();
+        int keptBookings = 0;
+        int keptGuests = 0;
+        int keptRooms = 0;
+        for (Changes changes : results) {
+            for (Booking booking : changes.bookings) {
+                assertTrue("Duplicate booking id " + booking.getBookingId(), bookingIds.add(booking.getBookingId()));
+                assertEquals(booking.getTo(), bookingRepository.findById(booking.getBookingId()).getTo());
+            }
+            for (Guest guest : changes.guests) {
+                assertTrue("Duplicate guest id " + guest.getGuestId(), guestIds.add(guest.getGuestId()));
+                assertEquals(guest.getFirstName(), guestRepository.findById(guest.getGuestId()).getFirstName());
+            }
+            for (Room room : changes.rooms) {
+                assertTrue("Duplicate room id " + room.getRoomId(), roomIds.add(room.getRoomId()));
+                assertEquals(room.getRoomCapacity(), roomRepository.findById(room.getRoomId()).getRoomCapacity());
+            }
+            keptBookings += changes.bookings.size();
+            keptGuests += changes.guests.size();
+            keptRooms += changes.rooms.size();
+            for (int id : changes.deletedBookingIds) {
+                assertTrue("Duplicate booking id " + id, bookingIds.add(id));
+                assertFalse(bookingRepository.existsById(id));
+            }
+            for (int id : changes.deletedGuestIds) {
+                assertTrue("Duplicate guest id " + id, guestIds.add(id));
+                assertFalse(guestRepository.existsById(id));
+            }
+            for (int id : changes.deletedRoomIds) {
+                assertTrue("Duplicate room id " + id, roomIds.add(id));
+                assertFalse(roomRepository.existsById(id));
+            }
+        }
+        assertEquals(THREADS * ITEMS_PER_THREAD, bookingIds.size());
+        assertEquals(THREADS * ITEMS_PER_THREAD, guestIds.size());
+        assertEquals(THREADS * ITEMS_PER_THREAD, roomIds.size());
+        assertEquals(keptBookings, bookingRepository.count());
+        assertEquals(keptGuests, guestRepository.count());
+        assertEquals(keptRooms, roomRepository.count());
+        assertIndexMatchesScan(bookingRepository);
+    }
+
+    @Test
+    public void bookingsSavedWhileClearingStayIndexed() throws Exception {
+        // given
+        BookingRepository bookingRepository = new BookingRepository();
+        AtomicBoolean saving = new AtomicBoolean(true);
+        List<Callable<Changes>> workers = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            long seed = thread;
+            workers.add(() -> {
+                Random random = new Random(seed);
+                while (saving.get()) {
+                    bookingRepository.save(randomBooking(random));
+                }
+                return new Changes();
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Changes>> futures = new ArrayList<>();
+            for (Callable<Changes> worker : workers) {
+                futures.add(executor.submit(worker));
+            }
+
+            // when
+            for (int i = 0; i < 200; i++) {
+                bookingRepository.deleteAll();
+                Thread.sleep(1);
+            }
+            saving.set(false);
+            for (Future<Changes> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // then
+        assertIndexMatchesScan(bookingRepository);
+    }
+
+    /**
+     * Saves items and then updates or deletes some of them,
+     * returns the items as they should be stored now
+     */
+    private static Changes change(BookingRepository bookingRepository, GuestRepository guestRepository,
+                                  RoomRepository roomRepository, Random random) {
+        Changes changes = new Changes();
+        for (int i = 0; i < ITEMS_PER_THREAD; i++) {
+            Booking booking = bookingRepository.save(randomBooking(random));
+            Guest guest = guestRepository.save(new Guest(0, "First" + i, "Last", Gender.FEMALE));
+            Room room = roomRepository.save(new Room(0, beds(1 + random.nextInt(3))));
+            switch (random.nextInt(3)) {
+                case 0:
+                    LocalDate from = booking.getFrom().plusDays(1);
+                    booking = bookingRepository.updateDates(
+                            new Booking(booking.getBookingId(), 0, 0, 1, from, from.plusDays(2)));
+                    guest = guestRepository.updateGuest(
+                            new Guest(guest.getGuestId(), "Updated" + i, "Last", Gender.MALE));
+                    room = roomRepository.updateRoom(new Room(room.getRoomId(), beds(2)));
+                    break;
+                case 1:
+                    bookingRepository.deleteById(booking.getBookingId());
+                    guestRepository.deleteById(guest.getGuestId());
+                    roomRepository.deleteById(room.getRoomId());
+                    changes.deletedBookingIds.add(booking.getBookingId());
+                    changes.deletedGuestIds.add(guest.getGuestId());
+                    changes.deletedRoomIds.add(room.getRoomId());
+                    continue;
+                default:
+                    break;
+            }
+            changes.bookings.add(booking);
+            changes.guests.add(guest);
+            changes.rooms.add(room);
+        }
+        return changes;
+    }
+
+    /**
+     * Checks every room and a range of stays against
+     * the bookings found by scanning the whole repository
+     */
+    private static void assertIndexMatchesScan(BookingRepository bookingRepository) {
+        List<Booking> all = bookingRepository.findAll();
+        for (int roomId = 1; roomId <= ROOMS; roomId++) {
+            for (int night = 0; night < 60; night += 3) {
+                LocalDate from = FIRST_NIGHT.plusDays(night);
+                LocalDate to = from.plusDays(2);
+                Set<Integer> scanned = new HashSet<>();
+                for (Booking booking : all) {
+                    if (booking.getRoomId() == roomId && booking.getFrom().isBefore(to)
+                            && booking.getTo().isAfter(from)) {
+                        scanned.add(booking.getBookingId());
+                    }
+                }
+                Set<Integer> indexed = new HashSet<>();
+                for (Booking booking : bookingRepository.findConflictingBookings(roomId, from, to)) {
+                    indexed.add(booking.getBookingId());
+                }
+                assertEquals("Room " + roomId + " from " + from, scanned, indexed);
+                assertEquals(scanned.isEmpty(), bookingRepository.isRoomAvailable(roomId, from, to));
+            }
+        }
+    }
+
+    private static Booking randomBooking(Random random) {
+        LocalDate from = FIRST_NIGHT.plusDays(random.nextInt(60));
+        return new Booking(0, 1, 1 + random.nextInt(ROOMS), 1, from, from.plusDays(1 + random.nextInt(4)));
+    }
+
+    /**
+     * Returns single beds for the given number of people
+     */
+    private static Set<AbstractCommodity> beds(int people) {
+        Set<AbstractCommodity> beds = new HashSet<>();
+        for (int i = 0; i < people; i++) {
+            beds.add(new Bed(BedType.SINGLE));
+        }
+        return beds;
+    }
+
+    private static List<Changes> runAll(List<Callable<Changes>> workers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            List<Changes> results = new ArrayList<>();
+            for (Future<Changes> future : executor.invokeAll(workers)) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The items one thread changed, as they should be stored now
+     */
+    private static final class Changes {
+
+        private final List<Booking> bookings = new ArrayList<>();
+
+        private final List<Guest> guests = new ArrayList<>();
+
+        private final List<Room> rooms = new ArrayList<>();
+
+        private final List<Integer> deletedBookingIds = new ArrayList<>();
+
+        private final List<Integer> deletedGuestIds = new ArrayList<>();
+
+        private final List<Integer> deletedRoomIds = new ArrayList<>();
+    }
+}
@@ -0,0 +1,101 @@
+package eu.deltasource.internship.hotel.repository;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.domain.commodity.AbstractCommodity;
+import eu.deltasource.internship.hotel.domain.commodity.Bed;
+import eu.deltasource.internship.hotel.domain.commodity.BedType;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Pages and streams the items of repositories, which keep only
+ * a few items far apart after most of their ids were deleted.
+ */
+public class RepositoryPaginationTest {
+
+    private static final LocalDate FIRST_NIGHT = LocalDate.now().plusDays(1);
+
+    private static final int BOOKINGS = 20000;
+
+    @Test
+    public void sparseBookingsOfTheMapStorageArePagedById() {
+        assertSparseBookingsArePagedById(new MapBookingStorage());
+    }
+
+    @Test
+    public void sparseBookingsOfTheColumnarStorageArePagedById() {
+        assertSparseBookingsArePagedById(new ColumnarBookingStorage());
+    }
+
+    @Test
+    public void sparseRoomsArePagedById() {
+        // given
+        RoomRepository repository = new RoomRepository();
+        List<Integer> kept = new ArrayList<>();
+        for (int i = 1; i <= 3000; i++) {
+            int id = repository.save(new Room(0, beds())).getRoomId();
+            if (id % 401 == 1) {
+                kept.add(id);
+            } else {
+                repository.deleteById(id);
+            }
+        }
+
+        // when
+        List<Integer> paged = new ArrayList<>();
+        List<Room> page = repository.findAll(0, 2);
+        while (!page.isEmpty()) {
+            page.forEach(room -> paged.add(room.getRoomId()));
+            page = repository.findAll(page.get(page.size() - 1).getRoomId(), 2);
+        }
+
+        // then
+        assertEquals(kept, paged);
+        assertEquals(kept, repository.stream().map(Room::getRoomId).collect(Collectors.toList()));
+    }
+
+    private static void assertSparseBookingsArePagedById(BookingStorage storage) {
+        // given
+        BookingRepository repository = new BookingRepository(null, storage);
+        List<Integer> kept = new ArrayList<>();
+        for (int i = 1; i <= BOOKINGS; i++) {
+            LocalDate from = FIRST_NIGHT.plusDays(i % 300);
+            int id = repository.save(new Booking(0, 1, 1 + i % 50, 1, from, from.plusDays(2))).getBookingId();
+            // leaves whole chunks of the columnar storage empty
+            if (id % 997 == 1 && (id < 4000 || id > 13000) || id == BOOKINGS) {
+                kept.add(id);
+            } else {
+                repository.deleteById(id);
+            }
+        }
+
+        // when
+        List<Integer> paged = new ArrayList<>();
+        List<Booking> page = repository.findAll(0, 3);
+        while (!page.isEmpty()) {
+            page.forEach(booking -> paged.add(booking.getBookingId()));
+            page = repository.findAll(page.get(page.size() - 1).getBookingId(), 3);
+        }
+
+        // then
+        assertEquals(kept, paged);
+        assertEquals(kept, repository.stream().map(Booking::getBookingId).collect(Collectors.toList()));
+        assertEquals(kept, repository.stream().parallel().map(Booking::getBookingId).collect(Collectors.toList()));
+        assertEquals(0, repository.findAll(BOOKINGS, 3).size());
+    }
+
+    private static Set<AbstractCommodity> beds() {
+        Set<AbstractCommodity> beds = new HashSet<>();
+        beds.add(new Bed(BedType.SINGLE));
+        return beds;
+    }
+}
@@ -0,0 +1,128 @@
+package eu.deltasource.internship.hotel.service;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AvailabilityCacheTest {
+
+    private static final LocalDate FIRST_NIGHT = LocalDate.now().plusDays(1);
+
+    private BookingRepository bookingRepository;
+
+    private RoomService roomService;
+
+    private AvailabilityCache cache;
+
+    @Before
+    public void setUp() {
+        bookingRepository = new BookingRepository();
+        roomService = new RoomService(new RoomRepository());
+        roomService.saveRooms(TestConfiguration.createRooms());
+        cache = new AvailabilityCache(bookingRepository, roomService, 1000);
+    }
+
+    @Test
+    public void changedBookingDropsOnlyTheResultsOfItsNights() {
+        // given
+        LocalDate later = FIRST_NIGHT.plusDays(10);
+        search(FIRST_NIGHT, FIRST_NIGHT.plusDays(3));
+        search(later, later.plusDays(3));
+
+        // when
+        bookingRepository.save(new Booking(0, 1, 1, 1, FIRST_NIGHT.plusDays(2), FIRST_NIGHT.plusDays(4)));
+        int[] changed = search(FIRST_NIGHT, FIRST_NIGHT.plusDays(3));
+        int[] unchanged = search(later, later.plusDays(3));
+
+        // then
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(search(later, later.plusDays(3)).length, unchanged.length);
+        assertEquals(roomService.findRooms().size() - 1, changed.length);
+    }
+
+    @Test
+    public void changedRoomDropsTheResults() {
+        // given
+        search(FIRST_NIGHT, FIRST_NIGHT.plusDays(3));
+
+        // when
+        roomService.deleteRoomById(1);
+        int[] roomIds = search(FIRST_NIGHT, FIRST_NIGHT.plusDays(3));
+
+        // then
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(roomService.findRooms().size(), roomIds.length);
+    }
+
+    @Test
+    public void cachedResultsMatchTheSearchWhileBookingsChange() throws Exception {
+        // given
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            long seed = thread;
+            workers.add(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 5000; i++) {
+                    LocalDate from = FIRST_NIGHT.plusDays(random.nextInt(40));
+                    LocalDate to = from.plusDays(1 + random.nextInt(5));
+                    if (random.nextInt(4) == 0) {
+                        Booking booking = bookingRepository.save(
+                                new Booking(0, 1, 1 + random.nextInt(6), 1, from, to));
+                        if (random.nextBoolean()) {
+                            bookingRepository.deleteById(booking.getBookingId());
+                        }
+                    } else {
+                        search(from, to);
+                    }
+                }
+                return null;
+            });
+        }
+
+        // when
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            for (Future<Void> future : executor.invokeAll(workers)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // then
+        for (int night = 0; night < 45; night++) {
+            for (int nights = 1; nights <= 5; nights++) {
+                LocalDate from = FIRST_NIGHT.plusDays(night);
+                LocalDate to = from.plusDays(nights);
+                int[] found = bookingRepository.findAvailableRoomIds(roomService.findRoomIdsByMinCapacity(1), from, to);
+                int[] cached = search(from, to);
+                Arrays.sort(found);
+                Arrays.sort(cached);
+                assertArrayEquals("From " + from + " to " + to, found, cached);
+            }
+        }
+    }
+
+    private int[] search(LocalDate from, LocalDate to) {
+        return cache.get(from, to, 1, () ->
+                bookingRepository.findAvailableRoomIds(roomService.findRoomIdsByMinCapacity(1), from, to));
+    }
+}
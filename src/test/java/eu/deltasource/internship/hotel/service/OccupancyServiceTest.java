@@ -0,0 +1,129 @@
+package eu.deltasource.internship.hotel.service;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class OccupancyServiceTest {
+
+    private static final LocalDate FIRST_NIGHT = LocalDate.now();
+
+    private BookingRepository bookingRepository;
+
+    private RoomService roomService;
+
+    private OccupancyService occupancyService;
+
+    @Before
+    public void setUp() {
+        bookingRepository = new BookingRepository();
+        roomService = new RoomService(new RoomRepository());
+        roomService.saveRooms(TestConfiguration.createRooms());
+        occupancyService = new OccupancyService(bookingRepository, roomService);
+    }
+
+    @Test
+    public void countsMatchTheStoredBookings() {
+        // given
+        Random random = new Random(1);
+        List<Integer> bookingIds = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 2000; i++) {
+            int action = random.nextInt(4);
+            if (action == 0 && !bookingIds.isEmpty()) {
+                bookingRepository.deleteById(bookingIds.remove(random.nextInt(bookingIds.size())));
+            } else if (action == 1 && !bookingIds.isEmpty()) {
+                int id = bookingIds.get(random.nextInt(bookingIds.size()));
+                LocalDate from = FIRST_NIGHT.plusDays(random.nextInt(100));
+                bookingRepository.updateDates(new Booking(id, 0, 0, 1, from, from.plusDays(1 + random.nextInt(30))));
+            } else {
+                bookingIds.add(bookingRepository.save(randomBooking(random)).getBookingId());
+            }
+        }
+
+        // then
+        for (int night = 0; night < 140; night++) {
+            LocalDate date = FIRST_NIGHT.plusDays(night);
+            assertEquals(count(date, date.plusDays(1), 0), occupancyService.getOccupiedRooms(date));
+            assertEquals(count(date, date.plusDays(1), 1), occupancyService.getOccupiedBeds(date));
+            assertEquals(count(date, date.plusDays(1), 2), occupancyService.getPeople(date));
+        }
+        for (int night = 0; night < 140; night += 7) {
+            LocalDate from = FIRST_NIGHT.plusDays(night);
+            LocalDate to = from.plusDays(1 + night / 2);
+            assertEquals(count(from, to, 0), occupancyService.getRoomNights(from, to));
+            assertEquals(count(from, to, 1), occupancyService.getBedNights(from, to));
+            assertEquals(count(from, to, 2), occupancyService.getPeopleNights(from, to));
+        }
+    }
+
+    @Test
+    public void bookingIsRemovedWithTheBedsItWasCountedWith() {
+        // given
+        Room room = roomService.getRoomById(1);
+        int beds = room.getLayout().getBeds();
+        Booking booking = bookingRepository.save(new Booking(0, 1, 1, 1, FIRST_NIGHT, FIRST_NIGHT.plusDays(2)));
+        roomService.updateRoom(new Room(1, TestConfiguration.fivePersonSet()));
+
+        // when
+        long countedBeds = occupancyService.getOccupiedBeds(FIRST_NIGHT);
+        bookingRepository.deleteById(booking.getBookingId());
+
+        // then
+        assertEquals(beds, countedBeds);
+        assertEquals(0, occupancyService.getOccupiedBeds(FIRST_NIGHT));
+        assertEquals(0, occupancyService.getBedNights(FIRST_NIGHT, FIRST_NIGHT.plusDays(10)));
+    }
+
+    @Test
+    public void bookingSavedAfterARoomUpdateIsCountedWithTheNewBeds() {
+        // given
+        roomService.updateRoom(new Room(1, TestConfiguration.fivePersonSet()));
+
+        // when
+        bookingRepository.save(new Booking(0, 1, 1, 4, FIRST_NIGHT, FIRST_NIGHT.plusDays(3)));
+
+        // then
+        int beds = roomService.getRoomById(1).getLayout().getBeds();
+        assertEquals(beds, occupancyService.getOccupiedBeds(FIRST_NIGHT.plusDays(2)));
+        assertEquals(3L * beds, occupancyService.getBedNights(FIRST_NIGHT, FIRST_NIGHT.plusDays(5)));
+        assertEquals(12, occupancyService.getPeopleNights(FIRST_NIGHT, FIRST_NIGHT.plusDays(5)));
+    }
+
+    private static Booking randomBooking(Random random) {
+        LocalDate from = FIRST_NIGHT.plusDays(random.nextInt(100));
+        return new Booking(0, 1, 1 + random.nextInt(6), 1 + random.nextInt(3), from,
+                from.plusDays(1 + random.nextInt(30)));
+    }
+
+    /**
+     * Counts the room (0), bed (1) or people (2) nights
+     * between from and to by scanning all bookings
+     */
+    private long count(LocalDate from, LocalDate to, int what) {
+        long sum = 0;
+        for (Booking booking : bookingRepository.findAll()) {
+            LocalDate start = booking.getFrom().isAfter(from) ? booking.getFrom() : from;
+            LocalDate end = booking.getTo().isBefore(to) ? booking.getTo() : to;
+            long nights = Math.max(0, end.toEpochDay() - start.toEpochDay());
+            if (what == 1) {
+                nights *= roomService.getRoomById(booking.getRoomId()).getLayout().getBeds();
+            } else if (what == 2) {
+                nights *= booking.getNumberOfPeople();
+            }
+            sum += nights;
+        }
+        return sum;
+    }
+}
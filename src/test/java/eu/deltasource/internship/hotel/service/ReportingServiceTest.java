@@ -0,0 +1,115 @@
+package eu.deltasource.internship.hotel.service;
+
+import eu.deltasource.internship.hotel.domain.Booking;
+import eu.deltasource.internship.hotel.domain.Room;
+import eu.deltasource.internship.hotel.repository.BookingRepository;
+import eu.deltasource.internship.hotel.repository.RoomRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReportingServiceTest {
+
+    private static final LocalDate FROM = LocalDate.now().plusDays(30);
+
+    private static final LocalDate TO = FROM.plusDays(90);
+
+    private BookingRepository bookingRepository;
+
+    private RoomService roomService;
+
+    private ReportingService reportingService;
+
+    @Before
+    public void setUp() {
+        bookingRepository = new BookingRepository();
+        roomService = new RoomService(new RoomRepository());
+        for (int i = 0; i < 20; i++) {
+            roomService.saveRooms(TestConfiguration.createRooms());
+        }
+        reportingService = new ReportingService(bookingRepository, roomService);
+    }
+
+    @Test
+    public void parallelReportEqualsTheNightByNightCount() {
+        // given
+        Random random = new Random(1);
+        int rooms = roomService.findRooms().size();
+        for (int i = 0; i < 50000; i++) {
+            // the stays start before, in and after the report
+            LocalDate from = FROM.plusDays(random.nextInt(130) - 20);
+            bookingRepository.save(new Booking(0, 1, 1 + random.nextInt(rooms + 5), 1 + random.nextInt(4),
+                    from, from.plusDays(1 + random.nextInt(14))));
+        }
+        roomService.deleteRoomById(3);
+
+        // when
+        OccupancyReport report = reportingService.createOccupancyReport(FROM, TO);
+
+        // then
+        assertEquals(createReferenceReport(FROM, TO), report);
+    }
+
+    @Test
+    public void bookingLeavingWhenTheReportStartsIsNotCounted() {
+        // given
+        bookingRepository.save(new Booking(0, 1, 1, 2, FROM.minusDays(5), FROM));
+
+        // when
+        OccupancyReport report = reportingService.createOccupancyReport(FROM, TO);
+
+        // then
+        assertEquals(createReferenceReport(FROM, TO), report);
+        assertEquals(0, report.getArrivals());
+        assertEquals(0, report.getOccupiedRooms(FROM));
+    }
+
+    /**
+     * Creates the same report sequentially, walking every night of every booking
+     */
+    private OccupancyReport createReferenceReport(LocalDate from, LocalDate to) {
+        Map<Integer, Room> rooms = new HashMap<>();
+        int maxCapacity = 0;
+        for (Room room : roomService.findRooms()) {
+            rooms.put(room.getRoomId(), room);
+            maxCapacity = Math.max(maxCapacity, room.getRoomCapacity());
+        }
+        int[] roomsByCapacity = new int[maxCapacity + 1];
+        for (Room room : rooms.values()) {
+            roomsByCapacity[room.getRoomCapacity()]++;
+        }
+        int[] occupiedRooms = new int[(int) ChronoUnit.DAYS.between(from, to)];
+        long[] roomNightsByCapacity = new long[maxCapacity + 1];
+        long arrivals = 0;
+        long arrivalNights = 0;
+        long arrivalPeople = 0;
+        long arrivalCapacity = 0;
+        for (Booking booking : bookingRepository.findAll()) {
+            Room room = rooms.get(booking.getRoomId());
+            if (room == null) {
+                continue;
+            }
+            for (LocalDate night = booking.getFrom(); night.isBefore(booking.getTo()); night = night.plusDays(1)) {
+                if (!night.isBefore(from) && night.isBefore(to)) {
+                    occupiedRooms[(int) ChronoUnit.DAYS.between(from, night)]++;
+                    roomNightsByCapacity[room.getRoomCapacity()]++;
+                }
+            }
+            if (!booking.getFrom().isBefore(from) && booking.getFrom().isBefore(to)) {
+                arrivals++;
+                arrivalNights += ChronoUnit.DAYS.between(booking.getFrom(), booking.getTo());
+                arrivalPeople += booking.getNumberOfPeople();
+                arrivalCapacity += room.getRoomCapacity();
+            }
+        }
+        return new OccupancyReport(from, to, roomsByCapacity, occupiedRooms, roomNightsByCapacity,
+                arrivals, arrivalNights, arrivalPeople, arrivalCapacity);
+    }
+}
@@ -18,6 +18,8 @@ import static eu.deltasource.internship.hotel.domain.commodity.BedType.SINGLE;
  * This test class has a ready initialization for the rooms of the hotel,
  * which you can use for testing! Add more when needed.
  *
+ * The room sets are also used by the benchmarks, so every call
+ * creates new commodities.
  */
 public class TestConfiguration {
 
@@ -33,45 +35,64 @@ public class TestConfiguration {
         RoomService roomService = new RoomService(roomRepository);
         GuestService guestService = new GuestService(guestRepository);
         BookingService bookingService = new BookingService(bookingRepository, roomService, guestService);
+        OccupancyService occupancyService = new OccupancyService(bookingRepository, roomService);
 
         // Initialize Hotel (API), which does nothing
 
-        Hotel hotel = new Hotel(bookingService, guestService, roomService);
+        Hotel hotel = new Hotel(bookingService, guestService, roomService, occupancyService);
 
         // Filling up hotel with ready rooms to use
 
-        // Comodities for a double room
-        AbstractCommodity doubleBed = new Bed(BedType.DOUBLE);
-        AbstractCommodity toilet = new Toilet();
-        AbstractCommodity shower = new Shower();
+        // adds the rooms to the repository, which then can be accesses from the RoomService
+        roomService.saveRooms(createRooms());
 
-        Set<AbstractCommodity> doubleSet = new HashSet<>(Arrays.asList(doubleBed, toilet, shower));
+    }
 
-        // commodities for a single room
-        Set<AbstractCommodity> singleSet = new HashSet<>(Arrays.asList(new Bed(SINGLE), new Toilet(), new Shower()));
+    /**
+     * Creates one room of every set below
+     */
+    public static Room[] createRooms() {
+        return new Room[]{
+                new Room(1, doubleSet()),
+                new Room(1, singleSet()),
+                new Room(1, kingSizeSet()),
+                new Room(1, threePeopleKingSizeSet()),
+                new Room(1, fourPersonSet()),
+                new Room(1, fivePersonSet())};
+    }
 
-        // commodities for a double room with king size bed
-        Set<AbstractCommodity> kingSizeSet = new HashSet<>(Arrays.asList(new Bed(BedType.KING_SIZE), new Toilet(), new Shower()));
+    // Comodities for a double room
+    public static Set<AbstractCommodity> doubleSet() {
+        AbstractCommodity doubleBed = new Bed(BedType.DOUBLE);
+        AbstractCommodity toilet = new Toilet();
+        AbstractCommodity shower = new Shower();
 
-        // commodities for a 3 person room with a king size and a single
-        Set<AbstractCommodity> threePeopleKingSizeSet = new HashSet<>(Arrays.asList(new Bed(BedType.KING_SIZE), new Bed(SINGLE), new Toilet(), new Shower()));
+        return new HashSet<>(Arrays.asList(doubleBed, toilet, shower));
+    }
 
-        // commodities for a 4 person room with 2 doubles
-        Set<AbstractCommodity> fourPersonSet = new HashSet<>(Arrays.asList(new Bed(BedType.DOUBLE), new Bed(BedType.DOUBLE), new Toilet(), new Shower()));
+    // commodities for a single room
+    public static Set<AbstractCommodity> singleSet() {
+        return new HashSet<>(Arrays.asList(new Bed(SINGLE), new Toilet(), new Shower()));
+    }
 
-        // commodities for a 4 person room with 2 doubles
-        Set<AbstractCommodity> fivePersonSet = new HashSet<>(Arrays.asList(new Bed(BedType.KING_SIZE), new Bed(BedType.DOUBLE), new Bed(SINGLE), new Toilet(), new Toilet(), new Shower()));
+    // commodities for a double room with king size bed
+    public static Set<AbstractCommodity> kingSizeSet() {
+        return new HashSet<>(Arrays.asList(new Bed(BedType.KING_SIZE), new Toilet(), new Shower()));
+    }
 
-        // create some rooms
-        Room doubleRoom = new Room(1, doubleSet);
-        Room singleRoom = new Room(1, singleSet);
-        Room kingSizeRoom = new Room(1, kingSizeSet);
-        Room threePeopleKingSizeRoom = new Room(1, threePeopleKingSizeSet);
-        Room fourPersonRoom = new Room(1, fourPersonSet);
-        Room fivePersonRoom = new Room(1, fivePersonSet);
+    // commodities for a 3 person room with a king size and a single
+    public static Set<AbstractCommodity> threePeopleKingSizeSet() {
+        return new HashSet<>(Arrays.asList(new Bed(BedType.KING_SIZE), new Bed(SINGLE), new Toilet(), new Shower()));
+    }
 
-        // adds the rooms to the repository, which then can be accesses from the RoomService
-        roomService.saveRooms(doubleRoom, singleRoom, kingSizeRoom, threePeopleKingSizeRoom, fourPersonRoom, fivePersonRoom);
+    // commodities for a 4 person room with 2 doubles
+    public static Set<AbstractCommodity> fourPersonSet() {
+        return new HashSet<>(Arrays.asList(new Bed(BedType.DOUBLE), new Bed(BedType.DOUBLE), new Toilet(), new Shower()));
+    }
 
+    // commodities for a 5 person room with a king size, a double and a single
+    public static Set<AbstractCommodity> fivePersonSet() {
+        return new HashSet<>(Arrays.asList(new Bed(BedType.KING_SIZE), new Bed(BedType.DOUBLE), new Bed(SINGLE),
+                new Toilet(), new Toilet(), new Shower()));
     }
 }